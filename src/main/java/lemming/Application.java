@@ -2,6 +2,8 @@ package lemming;
 
 import lemming.auth.AuthRequestFilter;
 import lemming.context.ContextResource;
+import lemming.data.CacheStatisticsResource;
+import lemming.data.UnitOfWorkFilter;
 import lemming.lemma.LemmaResource;
 import lemming.pos.PosResource;
 import org.glassfish.jersey.jackson.JacksonFeature;
@@ -42,6 +44,7 @@ public class Application extends ResourceConfig {
         // enable gzip encoder for pos resource
         EncodingFilter.enableFor(posResourceConfig, GZipEncoder.class);
 
+        register(CacheStatisticsResource.class);
         packages("lemming.context");
         packages("lemming.lemma");
         packages("lemming.pos");
@@ -53,6 +56,8 @@ public class Application extends ResourceConfig {
         // enable user roles
         register(AuthRequestFilter.class);
         register(RolesAllowedDynamicFeature.class);
+        // enable request-scoped units of work
+        register(UnitOfWorkFilter.class);
         // enable gzip encoding
         register(EncodingFilter.class);
         register(GZipEncoder.class);
@@ -3,6 +3,7 @@ package lemming;
 import lemming.auth.SignInPage;
 import lemming.auth.WebSession;
 import lemming.context.*;
+import lemming.data.UnitOfWorkRequestCycleListener;
 import lemming.lemma.LemmaEditPage;
 import lemming.lemma.LemmaIndexPage;
 import lemming.lemmatisation.LemmatisationPage;
@@ -62,6 +63,7 @@ public class WebApplication extends AuthenticatedWebApplication {
                         }
                     }
                 });
+        getRequestCycleListeners().add(new UnitOfWorkRequestCycleListener());
         getApplicationSettings().setAccessDeniedPage(AccessDeniedPage.class);
         getApplicationSettings().setPageExpiredErrorPage(PageExpiredPage.class);
 
@@ -91,9 +93,8 @@ public class WebApplication extends AuthenticatedWebApplication {
         // TODO: remove
 //        logger.info("Updating all contexts...");
 //        ContextDao contextDao = new ContextDao();
-//        List<Context> allContexts = contextDao.getAll();
 //
-//        contextDao.batchUpdate(allContexts);
+//        contextDao.forEachBatch(contextDao::batchUpdate, 50);
 //        logger.info("Done.");
     }
 
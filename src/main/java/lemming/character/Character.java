@@ -2,6 +2,7 @@ package lemming.character;
 
 import lemming.data.DatedEntity;
 import org.hibernate.annotations.*;
+import org.hibernate.annotations.Cache;
 
 import javax.persistence.*;
 import javax.persistence.Entity;
@@ -14,6 +15,8 @@ import java.util.UUID;
  * Represents a special character.
  */
 @BatchSize(size = 30)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Cacheable
 @DynamicUpdate
 @Entity
 @OptimisticLocking(type = OptimisticLockType.VERSION)
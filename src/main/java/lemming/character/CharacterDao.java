@@ -4,6 +4,7 @@ import lemming.data.EntityManagerListener;
 import lemming.data.GenericDao;
 import org.hibernate.StaleObjectStateException;
 import org.hibernate.UnresolvableObjectException;
+import org.hibernate.annotations.QueryHints;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityTransaction;
@@ -260,7 +261,7 @@ public class CharacterDao extends GenericDao<Character> implements ICharacterDao
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Character> query = entityManager
                     .createQuery("FROM Character WHERE character = :character", Character.class);
@@ -296,10 +297,11 @@ public class CharacterDao extends GenericDao<Character> implements ICharacterDao
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Character> query = entityManager
                     .createQuery("FROM Character ORDER BY position ASC", Character.class);
+            query.setHint(QueryHints.CACHEABLE, true);
             List<Character> characterList = query.getResultList();
             transaction.commit();
             return characterList;
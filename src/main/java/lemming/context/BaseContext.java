@@ -3,9 +3,11 @@ package lemming.context;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lemming.data.DatedEntity;
 import lemming.data.HashEntityListener;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -24,7 +26,8 @@ public abstract class BaseContext extends DatedEntity implements Serializable {
      * ID associated with a context.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "context_id")
+    @GenericGenerator(name = "context_id", strategy = "lemming.data.PooledIdGenerator")
     private Integer id;
 
     /**
@@ -36,6 +39,22 @@ public abstract class BaseContext extends DatedEntity implements Serializable {
     @JsonIgnore
     private String hash;
 
+    /**
+     * The first 128 bits of the hash, used as compact key for matching contexts.
+     *
+     * @see HashEntityListener
+     */
+    @Column(name = "fingerprint", columnDefinition = "BINARY(16)")
+    @JsonIgnore
+    private byte[] fingerprint;
+
+    /**
+     * Text elements the hash was computed from, or null if unknown.
+     */
+    @Transient
+    @JsonIgnore
+    private transient String[] hashedTextElements;
+
     /**
      * A UUID used to distinguish contexts.
      */
@@ -168,10 +187,50 @@ public abstract class BaseContext extends DatedEntity implements Serializable {
     }
 
     /**
-     * Sets the hash of a context.
+     * Sets the hash of a context, computed from the current text elements. The fingerprint is set accordingly.
+     *
+     * @param hash a hash string
      */
     public void setHash(String hash) {
         this.hash = hash;
+        fingerprint = HashEntityListener.getFingerprint(hash);
+        hashedTextElements = getTextElements();
+    }
+
+    /**
+     * Returns the fingerprint of a context.
+     *
+     * @return A 16 byte array, or null if the fingerprint was not computed yet.
+     */
+    public byte[] getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Marks the hash as computed from the current text elements, e.g. after loading a context.
+     */
+    public void setHashCurrent() {
+        hashedTextElements = getTextElements();
+    }
+
+    /**
+     * Checks if the hash is missing or text elements have changed since it was computed.
+     *
+     * @return True if the hash has to be computed; false otherwise.
+     */
+    @JsonIgnore
+    public Boolean isHashOutdated() {
+        return hash == null || hash.isEmpty() || fingerprint == null || hashedTextElements == null ||
+                !Arrays.equals(hashedTextElements, getTextElements());
+    }
+
+    /**
+     * Returns the text elements of a context in the order they are hashed.
+     *
+     * @return An array of preceding text, initial punctuation, keyword, end punctuation and following text.
+     */
+    public String[] getTextElements() {
+        return new String[]{preceding, initPunctuation, keyword, endPunctuation, following};
     }
 
     /**
@@ -30,7 +30,8 @@ public class Comment extends DatedEntity implements Comparable<Comment>, Seriali
      * ID associated with a comment.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "comment_id")
+    @GenericGenerator(name = "comment_id", strategy = "lemming.data.PooledIdGenerator")
     private Integer id;
 
     /**
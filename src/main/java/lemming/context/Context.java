@@ -26,6 +26,7 @@ import java.util.SortedSet;
 @OptimisticLocking(type = OptimisticLockType.VERSION)
 @Table(name = "context", indexes = {
         @Index(columnList = "uuid", unique = true),
+        @Index(columnList = "fingerprint"),
         @Index(columnList = "keyword"),
         @Index(columnList = "location, number"),
         @Index(columnList = "pos_string, lemma_string")
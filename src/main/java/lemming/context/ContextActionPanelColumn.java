@@ -11,18 +11,19 @@ import org.apache.wicket.markup.html.link.Link;
 import org.apache.wicket.markup.html.panel.Panel;
 import org.apache.wicket.markup.repeater.Item;
 import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.Model;
 
 /**
  * A custom column with actions for contexts and and a filter panel as filter.
  */
-public class ContextActionPanelColumn extends FilterPanelColumn<Context> {
+public class ContextActionPanelColumn extends FilterPanelColumn<ContextRow> {
     /**
      * Creates a column.
      *
      * @param displayModel title of the column
      */
     public ContextActionPanelColumn(IModel<String> displayModel) {
-        super(displayModel, Context.class);
+        super(displayModel, ContextRow.class);
     }
 
     /**
@@ -43,7 +44,8 @@ public class ContextActionPanelColumn extends FilterPanelColumn<Context> {
      * @param rowModel    model of the row
      */
     @Override
-    public void populateItem(Item<ICellPopulator<Context>> cellItem, String componentId, IModel<Context> rowModel) {
+    public void populateItem(Item<ICellPopulator<ContextRow>> cellItem, String componentId,
+                             IModel<ContextRow> rowModel) {
         cellItem.add(new ActionPanel(componentId, rowModel));
     }
 
@@ -55,9 +57,9 @@ public class ContextActionPanelColumn extends FilterPanelColumn<Context> {
          * Creates a action panel.
          *
          * @param id    ID of the panel
-         * @param model context model of a cell item
+         * @param model context row model of a cell item
          */
-        public ActionPanel(String id, final IModel<Context> model) {
+        public ActionPanel(String id, final IModel<ContextRow> model) {
             super(id, model);
 
             if (WebSession.get().getUser() == null) {
@@ -67,7 +69,8 @@ public class ContextActionPanelColumn extends FilterPanelColumn<Context> {
             add(new Link<Void>("editLink") {
                 @Override
                 public void onClick() {
-                    setResponsePage(new ContextEditPage(model, getPage().getPageClass()));
+                    Context context = new ContextDao().find(model.getObject().getId());
+                    setResponsePage(new ContextEditPage(Model.of(context), getPage().getPageClass()));
                 }
             });
             add(new AjaxLink<Void>("deleteLink") {
@@ -76,7 +79,8 @@ public class ContextActionPanelColumn extends FilterPanelColumn<Context> {
                     ModalMessagePanel contextDeleteConfirmPanel = (ModalMessagePanel) getPage()
                             .get("contextDeleteConfirmPanel");
 
-                    contextDeleteConfirmPanel.show(target, model);
+                    Context context = new ContextDao().find(model.getObject().getId());
+                    contextDeleteConfirmPanel.show(target, Model.of(context));
                 }
             });
         }
@@ -335,6 +335,40 @@ public class ContextDao extends GenericDao<Context> implements IContextDao {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @throws RuntimeException
+     */
+    public List<Context> findByIds(Collection<Integer> ids) throws RuntimeException {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        EntityManager entityManager = EntityManagerListener.createEntityManager();
+        EntityTransaction transaction = null;
+
+        try {
+            transaction = getReadOnlyTransaction(entityManager);
+            transaction.begin();
+            TypedQuery<Context> query = entityManager.createQuery("SELECT c FROM Context c LEFT JOIN FETCH c.lemma " +
+                    "LEFT JOIN FETCH c.pos WHERE c.id IN :ids", Context.class);
+            List<Context> contextList = query.setParameter("ids", ids).getResultList();
+            transaction.commit();
+            return contextList;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            throw e;
+        } finally {
+            entityManager.close();
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -345,7 +379,7 @@ public class ContextDao extends GenericDao<Context> implements IContextDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Context> query = entityManager.createQuery("SELECT c FROM Context c LEFT JOIN FETCH c.lemma " +
                     "LEFT JOIN FETCH c.pos WHERE c.keyword = :keyword", Context.class);
@@ -375,7 +409,7 @@ public class ContextDao extends GenericDao<Context> implements IContextDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Context> query = entityManager.createQuery("SELECT c FROM Context c LEFT JOIN FETCH c.lemma " +
                     "LEFT JOIN FETCH c.pos WHERE c.keyword LIKE :substring", Context.class);
@@ -406,7 +440,7 @@ public class ContextDao extends GenericDao<Context> implements IContextDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Context> query = entityManager.createQuery("SELECT c FROM Context c LEFT JOIN FETCH c.lemma " +
                     "LEFT JOIN FETCH c.pos WHERE c.location = :location", Context.class);
@@ -426,6 +460,47 @@ public class ContextDao extends GenericDao<Context> implements IContextDao {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @throws RuntimeException
+     */
+    public Map<String, Set<String>> getHashesByLocation(Collection<String> locations) throws RuntimeException {
+        Map<String, Set<String>> hashes = new HashMap<>();
+
+        if (locations.isEmpty()) {
+            return hashes;
+        }
+
+        EntityManager entityManager = EntityManagerListener.createEntityManager();
+        EntityTransaction transaction = null;
+
+        try {
+            transaction = getReadOnlyTransaction(entityManager);
+            transaction.begin();
+            TypedQuery<Object[]> query = entityManager.createQuery("SELECT c.location, c.hash FROM Context c " +
+                    "WHERE c.location IN :locations", Object[].class);
+            List<Object[]> rows = query.setParameter("locations", locations).getResultList();
+            transaction.commit();
+
+            for (Object[] row : rows) {
+                hashes.computeIfAbsent((String) row[0], location -> new HashSet<>()).add((String) row[1]);
+            }
+
+            return hashes;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            throw e;
+        } finally {
+            entityManager.close();
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -437,7 +512,7 @@ public class ContextDao extends GenericDao<Context> implements IContextDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Context> query = entityManager.createQuery("SELECT c FROM Context c LEFT JOIN FETCH c.lemma " +
                     "LEFT JOIN FETCH c.pos WHERE c.location LIKE :substring", Context.class);
@@ -467,7 +542,7 @@ public class ContextDao extends GenericDao<Context> implements IContextDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Context> query = entityManager.createQuery("SELECT c FROM Context c LEFT JOIN FETCH c.lemma " +
                     "LEFT JOIN FETCH c.pos WHERE c.lemma = :lemma", Context.class);
@@ -497,7 +572,7 @@ public class ContextDao extends GenericDao<Context> implements IContextDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Context> query = entityManager
                     .createQuery("SELECT c FROM Context c LEFT JOIN FETCH c.lemma LEFT JOIN FETCH c.pos " +
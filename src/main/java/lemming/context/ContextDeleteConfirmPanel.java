@@ -37,7 +37,7 @@ public class ContextDeleteConfirmPanel extends ModalMessagePanel {
      *
      * @param dataTable data table that is refreshed
      */
-    public ContextDeleteConfirmPanel(GenericDataTable<Context> dataTable) {
+    public ContextDeleteConfirmPanel(GenericDataTable<ContextRow> dataTable) {
         super("contextDeleteConfirmPanel", DialogType.YES_NO, dataTable);
     }
 
@@ -0,0 +1,131 @@
+package lemming.context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts how the contexts of a dry-run import compare to existing contexts, per location.
+ * <p>
+ * A context is unchanged if a context with the same hash exists at its location, changed if its location has other
+ * contexts only, and new if its location has no contexts yet. Counts are added by a job thread and read by request
+ * threads.
+ */
+public class ContextImportDiff {
+    /**
+     * Ways a context compares to existing contexts.
+     */
+    public enum Change {
+        UNCHANGED, CHANGED, NEW
+    }
+
+    /**
+     * Entries by location, ordered by location.
+     */
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    /**
+     * Counts a compared context.
+     *
+     * @param location location of the context
+     * @param change   how the context compares to existing contexts
+     */
+    public synchronized void add(String location, Change change) {
+        entries.computeIfAbsent(location, Entry::new).add(change);
+    }
+
+    /**
+     * Returns copies of the entries, ordered by location.
+     *
+     * @return A list of entries.
+     */
+    public synchronized List<Entry> getEntries() {
+        List<Entry> copies = new ArrayList<>();
+
+        for (Entry entry : entries.values()) {
+            copies.add(entry.copy());
+        }
+
+        return copies;
+    }
+
+    /**
+     * Returns the total of contexts which compare to existing contexts in a given way.
+     *
+     * @param change a way contexts compare to existing contexts
+     * @return A number of contexts.
+     */
+    public synchronized Integer getCount(Change change) {
+        Integer count = 0;
+
+        for (Entry entry : entries.values()) {
+            count += entry.getCount(change);
+        }
+
+        return count;
+    }
+
+    /**
+     * Counts of compared contexts at a location.
+     */
+    public static class Entry {
+        /**
+         * Location of the contexts.
+         */
+        private final String location;
+
+        /**
+         * Number of contexts by change, indexed by ordinal.
+         */
+        private final int[] counts = new int[Change.values().length];
+
+        /**
+         * Creates an entry.
+         *
+         * @param location location of the contexts
+         */
+        private Entry(String location) {
+            this.location = location;
+        }
+
+        /**
+         * Counts a compared context.
+         *
+         * @param change how the context compares to existing contexts
+         */
+        private void add(Change change) {
+            counts[change.ordinal()]++;
+        }
+
+        /**
+         * Returns a copy of the entry.
+         *
+         * @return An entry.
+         */
+        private Entry copy() {
+            Entry copy = new Entry(location);
+            System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+            return copy;
+        }
+
+        /**
+         * Returns the location of the contexts.
+         *
+         * @return A location.
+         */
+        public String getLocation() {
+            return location;
+        }
+
+        /**
+         * Returns the number of contexts which compare to existing contexts in a given way.
+         *
+         * @param change a way contexts compare to existing contexts
+         * @return A number of contexts.
+         */
+        public Integer getCount(Change change) {
+            return counts[change.ordinal()];
+        }
+    }
+}
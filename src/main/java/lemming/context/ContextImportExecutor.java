@@ -0,0 +1,132 @@
+package lemming.context;
+
+import lemming.user.User;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs context import jobs in the background and keeps track of them.
+ * <p>
+ * Jobs run on a small pool of daemon threads. Only a bounded number of jobs may wait for a thread, so that uploads
+ * can't pile up on disk.
+ */
+public final class ContextImportExecutor {
+    /**
+     * Number of jobs running at the same time.
+     */
+    private static final Integer THREAD_COUNT = 2;
+
+    /**
+     * Number of jobs waiting for a thread.
+     */
+    private static final Integer QUEUE_CAPACITY = 10;
+
+    /**
+     * Time in milliseconds an ended job is kept for display.
+     */
+    private static final Long RETENTION_TIME = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Executor running import jobs.
+     */
+    private static ThreadPoolExecutor executor;
+
+    /**
+     * Import jobs by ID.
+     */
+    private static final Map<String, ContextImportJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor.
+     */
+    private ContextImportExecutor() {
+    }
+
+    /**
+     * Starts the executor.
+     */
+    static synchronized void start() {
+        if (executor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                Thread thread = new Thread(runnable, "context-import-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Shuts the executor down. Running jobs are interrupted, waiting jobs are dropped and their files deleted.
+     */
+    static synchronized void shutdown() {
+        if (executor != null) {
+            for (Runnable runnable : executor.shutdownNow()) {
+                if (runnable instanceof ContextImportJob) {
+                    ((ContextImportJob) runnable).discard();
+                }
+            }
+
+            executor = null;
+        }
+
+        jobs.clear();
+    }
+
+    /**
+     * Submits an import job.
+     *
+     * @param job an import job
+     * @throws RejectedExecutionException if too many jobs are waiting or the executor is not running
+     */
+    public static synchronized void submit(ContextImportJob job) throws RejectedExecutionException {
+        if (executor == null) {
+            throw new RejectedExecutionException("Context import executor is not running.");
+        }
+
+        executor.execute(job);
+        jobs.put(job.getId(), job);
+    }
+
+    /**
+     * Returns an import job.
+     *
+     * @param id ID of a job
+     * @return An import job, or null if no such job is known.
+     */
+    public static ContextImportJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Returns the import jobs of a user, oldest first. Jobs which ended a while ago are forgotten.
+     *
+     * @param user a user
+     * @return A list of import jobs.
+     */
+    public static List<ContextImportJob> getJobs(User user) {
+        List<ContextImportJob> userJobs = new ArrayList<>();
+        Long now = System.currentTimeMillis();
+
+        jobs.values().removeIf(job -> job.getEndTime() != null && now - job.getEndTime() > RETENTION_TIME);
+
+        for (ContextImportJob job : jobs.values()) {
+            if (user != null && user.getId().equals(job.getUser().getId())) {
+                userJobs.add(job);
+            }
+        }
+
+        userJobs.sort(Comparator.comparing(ContextImportJob::getCreated));
+        return userJobs;
+    }
+}
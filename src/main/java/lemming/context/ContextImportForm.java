@@ -2,40 +2,44 @@ package lemming.context;
 
 import lemming.HomePage;
 import lemming.auth.WebSession;
-import lemming.context.inbound.*;
+import lemming.context.inbound.ContextImportConfirmPanel;
+import lemming.context.inbound.InboundContextPackagePanel;
 import lemming.ui.panel.AlertPanel;
-import lemming.user.User;
-import org.apache.commons.fileupload.FileItem;
-import org.apache.commons.fileupload.FileUploadException;
 import org.apache.wicket.AttributeModifier;
 import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AbstractDefaultAjaxBehavior;
 import org.apache.wicket.ajax.AjaxEventBehavior;
 import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.markup.html.AjaxLink;
 import org.apache.wicket.behavior.Behavior;
-import org.apache.wicket.extensions.ajax.markup.html.IndicatingAjaxButton;
 import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
 import org.apache.wicket.markup.head.OnDomReadyHeaderItem;
+import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.html.form.Button;
+import org.apache.wicket.markup.html.form.CheckBox;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.markup.html.form.TextField;
 import org.apache.wicket.markup.html.form.upload.FileUploadField;
 import org.apache.wicket.model.Model;
 import org.apache.wicket.model.StringResourceModel;
-import org.apache.wicket.protocol.http.servlet.MultipartServletWebRequest;
-import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
+import org.apache.wicket.request.IRequestParameters;
 import org.apache.wicket.request.cycle.RequestCycle;
-import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.request.resource.JavaScriptResourceReference;
+import org.apache.wicket.request.resource.PackageResourceReference;
+import org.apache.wicket.util.string.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
-import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * A form able to upload and import contexts.
@@ -51,6 +55,11 @@ class ContextImportForm extends Form<Void> {
      */
     private InboundContextPackagePanel contextPackagePanel;
 
+    /**
+     * A panel which displays the progress of import jobs.
+     */
+    private ContextImportJobPanel jobPanel;
+
     /**
      * Creates a context import form.
      */
@@ -69,6 +78,11 @@ class ContextImportForm extends Form<Void> {
      */
     private TextField textInput;
 
+    /**
+     * A check box which selects a dry run.
+     */
+    private CheckBox dryRunInput;
+
     /**
      * A button which triggers a file open event.
      */
@@ -84,6 +98,11 @@ class ContextImportForm extends Form<Void> {
      */
     private AlertPanel alertPanel;
 
+    /**
+     * A behavior called when the uploads of the selected files have ended.
+     */
+    private UploadBehavior uploadBehavior;
+
     /**
      * Called when a context import form is initialized.
      */
@@ -93,22 +112,28 @@ class ContextImportForm extends Form<Void> {
         setMarkupId(getId());
         fileInput = new FileUploadField("fileInput", new Model<>(new ArrayList<>()));
         textInput = new TextField<>("textInput", Model.of(""));
+        dryRunInput = new CheckBox("dryRunInput", Model.of(false));
         removeButton = new RemoveButton();
         browseButton = new Button("browseButton");
         alertPanel = new AlertPanel();
-        SubmitButton submitButton = new SubmitButton(this);
+        uploadBehavior = new UploadBehavior();
+        SubmitButton submitButton = new SubmitButton();
         contextPackagePanel = new InboundContextPackagePanel();
+        jobPanel = new ContextImportJobPanel(contextPackagePanel);
 
         fileInput.add(new FileInputChangeBehavior())
                 .add(AttributeModifier.append("style", "position: absolute; left: -9999px;"));
         add(fileInput.setMarkupId(fileInput.getId()));
         add(textInput.setMarkupId(textInput.getId()));
+        add(dryRunInput.setMarkupId(dryRunInput.getId()));
         add(removeButton.setOutputMarkupId(true).setOutputMarkupPlaceholderTag(true).setVisible(false));
         add(browseButton.setMarkupId(browseButton.getId()).add(new BrowseButtonBehavior()));
+        add(uploadBehavior);
         getPage().add(alertPanel.setOutputMarkupId(true).setOutputMarkupPlaceholderTag(true).setVisible(false));
         getPage().add(new ToHomePageButton());
         getPage().add(submitButton);
         getPage().add(contextPackagePanel.setOutputMarkupId(true));
+        getPage().add(jobPanel);
         getPage().add(new ContextImportConfirmPanel());
     }
 
@@ -117,55 +142,40 @@ class ContextImportForm extends Form<Void> {
     }
 
     /**
-     * Called on submit of the content import form.
+     * Called when the uploads of the content import form are complete.
      *
-     * @param target   target that produces an Ajax response
-     * @param fileItem object representing a file for a form item
+     * @param target target that produces an Ajax response
+     * @param files  received files mapped to their names, owned by the import from now on
+     * @param dryRun true if contexts are compared to existing contexts instead of being imported
      */
-    private void onSubmit(AjaxRequestTarget target, FileItem fileItem) {
-        ContextXmlReader xmlReader = new ContextXmlReader();
-        List<InboundContext> contexts = null;
+    private void onSubmit(AjaxRequestTarget target, Map<Path, String> files, Boolean dryRun) {
+        ContextImportJob job = new ContextImportJob(files, WebSession.get().getUser(), dryRun);
 
         try {
-            xmlReader.validateXml(fileItem.getInputStream());
-        } catch (IOException | SAXException e) {
-            onException(target, e);
+            ContextImportExecutor.submit(job);
+        } catch (RejectedExecutionException e) {
             logException(e);
-            return;
-        }
 
-        try {
-            contexts = xmlReader.readXml(fileItem.getInputStream());
-        } catch (IOException | XMLStreamException e) {
-            onException(target, e);
-            logException(e);
-            return;
-        }
-
-        if (contexts != null) {
-            User user = WebSession.get().getUser();
-
-            if (contexts.size() > 0) {
-                InboundContextPackage contextPackage = new InboundContextPackage(user);
-                new InboundContextPackageDao().persist(contextPackage);
-
-                for (InboundContext context : contexts) {
-                    context.setPackage(contextPackage);
-                    contextPackage.addContext(context);
+            for (Path file : files.keySet()) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ioException) {
+                    ioException.printStackTrace();
                 }
-
-                StringResourceModel messageModel = new StringResourceModel("ContextImportPage.successMessage", this)
-                        .setParameters(String.valueOf(contexts.size()));
-                alertPanel.setMessage(messageModel.getString()).setType(AlertPanel.Type.SUCCESS).setVisible(true);
-                new InboundContextDao().batchPersist(contexts);
-                target.add(contextPackagePanel);
-            } else {
-                String message = getString("ContextImportPage.noContextsMessage");
-                alertPanel.setMessage(message).setType(AlertPanel.Type.INFO).setVisible(true);
             }
 
+            String message = getString("ContextImportPage.busyMessage");
+            alertPanel.setMessage(message).setType(AlertPanel.Type.WARNING).setVisible(true);
             target.add(alertPanel);
+            return;
         }
+
+        String messageKey = dryRun ? "ContextImportPage.dryRunQueuedMessage" : "ContextImportPage.queuedMessage";
+        StringResourceModel messageModel = new StringResourceModel(messageKey, this)
+                .setParameters(Strings.escapeMarkup(job.getFileName()).toString());
+        alertPanel.setMessage(messageModel.getString()).setType(AlertPanel.Type.INFO).setVisible(true);
+        target.add(alertPanel);
+        jobPanel.startUpdates(target);
     }
 
     /**
@@ -175,26 +185,33 @@ class ContextImportForm extends Form<Void> {
      * @param exception exception which occurred.
      */
     private void onException(AjaxRequestTarget target, Exception exception) {
+        String message = getExceptionMessage(this, exception);
+        alertPanel.setMessage(message).setType(AlertPanel.Type.ERROR).setVisible(true);
+        target.add(alertPanel);
+    }
+
+    /**
+     * Returns a message for an exception of an import, including the position of an error in the file.
+     *
+     * @param component component used to localize the message
+     * @param exception exception which occurred
+     * @return A message string.
+     */
+    static String getExceptionMessage(Component component, Exception exception) {
         String message = exception.getLocalizedMessage();
 
         if (exception instanceof SAXParseException) {
             SAXParseException saxParseException = (SAXParseException) exception;
 
             if (saxParseException.getLineNumber() != -1 && saxParseException.getColumnNumber() != -1) {
-                message += "<br/>" + getString("ContextImportPage.line") + ": " + saxParseException.getLineNumber();
-                message += ", " + getString("ContextImportPage.column") + ": " +
+                message += "<br/>" + component.getString("ContextImportPage.line") + ": " +
+                        saxParseException.getLineNumber();
+                message += ", " + component.getString("ContextImportPage.column") + ": " +
                         saxParseException.getColumnNumber();
             }
-        } else if (exception instanceof ContextXmlReader.XmlStreamException) {
-            ContextXmlReader.XmlStreamException xmlStreamException = (ContextXmlReader.XmlStreamException) exception;
-            message += "<br/>" + getString("ContextImportPage.line") + ": " +
-                    xmlStreamException.getLocation().getLineNumber();
-            message += ", " + getString("ContextImportPage.column") + ": " +
-                    xmlStreamException.getLocation().getColumnNumber();
         }
 
-        alertPanel.setMessage(message).setType(AlertPanel.Type.ERROR).setVisible(true);
-        target.add(alertPanel);
+        return message;
     }
 
     /**
@@ -207,9 +224,9 @@ class ContextImportForm extends Form<Void> {
 
         @Override
         protected void onEvent(AjaxRequestTarget target) {
-            String javaScript = "var filename = jQuery('#" + fileInput.getMarkupId() + "')[0].files.length ? " +
-                    "jQuery('#" + fileInput.getMarkupId() + "')[0].files[0].name : ''; " +
-                    "jQuery('#" + textInput.getMarkupId() + "').val(filename);";
+            String javaScript = "var filenames = jQuery.map(jQuery('#" + fileInput.getMarkupId() + "')[0].files, " +
+                    "function (file) { return file.name; }).join(', '); " +
+                    "jQuery('#" + textInput.getMarkupId() + "').val(filenames);";
             target.appendJavaScript(javaScript);
             target.add(removeButton.setVisible(true));
             target.add(alertPanel.setVisible(false));
@@ -282,45 +299,86 @@ class ContextImportForm extends Form<Void> {
     }
 
     /**
-     * An Ajax submit button.
+     * A button which uploads the selected files in chunks.
      */
-    private class SubmitButton extends IndicatingAjaxButton {
+    private class SubmitButton extends WebMarkupContainer {
         /**
          * Creates a submit button.
+         */
+        public SubmitButton() {
+            super("submitButton");
+            setMarkupId(getId());
+            setOutputMarkupId(true);
+        }
+
+        /**
+         * Renders to the web response what the component wants to contribute.
          *
-         * @param form that is submitted
+         * @param response response object
          */
-        public SubmitButton(Form<?> form) {
-            super("submitButton", form);
+        @Override
+        public void renderHead(IHeaderResponse response) {
+            super.renderHead(response);
+            PackageResourceReference javaScriptReference = new JavaScriptResourceReference(ContextImportForm.class,
+                    "scripts/chunked-upload.js");
+            String uploadUrl = RequestCycle.get().getRequest().getContextPath() + "/api/uploads";
+            String javaScript = "jQuery(document).on('click', '#" + getMarkupId() + "', function (e) { " +
+                    "e.preventDefault(); chunkedUpload.start({ " +
+                    "url: '" + uploadUrl + "', " +
+                    "files: jQuery('#" + fileInput.getMarkupId() + "')[0].files, " +
+                    "button: this, " +
+                    "progress: '#uploadProgress', " +
+                    "parameters: function () { return { dryRun: jQuery('#" + dryRunInput.getMarkupId() + "')" +
+                    ".is(':checked') }; }, " +
+                    "callbackUrl: '" + uploadBehavior.getCallbackUrl() + "' }); });";
+            response.render(JavaScriptHeaderItem.forReference(javaScriptReference));
+            response.render(OnDomReadyHeaderItem.forScript(javaScript));
         }
+    }
 
+    /**
+     * A behavior called when the uploads of the selected files have ended.
+     */
+    private class UploadBehavior extends AbstractDefaultAjaxBehavior {
         /**
-         * Submits a form.
+         * Imports complete uploads, or reports failed uploads.
          *
-         * @param target target target that produces an Ajax response
-         * @param form   form that is submitted
+         * @param target target that produces an Ajax response
          */
         @Override
-        protected void onSubmit(AjaxRequestTarget target, Form<?> form) {
-            ServletWebRequest request = (ServletWebRequest) RequestCycle.get().getRequest();
-
-            try {
-                Iterator<String> parameterIterator = request.getRequestParameters().getParameterNames().iterator();
-
-                if (parameterIterator.hasNext()) {
-                    MultipartServletWebRequest multipartRequest = request
-                            .newMultipartWebRequest(Bytes.megabytes(10), "ignored");
-                    multipartRequest.parseFileParts();
-                    List<FileItem> fileItems = multipartRequest.getFiles().get(fileInput.getId());
-
-                    if (fileItems != null) {
-                        if (fileItems.size() > 0) {
-                            ContextImportForm.this.onSubmit(target, fileItems.get(0));
-                        }
-                    }
+        protected void respond(AjaxRequestTarget target) {
+            IRequestParameters parameters = RequestCycle.get().getRequest().getRequestParameters();
+            String uploadIds = parameters.getParameterValue("uploadIds").toString("");
+            Boolean dryRun = parameters.getParameterValue("dryRun").toBoolean(false);
+            List<ContextUpload> uploads = new ArrayList<>();
+            Boolean complete = true;
+
+            for (String uploadId : uploadIds.split(",")) {
+                ContextUpload upload = ContextUpload.get(uploadId, WebSession.get().getUser());
+
+                if (upload != null) {
+                    uploads.add(upload);
                 }
-            } catch (FileUploadException e) {
-                e.printStackTrace();
+
+                complete = complete && upload != null && upload.isComplete();
+            }
+
+            if (complete) {
+                Map<Path, String> files = new LinkedHashMap<>();
+
+                for (ContextUpload upload : uploads) {
+                    files.put(upload.complete(), upload.getFileName());
+                }
+
+                ContextImportForm.this.onSubmit(target, files, dryRun);
+            } else {
+                for (ContextUpload upload : uploads) {
+                    upload.discard();
+                }
+
+                String message = getString("ContextImportPage.uploadFailedMessage");
+                alertPanel.setMessage(message).setType(AlertPanel.Type.ERROR).setVisible(true);
+                target.add(alertPanel);
             }
 
             removeButton.setVisible(false);
@@ -328,15 +386,5 @@ class ContextImportForm extends Form<Void> {
             target.appendJavaScript("jQuery('#" + ContextImportForm.this.getMarkupId() + "')" +
                     ".find('input[type=file], input[type=text]').val('');");
         }
-
-        /**
-         * Returns the markup ID of the Ajax indicator.
-         *
-         * @return A component markup id.
-         */
-        @Override
-        public String getAjaxIndicatorMarkupId() {
-            return "indicatorOverlayPanel";
-        }
     }
 }
@@ -0,0 +1,805 @@
+package lemming.context;
+
+import lemming.context.inbound.InboundContext;
+import lemming.context.inbound.InboundContextDao;
+import lemming.context.inbound.InboundContextPackage;
+import lemming.context.inbound.InboundContextPackageDao;
+import lemming.data.HashEntityListener;
+import lemming.user.User;
+import org.apache.wicket.Application;
+import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A background job importing uploaded files of contexts into new packages of inbound contexts.
+ * <p>
+ * A dry-run job only compares the uploaded contexts to existing contexts and writes nothing. A job is independent of
+ * the request that submitted it. Its progress can be read from any thread.
+ */
+public class ContextImportJob implements Runnable {
+    /**
+     * A logger named corresponding to this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ContextImportJob.class);
+
+    /**
+     * Size of the buffer in bytes through which uploaded files are read.
+     */
+    private static final Integer READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Number of contexts persisted in one transaction.
+     */
+    private static final Integer PERSIST_BATCH_SIZE = 1000;
+
+    /**
+     * Number of parsed contexts which may wait to be persisted.
+     */
+    private static final Integer QUEUE_CAPACITY = 2 * PERSIST_BATCH_SIZE;
+
+    /**
+     * Maximum number of documents parsed at the same time.
+     */
+    private static final Integer PARSER_COUNT = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * A context marking the end of parsed contexts in a queue.
+     */
+    private static final InboundContext END_OF_CONTEXTS = new InboundContext();
+
+    /**
+     * Stages of an import job. Contexts are already persisted while files are parsed.
+     */
+    public enum Stage {
+        QUEUED, PARSING, PERSISTING, DONE, FAILED
+    }
+
+    /**
+     * ID of the job.
+     */
+    private final String id = UUID.randomUUID().toString();
+
+    /**
+     * Uploaded files mapped to their names. The files are deleted when the job ends.
+     */
+    private final Map<Path, String> files;
+
+    /**
+     * User who submitted the job.
+     */
+    private final User user;
+
+    /**
+     * The application, bound to the job thread for localized messages.
+     */
+    private final Application application;
+
+    /**
+     * Locale of the submitting user, used for localized messages.
+     */
+    private final Locale locale;
+
+    /**
+     * True if contexts are compared to existing contexts instead of being imported.
+     */
+    private final Boolean dryRun;
+
+    /**
+     * Comparison of contexts to existing contexts, or null if the job is no dry run.
+     */
+    private final ContextImportDiff diff;
+
+    /**
+     * Creation time of the job in milliseconds.
+     */
+    private final Long created = System.currentTimeMillis();
+
+    /**
+     * Current stage of the job.
+     */
+    private volatile Stage stage = Stage.QUEUED;
+
+    /**
+     * Number of contexts parsed.
+     */
+    private final AtomicInteger parsedCount = new AtomicInteger();
+
+    /**
+     * Number of contexts persisted, or compared in a dry run.
+     */
+    private final AtomicInteger persistedCount = new AtomicInteger();
+
+    /**
+     * Start time of the job in milliseconds, or null if not yet started.
+     */
+    private volatile Long startTime;
+
+    /**
+     * End time of the job in milliseconds, or null if not yet ended.
+     */
+    private volatile Long endTime;
+
+    /**
+     * The exception which failed the job, or null.
+     */
+    private volatile Exception exception;
+
+    /**
+     * Set when parsing is to be given up because of a failure.
+     */
+    private volatile Boolean cancelled = false;
+
+    /**
+     * Creates an import job. Must be called by a request thread.
+     *
+     * @param files  uploaded files mapped to their names, owned by the job from now on
+     * @param user   user who submits the job
+     * @param dryRun true if contexts are compared to existing contexts instead of being imported
+     */
+    public ContextImportJob(Map<Path, String> files, User user, Boolean dryRun) {
+        this.files = new LinkedHashMap<>(files);
+        this.user = user;
+        this.dryRun = dryRun;
+        this.diff = dryRun ? new ContextImportDiff() : null;
+        this.application = Application.get();
+        this.locale = Session.exists() ? Session.get().getLocale() : Locale.getDefault();
+    }
+
+    /**
+     * Runs the job.
+     */
+    @Override
+    public void run() {
+        startTime = System.currentTimeMillis();
+        ThreadContext.setApplication(application);
+
+        try {
+            importFiles();
+            stage = Stage.DONE;
+        } catch (IOException | RuntimeException | SAXException e) {
+            logger.error("Context import failed with exception.", e);
+            exception = e;
+            stage = Stage.FAILED;
+        } finally {
+            endTime = System.currentTimeMillis();
+            ThreadContext.detach();
+            deleteFiles();
+        }
+    }
+
+    /**
+     * Discards a job which never ran, deleting its uploaded files.
+     */
+    void discard() {
+        deleteFiles();
+    }
+
+    /**
+     * Deletes the uploaded files of the job.
+     */
+    private void deleteFiles() {
+        for (Path file : files.keySet()) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Parses the uploaded files and persists their contexts in one new package per document.
+     * <p>
+     * A document is an uploaded XML file, a gzipped XML file or an XML entry of a zip archive. Archives are
+     * decompressed as streams. Documents are parsed in parallel, and parsed contexts are handed over to a writer
+     * thread through a bounded queue. The writer persists them in batches while parsing goes on. Memory use is
+     * therefore limited by the queue and the batch size, not by the size of the files.
+     * <p>
+     * Packages are created in order of document names before parsing, so that their order doesn’t depend on which
+     * parser is faster. They are marked as completed, and thereby listed, once all their contexts are written.
+     * Packages of documents without contexts are removed, and all packages are removed if the import fails.
+     * <p>
+     * In a dry run, no packages are created, and the writer compares batches of contexts to the existing contexts at
+     * their locations instead of persisting them.
+     *
+     * @throws IOException  if a file cannot be read
+     * @throws SAXException if a document is invalid
+     */
+    private void importFiles() throws IOException, SAXException {
+        List<Document> documents = new ArrayList<>();
+        List<ZipFile> zipFiles = new ArrayList<>();
+        ContextWriter writer = new ContextWriter();
+        Thread writerThread = new Thread(writer, Thread.currentThread().getName() + "-writer");
+
+        stage = Stage.PARSING;
+
+        try {
+            listDocuments(documents, zipFiles);
+            if (!dryRun) {
+                createPackages(documents);
+            }
+
+            writerThread.start();
+            parseDocuments(documents, writer);
+            stage = Stage.PERSISTING;
+            writer.put(END_OF_CONTEXTS);
+            awaitEnd(writerThread);
+            writer.checkException();
+            removePackages(documents, true);
+            completePackages(documents);
+        } catch (IOException | SAXException | RuntimeException e) {
+            cancelled = true;
+            writerThread.interrupt();
+            awaitEnd(writerThread);
+            removePackages(documents, false);
+            throw e;
+        } finally {
+            for (ZipFile zipFile : zipFiles) {
+                try {
+                    zipFile.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists the documents of the uploaded files, ordered by name.
+     *
+     * @param documents list receiving the documents
+     * @param zipFiles  list receiving opened zip files, which are to be closed by the caller
+     * @throws IOException if a zip file cannot be opened
+     */
+    private void listDocuments(List<Document> documents, List<ZipFile> zipFiles) throws IOException {
+        for (Map.Entry<Path, String> entry : files.entrySet()) {
+            Path file = entry.getKey();
+            String name = entry.getValue();
+            String lowerCaseName = name.toLowerCase(Locale.ROOT);
+
+            if (lowerCaseName.endsWith(".zip")) {
+                ZipFile zipFile = new ZipFile(file.toFile(), StandardCharsets.UTF_8);
+                zipFiles.add(zipFile);
+
+                for (ZipEntry zipEntry : Collections.list(zipFile.entries())) {
+                    String entryName = zipEntry.getName();
+
+                    if (!zipEntry.isDirectory() && entryName.toLowerCase(Locale.ROOT).endsWith(".xml") &&
+                            !entryName.startsWith("__MACOSX/")) {
+                        documents.add(new Document(name + "/" + entryName, () -> zipFile.getInputStream(zipEntry)));
+                    }
+                }
+            } else if (lowerCaseName.endsWith(".gz")) {
+                documents.add(new Document(name.substring(0, name.length() - 3),
+                        () -> new GZIPInputStream(Files.newInputStream(file), READ_BUFFER_SIZE)));
+            } else {
+                documents.add(new Document(name,
+                        () -> new BufferedInputStream(Files.newInputStream(file), READ_BUFFER_SIZE)));
+            }
+        }
+
+        documents.sort(Comparator.comparing(Document::getName));
+    }
+
+    /**
+     * Creates a package for each document, in order of documents.
+     *
+     * @param documents a list of documents
+     */
+    private void createPackages(List<Document> documents) {
+        InboundContextPackageDao contextPackageDao = new InboundContextPackageDao();
+
+        for (Document document : documents) {
+            InboundContextPackage contextPackage = new InboundContextPackage(user);
+            contextPackageDao.persist(contextPackage);
+            document.contextPackage = contextPackage;
+        }
+    }
+
+    /**
+     * Removes packages of documents.
+     *
+     * @param documents a list of documents
+     * @param emptyOnly true if only packages without contexts are removed
+     */
+    private void removePackages(List<Document> documents, Boolean emptyOnly) {
+        InboundContextPackageDao contextPackageDao = new InboundContextPackageDao();
+
+        for (Document document : documents) {
+            if (document.contextPackage != null && (!emptyOnly || document.contextCount == 0)) {
+                contextPackageDao.removeByPrimaryKey(document.contextPackage.getId());
+                document.contextPackage = null;
+            }
+        }
+    }
+
+    /**
+     * Marks the remaining packages of documents as completed.
+     *
+     * @param documents a list of documents
+     */
+    private void completePackages(List<Document> documents) {
+        List<InboundContextPackage> contextPackages = new ArrayList<>();
+
+        for (Document document : documents) {
+            if (document.contextPackage != null) {
+                contextPackages.add(document.contextPackage);
+            }
+        }
+
+        new InboundContextPackageDao().complete(contextPackages);
+    }
+
+    /**
+     * Parses documents in parallel on a fork-join pool and hands their contexts over to a writer.
+     * <p>
+     * If a document fails, the other parsers give up. The failure of the first failed document is thrown.
+     *
+     * @param documents a list of documents
+     * @param writer    a writer of parsed contexts
+     * @throws IOException  if a file cannot be read
+     * @throws SAXException if a document is invalid
+     */
+    private void parseDocuments(List<Document> documents, ContextWriter writer) throws IOException, SAXException {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(documents.size(), PARSER_COUNT)));
+
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+
+            for (Document document : documents) {
+                tasks.add(pool.submit(() -> parseDocument(document, writer)));
+            }
+
+            for (ForkJoinTask<?> task : tasks) {
+                task.quietlyJoin();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Document failedDocument = null;
+
+        // a cancelled document only failed because of another one
+        for (Document document : documents) {
+            if (document.exception != null && (failedDocument == null ||
+                    (failedDocument.exception instanceof CancellationException &&
+                            !(document.exception instanceof CancellationException)))) {
+                failedDocument = document;
+            }
+        }
+
+        if (failedDocument == null) {
+            return;
+        }
+
+        Exception documentException = failedDocument.exception;
+
+        if (documentException instanceof SAXParseException && documents.size() > 1) {
+            SAXParseException saxParseException = (SAXParseException) documentException;
+            throw new SAXParseException(failedDocument.getName() + ": " + saxParseException.getMessage(),
+                    saxParseException.getPublicId(), saxParseException.getSystemId(),
+                    saxParseException.getLineNumber(), saxParseException.getColumnNumber(), saxParseException);
+        } else if (documentException instanceof SAXException) {
+            throw (SAXException) documentException;
+        } else if (documentException instanceof IOException) {
+            throw (IOException) documentException;
+        } else {
+            throw (RuntimeException) documentException;
+        }
+    }
+
+    /**
+     * Parses a document, hashes its contexts and hands them over to a writer. Runs on a thread of a fork-join pool.
+     *
+     * @param document a document
+     * @param writer   a writer of parsed contexts
+     */
+    private void parseDocument(Document document, ContextWriter writer) {
+        ThreadContext.setApplication(application);
+
+        try (InputStream inputStream = document.open()) {
+            new ContextXmlReader(locale).readValidXml(inputStream, context -> {
+                if (cancelled) {
+                    throw new CancellationException("Context import was cancelled.");
+                }
+
+                // hashing here spreads it over the parser threads, so the writer's listener skips it
+                context.setHash(HashEntityListener.getHash(context));
+                context.setPackage(document.contextPackage);
+                document.contextCount++;
+                parsedCount.incrementAndGet();
+                writer.put(context);
+            });
+        } catch (IOException | SAXException | RuntimeException e) {
+            document.exception = e;
+            cancelled = true;
+        } finally {
+            ThreadContext.detach();
+        }
+    }
+
+    /**
+     * Waits until a thread has ended, even if the current thread is interrupted meanwhile.
+     *
+     * @param thread a thread
+     */
+    private static void awaitEnd(Thread thread) {
+        Boolean interrupted = false;
+
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A writer which takes parsed contexts from a queue and persists them in batches, or compares them to existing
+     * contexts in a dry run.
+     */
+    private class ContextWriter implements Runnable {
+        /**
+         * Parsed contexts waiting to be persisted.
+         */
+        private final BlockingQueue<InboundContext> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        /**
+         * Data Access Object for inbound contexts.
+         */
+        private final InboundContextDao inboundContextDao = new InboundContextDao();
+
+        /**
+         * Data Access Object for existing contexts.
+         */
+        private final ContextDao contextDao = new ContextDao();
+
+        /**
+         * The exception which stopped the writer, or null.
+         */
+        private volatile RuntimeException exception;
+
+        /**
+         * Hands a parsed context over to the writer. Blocks while the queue is full.
+         *
+         * @param context a parsed context, or END_OF_CONTEXTS
+         * @throws RuntimeException if the writer has failed, the import is cancelled or the current thread is
+         *                          interrupted
+         */
+        public void put(InboundContext context) throws RuntimeException {
+            try {
+                while (!queue.offer(context, 100L, TimeUnit.MILLISECONDS)) {
+                    checkException();
+
+                    if (cancelled && context != END_OF_CONTEXTS) {
+                        throw new CancellationException("Context import was cancelled.");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Context import was interrupted.", e);
+            }
+        }
+
+        /**
+         * Rethrows the exception which stopped the writer, if any.
+         *
+         * @throws RuntimeException if the writer has failed
+         */
+        public void checkException() throws RuntimeException {
+            if (exception != null) {
+                throw exception;
+            }
+        }
+
+        /**
+         * Writes contexts until the end of contexts is taken from the queue.
+         */
+        @Override
+        public void run() {
+            List<InboundContext> batch = new ArrayList<>(PERSIST_BATCH_SIZE);
+
+            try {
+                InboundContext context;
+
+                while ((context = queue.take()) != END_OF_CONTEXTS) {
+                    batch.add(context);
+
+                    if (batch.size() == PERSIST_BATCH_SIZE) {
+                        write(batch);
+                    }
+                }
+
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                exception = e;
+            }
+        }
+
+        /**
+         * Persists or compares a batch of contexts and clears it.
+         *
+         * @param batch a list of contexts
+         */
+        private void write(List<InboundContext> batch) {
+            if (dryRun) {
+                compare(batch);
+            } else {
+                inboundContextDao.batchPersist(batch);
+            }
+
+            persistedCount.addAndGet(batch.size());
+            batch.clear();
+        }
+
+        /**
+         * Compares a batch of contexts to the existing contexts at their locations. The hashes of existing contexts
+         * are looked up for all locations of the batch at once.
+         *
+         * @param batch a list of contexts
+         */
+        private void compare(List<InboundContext> batch) {
+            Set<String> locations = new HashSet<>();
+
+            for (InboundContext context : batch) {
+                locations.add(context.getLocation());
+            }
+
+            Map<String, Set<String>> hashes = contextDao.getHashesByLocation(locations);
+
+            for (InboundContext context : batch) {
+                Set<String> locationHashes = hashes.get(context.getLocation());
+                ContextImportDiff.Change change;
+
+                if (locationHashes == null) {
+                    change = ContextImportDiff.Change.NEW;
+                } else if (locationHashes.contains(context.getHash())) {
+                    change = ContextImportDiff.Change.UNCHANGED;
+                } else {
+                    change = ContextImportDiff.Change.CHANGED;
+                }
+
+                diff.add(context.getLocation(), change);
+            }
+        }
+    }
+
+    /**
+     * Opens the stream of a document.
+     */
+    @FunctionalInterface
+    private interface DocumentOpener {
+        /**
+         * Opens the stream of a document.
+         *
+         * @return An input stream.
+         * @throws IOException if the stream cannot be opened
+         */
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * An XML document of contexts within the uploaded files.
+     */
+    private static class Document {
+        /**
+         * Name of the document.
+         */
+        private final String name;
+
+        /**
+         * Opener of the document stream.
+         */
+        private final DocumentOpener opener;
+
+        /**
+         * Package receiving the contexts of the document.
+         */
+        private InboundContextPackage contextPackage;
+
+        /**
+         * Number of contexts parsed from the document.
+         */
+        private Integer contextCount = 0;
+
+        /**
+         * The exception which failed parsing of the document, or null.
+         */
+        private Exception exception;
+
+        /**
+         * Creates a document.
+         *
+         * @param name   name of the document
+         * @param opener opener of the document stream
+         */
+        public Document(String name, DocumentOpener opener) {
+            this.name = name;
+            this.opener = opener;
+        }
+
+        /**
+         * Returns the name of the document.
+         *
+         * @return A document name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Opens the stream of the document.
+         *
+         * @return An input stream.
+         * @throws IOException if the stream cannot be opened
+         */
+        public InputStream open() throws IOException {
+            return opener.open();
+        }
+    }
+
+    /**
+     * Returns the ID of the job.
+     *
+     * @return A job ID.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the names of the uploaded files.
+     *
+     * @return A comma-separated list of file names.
+     */
+    public String getFileName() {
+        return String.join(", ", files.values());
+    }
+
+    /**
+     * Checks if the job is a dry run.
+     *
+     * @return True if contexts are compared to existing contexts instead of being imported; false otherwise.
+     */
+    public Boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * Returns the comparison of contexts to existing contexts.
+     *
+     * @return A comparison, or null if the job is no dry run.
+     */
+    public ContextImportDiff getDiff() {
+        return diff;
+    }
+
+    /**
+     * Returns the user who submitted the job.
+     *
+     * @return A user.
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * Returns the creation time of the job.
+     *
+     * @return Creation time in milliseconds.
+     */
+    public Long getCreated() {
+        return created;
+    }
+
+    /**
+     * Returns the current stage of the job.
+     *
+     * @return A stage.
+     */
+    public Stage getStage() {
+        return stage;
+    }
+
+    /**
+     * Checks if the job has ended.
+     *
+     * @return True if the job is done or failed; false otherwise.
+     */
+    public Boolean isEnded() {
+        return stage == Stage.DONE || stage == Stage.FAILED;
+    }
+
+    /**
+     * Returns the number of contexts parsed.
+     *
+     * @return A number of contexts.
+     */
+    public Integer getParsedCount() {
+        return parsedCount.get();
+    }
+
+    /**
+     * Returns the number of contexts persisted, or compared in a dry run.
+     *
+     * @return A number of contexts.
+     */
+    public Integer getPersistedCount() {
+        return persistedCount.get();
+    }
+
+    /**
+     * Returns the end time of the job.
+     *
+     * @return End time in milliseconds, or null if the job has not ended.
+     */
+    public Long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Returns the throughput of the job in contexts per second. Contexts are counted when parsed and when persisted.
+     *
+     * @return A number of contexts per second.
+     */
+    public Long getThroughput() {
+        Long start = startTime;
+        Long end = endTime;
+
+        if (start == null) {
+            return 0L;
+        }
+
+        long elapsed = Math.max(1L, (end != null ? end : System.currentTimeMillis()) - start);
+        return (parsedCount.get() + persistedCount.get()) * 1000L / elapsed;
+    }
+
+    /**
+     * Returns the exception which failed the job.
+     *
+     * @return An exception, or null if the job did not fail.
+     */
+    public Exception getException() {
+        return exception;
+    }
+}
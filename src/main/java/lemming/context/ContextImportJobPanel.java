@@ -0,0 +1,316 @@
+package lemming.context;
+
+import lemming.auth.WebSession;
+import org.apache.wicket.AttributeModifier;
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.AjaxSelfUpdatingTimerBehavior;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.markup.repeater.Item;
+import org.apache.wicket.markup.repeater.RefreshingView;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.model.StringResourceModel;
+import org.apache.wicket.util.time.Duration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A panel which displays the progress of the current user’s context import jobs.
+ * <p>
+ * The panel polls while jobs are running and refreshes a given component whenever a job ends.
+ */
+class ContextImportJobPanel extends Panel {
+    /**
+     * Interval between two updates of the panel.
+     */
+    private static final Duration UPDATE_INTERVAL = Duration.seconds(1);
+
+    /**
+     * A container which is hidden when there are no jobs.
+     */
+    private final MarkupContainer jobContainer;
+
+    /**
+     * A component refreshed when a job ends.
+     */
+    private final Component endListener;
+
+    /**
+     * A behavior which updates the panel periodically.
+     */
+    private final AjaxSelfUpdatingTimerBehavior updateBehavior;
+
+    /**
+     * IDs of jobs which have ended.
+     */
+    private final Set<String> endedJobIds = new HashSet<>();
+
+    /**
+     * Creates a context import job panel.
+     *
+     * @param endListener component refreshed when a job ends
+     */
+    public ContextImportJobPanel(Component endListener) {
+        super("contextImportJobPanel");
+        this.endListener = endListener;
+        jobContainer = new WebMarkupContainer("jobContainer");
+        updateBehavior = new UpdateBehavior();
+
+        for (ContextImportJob job : getJobs()) {
+            if (job.isEnded()) {
+                endedJobIds.add(job.getId());
+            }
+        }
+
+        jobContainer.add(new ContextImportJobView());
+        add(jobContainer);
+        add(updateBehavior);
+        setOutputMarkupId(true);
+    }
+
+    /**
+     * Called when a context import job panel is configured.
+     */
+    @Override
+    protected void onConfigure() {
+        super.onConfigure();
+        List<ContextImportJob> jobs = getJobs();
+        jobContainer.setVisible(!jobs.isEmpty());
+
+        if (jobs.stream().allMatch(ContextImportJob::isEnded)) {
+            updateBehavior.stop(null);
+        }
+    }
+
+    /**
+     * Starts updating the panel, e.g. after a job was submitted.
+     *
+     * @param target target that produces an Ajax response
+     */
+    public void startUpdates(AjaxRequestTarget target) {
+        updateBehavior.restart(target);
+        target.add(this);
+    }
+
+    /**
+     * Returns the import jobs of the current user.
+     *
+     * @return A list of import jobs.
+     */
+    private List<ContextImportJob> getJobs() {
+        return ContextImportExecutor.getJobs(WebSession.get().getUser());
+    }
+
+    /**
+     * A behavior which updates the panel periodically.
+     */
+    private class UpdateBehavior extends AjaxSelfUpdatingTimerBehavior {
+        /**
+         * Creates an update behavior.
+         */
+        public UpdateBehavior() {
+            super(UPDATE_INTERVAL);
+        }
+
+        /**
+         * Refreshes the end listener if a job has ended since the last update.
+         *
+         * @param target target that produces an Ajax response
+         */
+        @Override
+        protected void onPostProcessTarget(AjaxRequestTarget target) {
+            Boolean jobEnded = false;
+
+            for (ContextImportJob job : getJobs()) {
+                if (job.isEnded() && endedJobIds.add(job.getId())) {
+                    jobEnded = true;
+                }
+            }
+
+            if (jobEnded) {
+                target.add(endListener);
+            }
+        }
+    }
+
+    /**
+     * A RefreshingView for context import jobs.
+     */
+    private class ContextImportJobView extends RefreshingView<ContextImportJob> {
+        /**
+         * Creates a context import job view.
+         */
+        public ContextImportJobView() {
+            super("jobView");
+        }
+
+        /**
+         * Returns an iterator over models for items that will be added to this view.
+         *
+         * @return An iterator over models.
+         */
+        @Override
+        protected Iterator<IModel<ContextImportJob>> getItemModels() {
+            List<IModel<ContextImportJob>> itemModels = new ArrayList<>();
+
+            for (ContextImportJob job : getJobs()) {
+                itemModels.add(new ContextImportJobModel(job));
+            }
+
+            return itemModels.iterator();
+        }
+
+        /**
+         * Populates the given item container.
+         *
+         * @param item item which is populated
+         */
+        @Override
+        protected void populateItem(Item<ContextImportJob> item) {
+            ContextImportJob job = item.getModelObject();
+            String parsedCount = String.valueOf(job.getParsedCount()),
+                    persistedCount = String.valueOf(job.getPersistedCount()),
+                    throughput = String.valueOf(job.getThroughput());
+            String statusLabel, cssClass;
+
+            switch (job.getStage()) {
+                case QUEUED:
+                    statusLabel = getString("ContextImportJobView.queued");
+                    cssClass = "list-group-item-info";
+                    break;
+                case PARSING:
+                    statusLabel = new StringResourceModel(job.isDryRun() ? "ContextImportJobView.dryRunParsing" :
+                            "ContextImportJobView.parsing", this)
+                            .setParameters(parsedCount, persistedCount, throughput).getString();
+                    cssClass = "list-group-item-info";
+                    break;
+                case PERSISTING:
+                    statusLabel = new StringResourceModel(job.isDryRun() ? "ContextImportJobView.dryRunComparing" :
+                            "ContextImportJobView.persisting", this)
+                            .setParameters(persistedCount, parsedCount, throughput).getString();
+                    cssClass = "list-group-item-info";
+                    break;
+                case DONE:
+                    if (job.isDryRun()) {
+                        ContextImportDiff diff = job.getDiff();
+                        statusLabel = new StringResourceModel("ContextImportJobView.dryRunResult", this)
+                                .setParameters(diff.getCount(ContextImportDiff.Change.UNCHANGED),
+                                        diff.getCount(ContextImportDiff.Change.CHANGED),
+                                        diff.getCount(ContextImportDiff.Change.NEW)).getString();
+                    } else if (job.getPersistedCount() > 0) {
+                        statusLabel = new StringResourceModel("ContextImportPage.successMessage", this)
+                                .setParameters(persistedCount).getString();
+                    } else {
+                        statusLabel = getString("ContextImportPage.noContextsMessage");
+                    }
+
+                    cssClass = "list-group-item-success";
+                    break;
+                default:
+                    statusLabel = ContextImportForm.getExceptionMessage(this, job.getException());
+                    cssClass = "list-group-item-danger";
+                    break;
+            }
+
+            item.add(AttributeModifier.append("class", cssClass));
+            item.add(new Label("fileLabel", job.getFileName()));
+            item.add(new Label("statusLabel", statusLabel).setEscapeModelStrings(false));
+            item.add(new DiffContainer(item.getModel())
+                    .setVisible(job.isDryRun() && job.getStage() == ContextImportJob.Stage.DONE));
+        }
+    }
+
+    /**
+     * A container which lists the comparison of a dry-run job per location.
+     */
+    private class DiffContainer extends WebMarkupContainer {
+        /**
+         * Creates a diff container.
+         *
+         * @param jobModel model of a dry-run job
+         */
+        public DiffContainer(IModel<ContextImportJob> jobModel) {
+            super("diffContainer");
+            add(new DiffView(new LoadableDetachableModel<List<ContextImportDiff.Entry>>() {
+                /**
+                 * Loads the entries of the job's comparison.
+                 *
+                 * @return A list of entries.
+                 */
+                @Override
+                protected List<ContextImportDiff.Entry> load() {
+                    ContextImportJob job = jobModel.getObject();
+                    return job != null && job.isDryRun() ? job.getDiff().getEntries() : new ArrayList<>();
+                }
+            }));
+        }
+    }
+
+    /**
+     * A ListView for the comparison of a dry-run job per location.
+     */
+    private class DiffView extends ListView<ContextImportDiff.Entry> {
+        /**
+         * Creates a diff view.
+         *
+         * @param model model of diff entries
+         */
+        public DiffView(IModel<List<ContextImportDiff.Entry>> model) {
+            super("diffView", model);
+        }
+
+        /**
+         * Populates the given item.
+         *
+         * @param item item which is populated
+         */
+        @Override
+        protected void populateItem(ListItem<ContextImportDiff.Entry> item) {
+            ContextImportDiff.Entry entry = item.getModelObject();
+            item.add(new Label("locationLabel", entry.getLocation()));
+            item.add(new Label("unchangedLabel", entry.getCount(ContextImportDiff.Change.UNCHANGED)));
+            item.add(new Label("changedLabel", entry.getCount(ContextImportDiff.Change.CHANGED)));
+            item.add(new Label("newLabel", entry.getCount(ContextImportDiff.Change.NEW)));
+        }
+    }
+
+    /**
+     * A model which keeps the ID of a job only.
+     */
+    private static class ContextImportJobModel extends LoadableDetachableModel<ContextImportJob> {
+        /**
+         * ID of the job.
+         */
+        private final String id;
+
+        /**
+         * Creates a context import job model.
+         *
+         * @param job an import job
+         */
+        public ContextImportJobModel(ContextImportJob job) {
+            super(job);
+            id = job.getId();
+        }
+
+        /**
+         * Loads the job.
+         *
+         * @return An import job, or null if the job is forgotten.
+         */
+        @Override
+        protected ContextImportJob load() {
+            return ContextImportExecutor.getJob(id);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package lemming.context;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Listener for receiving notification events about ServletContext lifecycle changes.
+ */
+@WebListener
+public class ContextImportListener implements ServletContextListener {
+    /**
+     * Name of the context parameter defining the maximum size of an upload in bytes.
+     */
+    private static final String UPLOAD_MAX_SIZE_PARAMETER = "lemming.uploadMaxSize";
+
+    /**
+     * Name of the context parameter defining the maximum number of unfinished uploads per user.
+     */
+    private static final String UPLOAD_MAX_COUNT_PARAMETER = "lemming.uploadMaxCount";
+
+    /**
+     * Starts the executor of context import jobs and the sweep for idle uploads.
+     *
+     * @param servletContextEvent event containing the ServletContext that is being initialized
+     */
+    public void contextInitialized(ServletContextEvent servletContextEvent) {
+        ServletContext servletContext = servletContextEvent.getServletContext();
+        String maxSizeValue = servletContext.getInitParameter(UPLOAD_MAX_SIZE_PARAMETER);
+        String maxCountValue = servletContext.getInitParameter(UPLOAD_MAX_COUNT_PARAMETER);
+        Long maxSize = ContextUpload.DEFAULT_MAX_SIZE;
+        Integer maxCount = ContextUpload.DEFAULT_MAX_COUNT;
+
+        if (maxSizeValue != null && !maxSizeValue.trim().isEmpty()) {
+            maxSize = Long.valueOf(maxSizeValue.trim());
+        }
+
+        if (maxCountValue != null && !maxCountValue.trim().isEmpty()) {
+            maxCount = Integer.valueOf(maxCountValue.trim());
+        }
+
+        ContextImportExecutor.start();
+        ContextUpload.start(maxSize, maxCount);
+    }
+
+    /**
+     * Shuts the executor of context import jobs and the sweep for idle uploads down and discards unfinished uploads.
+     *
+     * @param servletContextEvent event containing the ServletContext that is being destroyed
+     */
+    public void contextDestroyed(ServletContextEvent servletContextEvent) {
+        ContextImportExecutor.shutdown();
+        ContextUpload.shutdown();
+        ContextUpload.discardAll();
+    }
+}
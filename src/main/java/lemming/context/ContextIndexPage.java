@@ -32,21 +32,29 @@ public class ContextIndexPage extends IndexBasePage {
      */
     private static final Boolean FILTER_FORM_ENABLED = false;
 
+    /**
+     * Number of contexts above which an outdated count may be displayed as approximate.
+     */
+    private static final Long APPROXIMATE_SIZE_THRESHOLD = 10000L;
+
     /**
      * Creates a context index page.
      */
     public ContextIndexPage() {
-        GenericDataProvider<Context> dataProvider = new GenericDataProvider<>(Context.class,
-                new SortParam<>("keyword", true));
-        FilterForm<Context> filterForm = new FilterForm<>("filterForm", dataProvider);
+        GenericDataProvider<ContextRow> dataProvider = new GenericDataProvider<>(Context.class, ContextRow.class,
+                ContextRow.PROPERTIES, new SortParam<>("keyword", true));
+        FilterForm<ContextRow> filterForm = new FilterForm<>("filterForm", dataProvider);
         TextField<String> filterTextField = new TextField<>("filterTextField", Model.of(""));
         WebMarkupContainer container = new WebMarkupContainer("container");
         Fragment fragment;
-        GenericDataTable<Context> dataTable;
+        GenericDataTable<ContextRow> dataTable;
 
         // check if the session is expired
         WebSession.get().checkSessionExpired();
 
+        dataProvider.setKeysetPagination(true);
+        dataProvider.setApproximateSizeThreshold(APPROXIMATE_SIZE_THRESHOLD);
+
         if (FILTER_FORM_ENABLED) {
             fragment = new Fragment("fragment", "withFilterForm", this);
             dataTable = new GenericDataTable<>("contextDataTable", getColumns(), dataProvider, filterForm);
@@ -87,8 +95,8 @@ public class ContextIndexPage extends IndexBasePage {
      *
      * @return A list of columns.
      */
-    private List<IColumn<Context, String>> getColumns() {
-        List<IColumn<Context, String>> columns = new ArrayList<>();
+    private List<IColumn<ContextRow, String>> getColumns() {
+        List<IColumn<ContextRow, String>> columns = new ArrayList<>();
 
         columns.add(new NumberTextFilterColumn(Model.of(getString("Context.number")),
                 "number", "number"));
@@ -96,7 +104,7 @@ public class ContextIndexPage extends IndexBasePage {
                 "lemmaString", "lemmaString"));
         columns.add(new TextFilterColumn<>(Model.of(getString("Context.pos")),
                 "posString", "posString"));
-        columns.add(new TextFilterColumn<Context, Context, String>(Model.of(getString("Context.location")),
+        columns.add(new TextFilterColumn<ContextRow, ContextRow, String>(Model.of(getString("Context.location")),
                 "location", "location"));
         columns.add(new PrecedingContextTextFilterColumn(Model.of(getString("Context.preceding")),
                 "preceding", "preceding"));
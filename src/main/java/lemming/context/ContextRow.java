@@ -0,0 +1,273 @@
+package lemming.context;
+
+import java.io.Serializable;
+
+/**
+ * A row of a context table holding displayed values only.
+ * <p>
+ * Rows are built from selected column values instead of hydrating contexts. They are not managed by a persistence
+ * context, and changing them changes nothing in the database. Contexts are loaded by ID when a row is edited.
+ */
+public class ContextRow implements Serializable {
+    /**
+     * Determines if a deserialized file is compatible with this class.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Context properties selected for a row, in order of constructor parameters. The collection-valued property
+     * comments is selected as its size.
+     */
+    public static final String[] PROPERTIES = {"id", "version", "number", "lemmaString", "posString", "location",
+            "initPunctuation", "preceding", "keyword", "endPunctuation", "following", "interesting", "comments"};
+
+    /**
+     * ID of the context.
+     */
+    private Integer id;
+
+    /**
+     * Version of the context.
+     */
+    private Long version;
+
+    /**
+     * Number of the context.
+     */
+    private Integer number;
+
+    /**
+     * Lemma string of the context.
+     */
+    private String lemmaString;
+
+    /**
+     * Part of speech string of the context.
+     */
+    private String posString;
+
+    /**
+     * Location of the context.
+     */
+    private String location;
+
+    /**
+     * Punctuation preceding the keyword.
+     */
+    private String initPunctuation;
+
+    /**
+     * Preceding text of the context.
+     */
+    private String preceding;
+
+    /**
+     * Keyword of the context.
+     */
+    private String keyword;
+
+    /**
+     * Punctuation following the keyword.
+     */
+    private String endPunctuation;
+
+    /**
+     * Following text of the context.
+     */
+    private String following;
+
+    /**
+     * Interesting state of the context.
+     */
+    private Boolean interesting;
+
+    /**
+     * Number of comments of the context.
+     */
+    private Integer commentCount;
+
+    /**
+     * Selected state of the row.
+     */
+    private Boolean selected;
+
+    /**
+     * Creates an empty row, e.g. as filter state.
+     */
+    public ContextRow() {
+    }
+
+    /**
+     * Creates a row.
+     *
+     * @param id              ID of the context
+     * @param version         version of the context
+     * @param number          number of the context
+     * @param lemmaString     lemma string of the context
+     * @param posString       part of speech string of the context
+     * @param location        location of the context
+     * @param initPunctuation punctuation preceding the keyword
+     * @param preceding       preceding text of the context
+     * @param keyword         keyword of the context
+     * @param endPunctuation  punctuation following the keyword
+     * @param following       following text of the context
+     * @param interesting     interesting state of the context
+     * @param commentCount    number of comments of the context
+     */
+    public ContextRow(Integer id, Long version, Integer number, String lemmaString, String posString,
+                      String location, String initPunctuation, String preceding, String keyword,
+                      String endPunctuation, String following, Boolean interesting, Integer commentCount) {
+        this.id = id;
+        this.version = version;
+        this.number = number;
+        this.lemmaString = lemmaString;
+        this.posString = posString;
+        this.location = location;
+        this.initPunctuation = initPunctuation;
+        this.preceding = preceding;
+        this.keyword = keyword;
+        this.endPunctuation = endPunctuation;
+        this.following = following;
+        this.interesting = interesting;
+        this.commentCount = commentCount;
+    }
+
+    /**
+     * Returns the ID of the context.
+     *
+     * @return ID of the context.
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Returns the version of the context.
+     *
+     * @return Version of the context.
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of the context.
+     *
+     * @return Number of the context.
+     */
+    public Integer getNumber() {
+        return number;
+    }
+
+    /**
+     * Returns the lemma string of the context.
+     *
+     * @return Lemma string of the context.
+     */
+    public String getLemmaString() {
+        return lemmaString;
+    }
+
+    /**
+     * Returns the part of speech string of the context.
+     *
+     * @return Part of speech string of the context.
+     */
+    public String getPosString() {
+        return posString;
+    }
+
+    /**
+     * Returns the location of the context.
+     *
+     * @return Location of the context.
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Returns the punctuation preceding the keyword.
+     *
+     * @return Punctuation text.
+     */
+    public String getInitPunctuation() {
+        return initPunctuation;
+    }
+
+    /**
+     * Returns the preceding text of the context.
+     *
+     * @return Preceding text of the context.
+     */
+    public String getPreceding() {
+        return preceding;
+    }
+
+    /**
+     * Returns the keyword of the context.
+     *
+     * @return Keyword of the context.
+     */
+    public String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * Returns the punctuation following the keyword.
+     *
+     * @return Punctuation text.
+     */
+    public String getEndPunctuation() {
+        return endPunctuation;
+    }
+
+    /**
+     * Returns the following text of the context.
+     *
+     * @return Following text of the context.
+     */
+    public String getFollowing() {
+        return following;
+    }
+
+    /**
+     * Returns the interesting state of the context.
+     *
+     * @return Interesting state of the context.
+     */
+    public Boolean getInteresting() {
+        return interesting;
+    }
+
+    /**
+     * Returns the number of comments of the context.
+     *
+     * @return Number of comments.
+     */
+    public Integer getCommentCount() {
+        return commentCount;
+    }
+
+    /**
+     * Returns the selected state of the row.
+     *
+     * @return Selected state of the row.
+     */
+    public Boolean getSelected() {
+        if (selected != null) {
+            return selected;
+        }
+
+        return false;
+    }
+
+    /**
+     * Sets the selected state of the row.
+     *
+     * @param selected selected state of the row
+     */
+    public void setSelected(Boolean selected) {
+        this.selected = selected;
+    }
+}
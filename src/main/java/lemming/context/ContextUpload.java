@@ -0,0 +1,345 @@
+package lemming.context;
+
+import lemming.user.User;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An upload of a file of contexts which is received in chunks.
+ * <p>
+ * Chunks are appended to a temporary file as they arrive, so that an upload of any size is never held in memory. An
+ * upload which was interrupted is resumed by asking for its offset and sending the remaining chunks. The size of an
+ * upload and the number of uploads per user are limited, and idle uploads are discarded on a schedule.
+ */
+public class ContextUpload {
+    /**
+     * Time in milliseconds an idle upload is kept before it is discarded.
+     */
+    private static final Long IDLE_TIME = TimeUnit.HOURS.toMillis(24);
+
+    /**
+     * Time in milliseconds between two sweeps for idle uploads.
+     */
+    private static final Long SWEEP_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Maximum size of an upload in bytes used if none is configured.
+     */
+    public static final Long DEFAULT_MAX_SIZE = 1024L * 1024L * 1024L;
+
+    /**
+     * Maximum number of unfinished uploads per user used if none is configured.
+     */
+    public static final Integer DEFAULT_MAX_COUNT = 5;
+
+    /**
+     * Maximum number of bytes transferred from a request to the file at once.
+     */
+    private static final Long TRANSFER_SIZE = 1024L * 1024L;
+
+    /**
+     * Uploads by ID.
+     */
+    private static final Map<String, ContextUpload> uploads = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum size of an upload in bytes.
+     */
+    private static volatile Long maxSize = DEFAULT_MAX_SIZE;
+
+    /**
+     * Maximum number of unfinished uploads per user.
+     */
+    private static volatile Integer maxCount = DEFAULT_MAX_COUNT;
+
+    /**
+     * Executor sweeping for idle uploads.
+     */
+    private static ScheduledExecutorService sweeper;
+
+    /**
+     * ID of the upload.
+     */
+    private final String id = UUID.randomUUID().toString();
+
+    /**
+     * ID of the user who uploads the file.
+     */
+    private final Integer userId;
+
+    /**
+     * Name of the uploaded file.
+     */
+    private final String fileName;
+
+    /**
+     * Expected size of the file in bytes.
+     */
+    private final Long size;
+
+    /**
+     * The temporary file receiving the chunks.
+     */
+    private final Path file;
+
+    /**
+     * Number of bytes received. Readable while a chunk is written, so that a client can resume.
+     */
+    private volatile Long offset = 0L;
+
+    /**
+     * Time of the last received chunk in milliseconds.
+     */
+    private volatile Long lastModified = System.currentTimeMillis();
+
+    /**
+     * Creates an upload.
+     *
+     * @param user     user who uploads the file
+     * @param fileName name of the uploaded file
+     * @param size     expected size of the file in bytes
+     * @throws IOException if the temporary file cannot be created
+     */
+    private ContextUpload(User user, String fileName, Long size) throws IOException {
+        this.userId = user.getId();
+        this.fileName = fileName;
+        this.size = size;
+        this.file = Files.createTempFile("lemming-upload-", ".part");
+    }
+
+    /**
+     * Limits uploads and starts sweeping for idle uploads.
+     *
+     * @param maxSize  maximum size of an upload in bytes
+     * @param maxCount maximum number of unfinished uploads per user
+     */
+    static synchronized void start(Long maxSize, Integer maxCount) {
+        ContextUpload.maxSize = maxSize;
+        ContextUpload.maxCount = maxCount;
+
+        if (sweeper == null) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "context-upload-sweep");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(ContextUpload::discardIdle, SWEEP_INTERVAL, SWEEP_INTERVAL,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops sweeping for idle uploads.
+     */
+    static synchronized void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    /**
+     * Returns the maximum size of an upload.
+     *
+     * @return A number of bytes.
+     */
+    public static Long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Starts an upload. Idle uploads are discarded.
+     *
+     * @param user     user who uploads the file
+     * @param fileName name of the uploaded file
+     * @param size     expected size of the file in bytes
+     * @return A new upload.
+     * @throws IllegalArgumentException if the size exceeds the maximum size of an upload
+     * @throws IllegalStateException    if the user has reached the maximum number of unfinished uploads
+     * @throws IOException              if the temporary file cannot be created
+     */
+    public static synchronized ContextUpload create(User user, String fileName, Long size) throws IOException {
+        if (size > maxSize) {
+            throw new IllegalArgumentException("Upload size " + size + " exceeds maximum size " + maxSize + ".");
+        }
+
+        discardIdle();
+
+        Long count = uploads.values().stream().filter(upload -> upload.userId.equals(user.getId())).count();
+
+        if (count >= maxCount) {
+            throw new IllegalStateException("User " + user.getId() + " has " + count + " unfinished uploads.");
+        }
+
+        ContextUpload upload = new ContextUpload(user, fileName, size);
+        uploads.put(upload.getId(), upload);
+        return upload;
+    }
+
+    /**
+     * Returns an upload of a user.
+     *
+     * @param id   ID of an upload
+     * @param user user who uploads the file
+     * @return An upload, or null if the user has no upload with this ID.
+     */
+    public static ContextUpload get(String id, User user) {
+        ContextUpload upload = id != null ? uploads.get(id) : null;
+
+        if (upload == null || user == null || !upload.userId.equals(user.getId())) {
+            return null;
+        }
+
+        return upload;
+    }
+
+    /**
+     * Discards uploads which received no chunk for a while.
+     */
+    private static void discardIdle() {
+        Long now = System.currentTimeMillis();
+
+        for (ContextUpload upload : uploads.values()) {
+            if (now - upload.lastModified > IDLE_TIME) {
+                upload.discard();
+            }
+        }
+    }
+
+    /**
+     * Discards all uploads and deletes their files.
+     */
+    static void discardAll() {
+        for (ContextUpload upload : uploads.values()) {
+            upload.discard();
+        }
+    }
+
+    /**
+     * Appends a chunk to the file. The chunk is transferred from the request stream to the file channel without
+     * collecting it in memory.
+     *
+     * @param chunkOffset offset of the chunk in the file
+     * @param inputStream stream of the chunk
+     * @return The number of bytes received after the chunk.
+     * @throws IllegalStateException if the chunk does not start where the received bytes end
+     * @throws IOException           if the chunk cannot be written
+     */
+    public synchronized Long append(Long chunkOffset, InputStream inputStream) throws IOException {
+        if (!offset.equals(chunkOffset)) {
+            throw new IllegalStateException("Chunk offset " + chunkOffset + " does not match upload offset " +
+                    offset + ".");
+        }
+
+        ReadableByteChannel source = Channels.newChannel(inputStream);
+
+        try (FileChannel target = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            Long position = offset;
+
+            // bytes written by a failed transfer are unaccounted for, so the file is cut back to the last position
+            try {
+                while (position < size) {
+                    Long count = target.transferFrom(source, position, Math.min(TRANSFER_SIZE, size - position));
+
+                    if (count == 0) {
+                        break;
+                    }
+
+                    position += count;
+                }
+            } finally {
+                offset = position;
+                target.truncate(offset);
+                lastModified = System.currentTimeMillis();
+            }
+        }
+
+        return offset;
+    }
+
+    /**
+     * Hands the file of a complete upload over to the caller, who becomes responsible for deleting it.
+     *
+     * @return The received file.
+     * @throws IllegalStateException if the upload is incomplete
+     */
+    public synchronized Path complete() {
+        if (!isComplete()) {
+            throw new IllegalStateException("Upload " + id + " is incomplete.");
+        }
+
+        uploads.remove(id);
+        return file;
+    }
+
+    /**
+     * Discards the upload and deletes its file.
+     */
+    public synchronized void discard() {
+        uploads.remove(id);
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the ID of the upload.
+     *
+     * @return An upload ID.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the name of the uploaded file.
+     *
+     * @return A file name.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns the expected size of the file.
+     *
+     * @return A number of bytes.
+     */
+    public Long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes received.
+     *
+     * @return A number of bytes.
+     */
+    public Long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Checks if all bytes of the file were received.
+     *
+     * @return True if the upload is complete; false otherwise.
+     */
+    public Boolean isComplete() {
+        return offset.equals(size);
+    }
+}
@@ -0,0 +1,170 @@
+package lemming.context;
+
+import lemming.user.User;
+
+import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A resource receiving files of contexts in chunks.
+ * <p>
+ * A client starts an upload with the name and size of a file, then sends chunks in order with their offsets. After a
+ * dropped connection, the client asks for the offset of the upload and sends the remaining chunks. A complete upload
+ * is imported by the context import page.
+ */
+@Path("uploads")
+@RolesAllowed({"STUDENT", "USER", "ADMIN"})
+public class ContextUploadResource {
+    /**
+     * Status of a request starting more uploads than allowed.
+     */
+    private static final Integer TOO_MANY_REQUESTS = 429;
+
+    /**
+     * The security context of the request.
+     */
+    @javax.ws.rs.core.Context
+    SecurityContext securityContext;
+
+    /**
+     * Starts an upload.
+     *
+     * @param fileName name of the file
+     * @param size     size of the file in bytes
+     * @return A JSON response describing the upload, with status 413 if the file is too large or status 429 if the
+     * user has too many unfinished uploads.
+     * @throws IOException if the temporary file cannot be created
+     */
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response create(@QueryParam("fileName") String fileName, @QueryParam("size") Long size)
+            throws IOException {
+        if (fileName == null || size == null || size < 0) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        if (size > ContextUpload.getMaxSize()) {
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).build();
+        }
+
+        ContextUpload upload;
+
+        try {
+            upload = ContextUpload.create(getUser(), fileName, size);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).build();
+        } catch (IllegalStateException e) {
+            return Response.status(TOO_MANY_REQUESTS).build();
+        }
+
+        return Response.status(Response.Status.CREATED).entity(describe(upload)).build();
+    }
+
+    /**
+     * Returns the state of an upload, e.g. to resume it.
+     *
+     * @param id ID of the upload
+     * @return A JSON response describing the upload.
+     */
+    @GET
+    @Path("{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response get(@PathParam("id") String id) {
+        ContextUpload upload = ContextUpload.get(id, getUser());
+
+        if (upload == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        return Response.ok(describe(upload)).build();
+    }
+
+    /**
+     * Appends a chunk to an upload.
+     *
+     * @param id          ID of the upload
+     * @param offset      offset of the chunk in the file
+     * @param inputStream stream of the chunk
+     * @return A JSON response describing the upload, with status 409 if the offset does not match.
+     * @throws IOException if the chunk cannot be written
+     */
+    @PUT
+    @Path("{id}")
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response put(@PathParam("id") String id, @QueryParam("offset") Long offset, InputStream inputStream)
+            throws IOException {
+        ContextUpload upload = ContextUpload.get(id, getUser());
+
+        if (upload == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        try {
+            upload.append(offset, inputStream);
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT).entity(describe(upload)).build();
+        }
+
+        return Response.ok(describe(upload)).build();
+    }
+
+    /**
+     * Discards an upload.
+     *
+     * @param id ID of the upload
+     * @return An empty response.
+     */
+    @DELETE
+    @Path("{id}")
+    public Response delete(@PathParam("id") String id) {
+        ContextUpload upload = ContextUpload.get(id, getUser());
+
+        if (upload == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        upload.discard();
+        return Response.noContent().build();
+    }
+
+    /**
+     * Returns the user of the request.
+     *
+     * @return A user.
+     */
+    private User getUser() {
+        return (User) securityContext.getUserPrincipal();
+    }
+
+    /**
+     * Describes an upload.
+     *
+     * @param upload an upload
+     * @return A map of upload properties, serialized as JSON.
+     */
+    private Map<String, Object> describe(ContextUpload upload) {
+        Map<String, Object> result = new LinkedHashMap<>();
+
+        result.put("id", upload.getId());
+        result.put("fileName", upload.getFileName());
+        result.put("size", upload.getSize());
+        result.put("offset", upload.getOffset());
+        return result;
+    }
+}
@@ -2,30 +2,125 @@ package lemming.context;
 
 import lemming.WebApplication;
 import lemming.context.inbound.InboundContext;
+import org.apache.wicket.Application;
 import org.apache.wicket.model.StringResourceModel;
-import org.xml.sax.ErrorHandler;
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
+import org.xml.sax.*;
+import org.xml.sax.helpers.DefaultHandler;
 
 import javax.servlet.ServletContext;
 import javax.xml.XMLConstants;
-import javax.xml.namespace.QName;
-import javax.xml.stream.*;
-import javax.xml.stream.events.*;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
-import javax.xml.validation.Validator;
+import javax.xml.validation.ValidatorHandler;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Helper class to validate and read context XML data.
  */
 public class ContextXmlReader implements ErrorHandler {
+    /**
+     * The compiled context schema, shared by all readers.
+     */
+    private static volatile Schema schema;
+
+    /**
+     * The schema validating read XML, or null if the compiled context schema is used.
+     */
+    private final Schema validationSchema;
+
+    /**
+     * Locale of error messages, or null if the locale of the current session is used.
+     */
+    private final Locale locale;
+
+    /**
+     * Elements of context XML.
+     */
+    private enum Element {
+        ITEM, PUNCTUATION, STRING, OTHER;
+
+        /**
+         * Returns the element of a local name.
+         *
+         * @param localName local name of an element
+         * @return An element.
+         */
+        private static Element of(String localName) {
+            switch (localName) {
+                case "item":
+                    return ITEM;
+                case "punctuation":
+                    return PUNCTUATION;
+                case "string":
+                    return STRING;
+                default:
+                    return OTHER;
+            }
+        }
+    }
+
+    /**
+     * Types of punctuation elements.
+     */
+    private enum PunctuationType {
+        NONE, INIT, END;
+
+        /**
+         * Returns the punctuation type of a type attribute value.
+         *
+         * @param value value of a type attribute
+         * @return A punctuation type.
+         */
+        private static PunctuationType of(String value) {
+            if ("init".equals(value)) {
+                return INIT;
+            } else if ("end".equals(value)) {
+                return END;
+            }
+
+            return NONE;
+        }
+    }
+
+    /**
+     * Creates a reader validating against the context schema, with error messages in the locale of the current
+     * session.
+     */
+    public ContextXmlReader() {
+        this(null, null);
+    }
+
+    /**
+     * Creates a reader validating against the context schema, with error messages in a given locale. Threads without
+     * a session use this constructor.
+     *
+     * @param locale locale of error messages
+     */
+    public ContextXmlReader(Locale locale) {
+        this(null, locale);
+    }
+
+    /**
+     * Creates a reader validating against a given schema.
+     *
+     * @param validationSchema a schema, or null for the context schema
+     * @param locale           locale of error messages, or null for the locale of the current session
+     */
+    ContextXmlReader(Schema validationSchema, Locale locale) {
+        this.validationSchema = validationSchema;
+        this.locale = locale;
+    }
+
     /**
      * Receive notification of a recoverable error.
      *
@@ -66,205 +161,291 @@ public class ContextXmlReader implements ErrorHandler {
     }
 
     /**
-     * Creates a context from obtained from information of the start element interface.
+     * Sets a context property from an attribute of an item element.
      *
-     * @param element start element of a tag
-     * @return A context object.
+     * @param context a context object
+     * @param name    local name of the attribute
+     * @param value   value of the attribute
+     * @param strings map of repeated values, used to share equal strings between contexts
      */
-    private InboundContext createContext(StartElement element) {
-        InboundContext context = new InboundContext();
+    private void setAttribute(InboundContext context, String name, String value, Map<String, String> strings) {
+        switch (name) {
+            case "following":
+                context.setFollowing(value);
+                break;
+            case "location":
+                context.setLocation(strings.computeIfAbsent(value, key -> key));
+                break;
+            case "n":
+                context.setNumber(Integer.valueOf(value));
+                break;
+            case "preceding":
+                context.setPreceding(value);
+                break;
+            case "type":
+                if (value.equals("rubric_item")) {
+                    context.setType(ContextType.Type.RUBRIC);
+                } else if (value.equals("seg_item")) {
+                    context.setType(ContextType.Type.SEGMENT);
+                } else if (value.equals("verse_item")) {
+                    context.setType(ContextType.Type.VERSE);
+                }
 
-        for (Iterator<?> attributes = element.getAttributes(); attributes.hasNext(); ) {
-            Attribute attribute = (Attribute) attributes.next();
-            String value = (attribute.getValue() != null) ? attribute.getValue() : "";
+                break;
+            case "sp":
+                if (value.equals("direct")) {
+                    context.setSpeech(SpeechType.Type.DIRECT);
+                } else if (value.equals("indirect")) {
+                    context.setSpeech(SpeechType.Type.INDIRECT);
+                } else if (value.equals("")) {
+                    context.setSpeech(SpeechType.Type.NONE);
+                }
 
-            switch (attribute.getName().getLocalPart()) {
-                case "following":
-                    context.setFollowing(value);
-                    break;
-                case "location":
-                    context.setLocation(value);
-                    break;
-                case "n":
-                    context.setNumber(Integer.valueOf(value));
-                    break;
-                case "preceding":
-                    context.setPreceding(value);
-                    break;
-                case "type":
-                    if (value.equals("rubric_item")) {
-                        context.setType(ContextType.Type.RUBRIC);
-                    } else if (value.equals("seg_item")) {
-                        context.setType(ContextType.Type.SEGMENT);
-                    } else if (value.equals("verse_item")) {
-                        context.setType(ContextType.Type.VERSE);
-                    }
+                break;
+        }
+    }
 
-                    break;
-                case "sp":
-                    if (value.equals("direct")) {
-                        context.setSpeech(SpeechType.Type.DIRECT);
-                    } else if (value.equals("indirect")) {
-                        context.setSpeech(SpeechType.Type.INDIRECT);
-                    } else if (value.equals("")) {
-                        context.setSpeech(SpeechType.Type.NONE);
-                    }
+    /**
+     * Creates a context from attributes of a SAX start element.
+     *
+     * @param attributes attributes of an item element
+     * @param strings    map of repeated values
+     * @return A context object.
+     */
+    private InboundContext createContext(Attributes attributes, Map<String, String> strings) {
+        InboundContext context = new InboundContext();
 
-                    break;
-            }
+        for (int i = 0; i < attributes.getLength(); i++) {
+            setAttribute(context, attributes.getLocalName(i), attributes.getValue(i), strings);
         }
 
         return context;
     }
 
     /**
-     * Validates the order of punctuation tags in a context item.
+     * Returns an error message if punctuation tags in a context item are not correctly ordered.
      *
      * @param context                current context object
-     * @param location               location of the event
      * @param lastPunctuationType    punctuation type last seen
      * @param currentPunctuationType current punctuation type
+     * @return A localized message, or null if the order is correct.
      */
-    private void validatePunctuation(InboundContext context, Location location, String lastPunctuationType,
-                                     String currentPunctuationType) throws XmlStreamException {
-        String message = null;
-
-        if (lastPunctuationType.equals(currentPunctuationType)) {
-            message = new StringResourceModel("ContextXmlReader.duplicate-punctuation-type").getString();
-        } else if (lastPunctuationType.equals("end") && currentPunctuationType.equals("init")) {
-            message = new StringResourceModel("ContextXmlReader.punctuation-type-incorrect-order").getString();
-        } else if (context.getKeyword() != null && currentPunctuationType.equals("init")) {
-            message = new StringResourceModel("ContextXmlReader.init-punctuation-after-keyword").getString();
-        } else if (context.getKeyword() == null && currentPunctuationType.equals("end")) {
-            message = new StringResourceModel("ContextXmlReader.end-punctuation-before-keyword").getString();
+    private String getPunctuationError(InboundContext context, PunctuationType lastPunctuationType,
+                                       PunctuationType currentPunctuationType) {
+        if (lastPunctuationType == currentPunctuationType) {
+            return getString("ContextXmlReader.duplicate-punctuation-type");
+        } else if (lastPunctuationType == PunctuationType.END && currentPunctuationType == PunctuationType.INIT) {
+            return getString("ContextXmlReader.punctuation-type-incorrect-order");
+        } else if (context.getKeyword() != null && currentPunctuationType == PunctuationType.INIT) {
+            return getString("ContextXmlReader.init-punctuation-after-keyword");
+        } else if (context.getKeyword() == null && currentPunctuationType == PunctuationType.END) {
+            return getString("ContextXmlReader.end-punctuation-before-keyword");
         }
 
-        if (message != null) {
-            throw new XmlStreamException(message, location);
+        return null;
+    }
+
+    /**
+     * Returns a localized message in the locale of the reader.
+     *
+     * @param key resource key of the message
+     * @return A localized message.
+     */
+    private String getString(String key) {
+        if (locale == null) {
+            return new StringResourceModel(key).getString();
         }
+
+        return Application.get().getResourceSettings().getLocalizer().getString(key, null, null, locale, null,
+                (String) null);
     }
 
     /**
-     * Reads context XML from an input stream.
+     * Reads and validates context XML from an input stream in one pass.
+     * <p>
+     * The stream is validated against the context schema while contexts are built from the same SAX events, so that
+     * it is read and parsed only once. Errors are reported as SAX parse exceptions with line and column.
      *
      * @param inputStream input stream
-     * @return A list of contexts or null.
+     * @return A list of contexts.
+     * @throws IOException  if the stream cannot be read
+     * @throws SAXException if the XML data is invalid
      */
-    public List<InboundContext> readXml(InputStream inputStream) throws XMLStreamException {
-        XMLInputFactory factory = XMLInputFactory.newInstance();
+    public List<InboundContext> readValidXml(InputStream inputStream) throws IOException, SAXException {
         List<InboundContext> contexts = new ArrayList<>();
-        XMLEventReader reader = factory.createXMLEventReader(inputStream);
-        String currentElementName = "";
-        String punctuationType = "";
-        InboundContext context = null;
-
-        while (reader.hasNext()) {
-            XMLEvent event = reader.nextEvent();
-
-            switch (event.getEventType()) {
-                case XMLStreamConstants.START_ELEMENT:
-                    StartElement startElement = event.asStartElement();
-
-                    if (startElement.getName().getLocalPart().equals("item")) {
-                        currentElementName = "item";
-                        context = createContext(startElement);
-                    } else if (startElement.getName().getLocalPart().equals("punctuation")) {
-                        currentElementName = "punctuation";
-                        String currentPunctuationType = startElement.getAttributeByName(new QName("type")).getValue();
-                        // validates the order of punctuation tags in a context item
-                        validatePunctuation(context, event.getLocation(), punctuationType, currentPunctuationType);
-                        punctuationType = currentPunctuationType;
-                    } else if (startElement.getName().getLocalPart().equals("string")) {
-                        currentElementName = "string";
-                    }
-
-                    break;
-                case XMLStreamConstants.END_ELEMENT:
-                    EndElement endElement = event.asEndElement();
-                    currentElementName = "";
-
-                    if (endElement.getName().getLocalPart().equals("item")) {
-                        contexts.add(context);
-                        punctuationType = "";
-                    }
-
-                    break;
-                case XMLStreamConstants.END_DOCUMENT:
-                    reader.close();
-                    break;
-                case XMLStreamConstants.CHARACTERS:
-                    Characters characters = event.asCharacters();
-                    assert context != null;
-
-                    if (currentElementName.equals("punctuation")) {
-                        if (punctuationType.equals("init")) {
-                            context.setInitPunctuation(characters.getData());
-                        } else if (punctuationType.equals("end")) {
-                            context.setEndPunctuation(characters.getData());
-                        }
-                    } else if (currentElementName.equals("string")) {
-                        context.setKeyword(characters.getData());
-                    }
-
-                    break;
-            }
-        }
-
+        readValidXml(inputStream, contexts::add);
         return contexts;
     }
 
     /**
-     * Returns an input stream of the context schema.
+     * Reads and validates context XML from an input stream in one pass, passing each context to a consumer as soon
+     * as its item is read.
+     * <p>
+     * Contexts passed before a validation error belong to a valid prefix of the stream only.
      *
-     * @return An input stream.
+     * @param inputStream input stream
+     * @param consumer    consumer of contexts
+     * @throws IOException  if the stream cannot be read
+     * @throws SAXException if the XML data is invalid
      */
-    private InputStream getSchema() {
-        ServletContext context = WebApplication.get().getServletContext();
-        return context.getResourceAsStream("/WEB-INF/schema/context.xsd");
+    public void readValidXml(InputStream inputStream, Consumer<InboundContext> consumer)
+            throws IOException, SAXException {
+        SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+        Schema contextSchema = (validationSchema != null) ? validationSchema : getSchema();
+        ValidatorHandler validatorHandler = contextSchema.newValidatorHandler();
+        ContextHandler contextHandler = new ContextHandler(consumer);
+        XMLReader xmlReader;
+
+        parserFactory.setNamespaceAware(true);
+
+        try {
+            xmlReader = parserFactory.newSAXParser().getXMLReader();
+        } catch (ParserConfigurationException e) {
+            throw new SAXException(e);
+        }
+
+        validatorHandler.setErrorHandler(this);
+        validatorHandler.setContentHandler(contextHandler);
+        xmlReader.setErrorHandler(this);
+        xmlReader.setContentHandler(validatorHandler);
+        xmlReader.parse(new InputSource(inputStream));
     }
 
     /**
-     * Validates content XML data delivered a input stream
+     * Returns the compiled context schema. The schema is compiled on first use.
      *
-     * @param inputStream input stream
+     * @return A schema.
+     * @throws SAXException if the schema cannot be compiled
      */
-    public void validateXml(InputStream inputStream) throws IOException, SAXException {
-        SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        InputStream schemaStream = getSchema();
-        Schema schema = schemaFactory.newSchema(new StreamSource(schemaStream));
-        Validator validator = schema.newValidator();
-
-        validator.setErrorHandler(this);
-        validator.validate(new StreamSource(inputStream));
+    private static Schema getSchema() throws SAXException {
+        if (schema == null) {
+            synchronized (ContextXmlReader.class) {
+                if (schema == null) {
+                    ServletContext context = WebApplication.get().getServletContext();
+                    SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+                    InputStream schemaStream = context.getResourceAsStream("/WEB-INF/schema/context.xsd");
+                    schema = schemaFactory.newSchema(new StreamSource(schemaStream));
+                }
+            }
+        }
+
+        return schema;
     }
 
     /**
-     * A XMLStreamException which doesn’t mess up the message text.
-     * <p>
-     * original code:
-     * super("ParseError at [row,col]:["+location.getLineNumber()+","+
-     * location.getColumnNumber()+"]\n"+
-     * "Message: "+msg);
+     * A SAX content handler building contexts from validated context XML.
      */
-    public class XmlStreamException extends XMLStreamException {
+    private class ContextHandler extends DefaultHandler {
+        /**
+         * Consumer of contexts read.
+         */
+        private final Consumer<InboundContext> consumer;
+
+        /**
+         * Text content of the current element.
+         */
+        private final StringBuilder text = new StringBuilder();
+
+        /**
+         * Locator of SAX events.
+         */
+        private Locator locator;
+
         /**
-         * Creates a XmlStreamException.
+         * The context of the current item.
+         */
+        private InboundContext context;
+
+        /**
+         * Repeated values shared between contexts.
+         */
+        private final Map<String, String> strings = new HashMap<>();
+
+        /**
+         * Punctuation type last seen in the current item.
+         */
+        private PunctuationType punctuationType = PunctuationType.NONE;
+
+        /**
+         * Creates a content handler.
          *
-         * @param message exception message
+         * @param consumer consumer of contexts read
          */
-        public XmlStreamException(String message) {
-            super(message);
+        private ContextHandler(Consumer<InboundContext> consumer) {
+            this.consumer = consumer;
         }
 
         /**
-         * Creates a XmlStreamException.
-         *
-         * @param message  exception message
-         * @param location location of the error
+         * {@inheritDoc}
+         */
+        @Override
+        public void setDocumentLocator(Locator locator) {
+            this.locator = locator;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes)
+                throws SAXException {
+            text.setLength(0);
+
+            switch (Element.of(localName)) {
+                case ITEM:
+                    context = createContext(attributes, strings);
+                    punctuationType = PunctuationType.NONE;
+                    break;
+                case PUNCTUATION:
+                    PunctuationType currentPunctuationType = PunctuationType.of(attributes.getValue("type"));
+                    // validates the order of punctuation tags in a context item
+                    String message = getPunctuationError(context, punctuationType, currentPunctuationType);
+
+                    if (message != null) {
+                        throw new SAXParseException(message, locator);
+                    }
+
+                    punctuationType = currentPunctuationType;
+                    break;
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (Element.of(localName)) {
+                case ITEM:
+                    consumer.accept(context);
+                    break;
+                case PUNCTUATION:
+                    if (text.length() > 0) {
+                        if (punctuationType == PunctuationType.INIT) {
+                            context.setInitPunctuation(text.toString());
+                        } else if (punctuationType == PunctuationType.END) {
+                            context.setEndPunctuation(text.toString());
+                        }
+                    }
+
+                    break;
+                case STRING:
+                    if (text.length() > 0) {
+                        context.setKeyword(text.toString());
+                    }
+
+                    break;
+            }
+
+            text.setLength(0);
+        }
+
+        /**
+         * {@inheritDoc}
          */
-        public XmlStreamException(String message, Location location) {
-            super(message);
-            super.location = location;
+        @Override
+        public void characters(char[] characters, int start, int length) {
+            text.append(characters, start, length);
         }
     }
 }
@@ -11,7 +11,7 @@ import org.apache.wicket.model.IModel;
 /**
  * A TextFilteredColumn to display following contexts properly.
  */
-public class FollowingContextTextFilterColumn extends TextFilterColumn<Context, Context, String> {
+public class FollowingContextTextFilterColumn extends TextFilterColumn<ContextRow, ContextRow, String> {
     /**
      * Creates a TextFilterColumn for following contexts.
      *
@@ -42,8 +42,8 @@ public class FollowingContextTextFilterColumn extends TextFilterColumn<Context,
      * @param rowModel    model of the row item being rendered
      */
     @Override
-    public void populateItem(Item<ICellPopulator<Context>> item, String componentId, IModel<Context> rowModel) {
-        Context context = rowModel.getObject();
+    public void populateItem(Item<ICellPopulator<ContextRow>> item, String componentId, IModel<ContextRow> rowModel) {
+        ContextRow context = rowModel.getObject();
         item.add(new ContextPanel(componentId, context.getFollowing(), context.getEndPunctuation()))
                 .add(AttributeModifier.append("class", "following auto-shrink"));
     }
@@ -4,7 +4,10 @@ import lemming.data.IDao;
 import lemming.lemma.Lemma;
 import lemming.pos.Pos;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Defines a context DAO by extending interface IDao.
@@ -24,6 +27,14 @@ interface IContextDao extends IDao<Context> {
      */
     void batchMerge(List<Context> contexts);
 
+    /**
+     * Returns a list of contexts for given IDs.
+     *
+     * @param ids IDs of contexts
+     * @return A list of contexts.
+     */
+    List<Context> findByIds(Collection<Integer> ids);
+
     /**
      * Returns a list of matching contexts for a given keyword.
      *
@@ -48,6 +59,14 @@ interface IContextDao extends IDao<Context> {
      */
     List<Context> findByLocation(String location);
 
+    /**
+     * Returns the hashes of contexts for given locations.
+     *
+     * @param locations locations of contexts
+     * @return A map of locations to the hashes of their contexts. Locations without contexts are missing.
+     */
+    Map<String, Set<String>> getHashesByLocation(Collection<String> locations);
+
     /**
      * Returns a list of matching contexts for a given location substring.
      *
@@ -11,7 +11,7 @@ import org.apache.wicket.model.IModel;
 /**
  * A TextFilteredColumn adding to display keywords of contexts properly.
  */
-public class KeywordTextFilterColumn extends TextFilterColumn<Context, Context, String> {
+public class KeywordTextFilterColumn extends TextFilterColumn<ContextRow, ContextRow, String> {
     /**
      * Creates a TextFilterColumn for contexts.
      *
@@ -41,8 +41,8 @@ public class KeywordTextFilterColumn extends TextFilterColumn<Context, Context,
      * @param rowModel    model of the row item being rendered
      */
     @Override
-    public void populateItem(Item<ICellPopulator<Context>> item, String componentId, IModel<Context> rowModel) {
-        Context context = rowModel.getObject();
+    public void populateItem(Item<ICellPopulator<ContextRow>> item, String componentId, IModel<ContextRow> rowModel) {
+        ContextRow context = rowModel.getObject();
         item.add(new KeywordPanel(componentId, context.getKeyword()))
                 .add(AttributeModifier.append("class", "keyword"));
     }
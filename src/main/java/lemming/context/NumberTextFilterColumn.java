@@ -14,7 +14,7 @@ import org.apache.wicket.model.IModel;
  * <p>
  * This column adds class "first-child" to be able to style this column as first child of a row.
  */
-public class NumberTextFilterColumn extends TextFilterColumn<Context, Context, String> {
+public class NumberTextFilterColumn extends TextFilterColumn<ContextRow, ContextRow, String> {
 
     /**
      * Creates a TextFilterColumn for contexts.
@@ -45,8 +45,8 @@ public class NumberTextFilterColumn extends TextFilterColumn<Context, Context, S
      * @param rowModel    model of the row item being rendered
      */
     @Override
-    public void populateItem(Item<ICellPopulator<Context>> item, String componentId, IModel<Context> rowModel) {
-        Context context = rowModel.getObject();
+    public void populateItem(Item<ICellPopulator<ContextRow>> item, String componentId, IModel<ContextRow> rowModel) {
+        ContextRow context = rowModel.getObject();
         item.add(new ContextPanel(componentId, String.valueOf(context.getNumber())))
                 .add(AttributeModifier.append("class", "first-child number"));
     }
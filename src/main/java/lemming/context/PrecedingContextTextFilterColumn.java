@@ -11,7 +11,7 @@ import org.apache.wicket.model.IModel;
 /**
  * A TextFilteredColumn to display preceding contexts properly.
  */
-public class PrecedingContextTextFilterColumn extends TextFilterColumn<Context, Context, String> {
+public class PrecedingContextTextFilterColumn extends TextFilterColumn<ContextRow, ContextRow, String> {
     /**
      * Creates a TextFilterColumn for preceding contexts.
      *
@@ -42,8 +42,8 @@ public class PrecedingContextTextFilterColumn extends TextFilterColumn<Context,
      * @param rowModel    model of the row item being rendered
      */
     @Override
-    public void populateItem(Item<ICellPopulator<Context>> item, String componentId, IModel<Context> rowModel) {
-        Context context = rowModel.getObject();
+    public void populateItem(Item<ICellPopulator<ContextRow>> item, String componentId, IModel<ContextRow> rowModel) {
+        ContextRow context = rowModel.getObject();
         item.add(new ContextPanel(componentId, context.getPreceding(), context.getInitPunctuation()))
                 .add(AttributeModifier.append("class", "preceding auto-shrink auto-shrink-left"));
     }
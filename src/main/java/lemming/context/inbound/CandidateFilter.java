@@ -0,0 +1,176 @@
+package lemming.context.inbound;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.protocol.http.WebApplication;
+
+import java.util.Arrays;
+
+/**
+ * A filter which prunes pairs of context texts before their edit distance is computed.
+ * <p>
+ * Every text gets a MinHash signature of its character trigrams once. The share of equal signature values estimates
+ * the Jaccard similarity of the trigram sets of two texts, and pairs below a minimum similarity are no candidates.
+ * Larger signatures estimate more precisely but cost more to compute; a lower minimum similarity keeps more pairs,
+ * trading speed for recall. A minimum similarity of 0 disables pruning.
+ */
+public class CandidateFilter {
+    /**
+     * Name of the context parameter defining the signature size.
+     */
+    private static final String SIGNATURE_SIZE_PARAMETER = "lemming.matchSignatureSize";
+
+    /**
+     * Name of the context parameter defining the minimum similarity.
+     */
+    private static final String MIN_SIMILARITY_PARAMETER = "lemming.matchMinSimilarity";
+
+    /**
+     * Signature size used if none is configured.
+     */
+    private static final Integer DEFAULT_SIGNATURE_SIZE = 64;
+
+    /**
+     * Minimum similarity used if none is configured.
+     */
+    private static final Double DEFAULT_MIN_SIMILARITY = 0.0;
+
+    /**
+     * Number of characters in a shingle.
+     */
+    private static final Integer SHINGLE_SIZE = 3;
+
+    /**
+     * A filter which prunes no pairs.
+     */
+    public static final CandidateFilter NONE = new CandidateFilter(1, 0.0);
+
+    /**
+     * Number of hash values in a signature.
+     */
+    private final Integer signatureSize;
+
+    /**
+     * Minimum estimated similarity of candidate pairs.
+     */
+    private final Double minSimilarity;
+
+    /**
+     * Creates a candidate filter.
+     *
+     * @param signatureSize number of hash values in a signature
+     * @param minSimilarity minimum estimated similarity of candidate pairs, between 0 and 1
+     */
+    public CandidateFilter(Integer signatureSize, Double minSimilarity) {
+        if (signatureSize < 1) {
+            throw new IllegalArgumentException("Signature size must be positive.");
+        }
+
+        this.signatureSize = signatureSize;
+        this.minSimilarity = minSimilarity;
+    }
+
+    /**
+     * Returns a candidate filter configured by context parameters, or a default filter.
+     *
+     * @return A candidate filter.
+     */
+    public static CandidateFilter get() {
+        Integer signatureSize = DEFAULT_SIGNATURE_SIZE;
+        Double minSimilarity = DEFAULT_MIN_SIMILARITY;
+
+        if (Application.exists() && Application.get() instanceof WebApplication) {
+            WebApplication application = (WebApplication) Application.get();
+            String signatureSizeValue = application.getServletContext().getInitParameter(SIGNATURE_SIZE_PARAMETER);
+            String minSimilarityValue = application.getServletContext().getInitParameter(MIN_SIMILARITY_PARAMETER);
+
+            if (signatureSizeValue != null && !signatureSizeValue.trim().isEmpty()) {
+                signatureSize = Integer.valueOf(signatureSizeValue.trim());
+            }
+
+            if (minSimilarityValue != null && !minSimilarityValue.trim().isEmpty()) {
+                minSimilarity = Double.valueOf(minSimilarityValue.trim());
+            }
+        }
+
+        return new CandidateFilter(signatureSize, minSimilarity);
+    }
+
+    /**
+     * Checks if the filter prunes pairs at all.
+     *
+     * @return True if pairs are pruned; false otherwise.
+     */
+    public Boolean isEnabled() {
+        return minSimilarity > 0.0;
+    }
+
+    /**
+     * Returns the MinHash signature of a text.
+     *
+     * @param text a context text
+     * @return An array of hash values.
+     */
+    public int[] getSignature(String text) {
+        int[] signature = new int[signatureSize];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        // a text shorter than a shingle is a single shingle
+        int shingleCount = Math.max(1, text.length() - SHINGLE_SIZE + 1);
+
+        for (int start = 0; start < shingleCount; start++) {
+            long shingle = 0L;
+
+            for (int index = start; index < Math.min(start + SHINGLE_SIZE, text.length()); index++) {
+                shingle = (shingle << Character.SIZE) | text.charAt(index);
+            }
+
+            for (int slot = 0; slot < signatureSize; slot++) {
+                int value = hash(shingle, slot);
+
+                if (value < signature[slot]) {
+                    signature[slot] = value;
+                }
+            }
+        }
+
+        return signature;
+    }
+
+    /**
+     * Checks if a pair of texts is a candidate for an exact comparison.
+     *
+     * @param signature1 signature of text 1
+     * @param signature2 signature of text 2
+     * @return True if the estimated similarity reaches the minimum; false otherwise.
+     */
+    public Boolean isCandidate(int[] signature1, int[] signature2) {
+        if (!isEnabled()) {
+            return true;
+        }
+
+        int requiredCount = (int) Math.ceil(minSimilarity * signatureSize);
+        int count = 0;
+
+        for (int slot = 0; slot < signatureSize; slot++) {
+            if (signature1[slot] == signature2[slot] && ++count >= requiredCount) {
+                return true;
+            }
+        }
+
+        return count >= requiredCount;
+    }
+
+    /**
+     * Hashes a shingle with the hash function of a signature slot.
+     *
+     * @param shingle characters of a shingle
+     * @param slot    a signature slot
+     * @return A hash value.
+     */
+    private static int hash(long shingle, int slot) {
+        long value = shingle * 0x9E3779B97F4A7C15L + slot * 0xD1B54A32D192ED03L;
+        value = (value ^ (value >>> 31)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 29)) * 0x94D049BB133111EBL;
+        return (int) (value ^ (value >>> 32));
+    }
+}
@@ -0,0 +1,599 @@
+package lemming.context.inbound;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.ListIterator;
+
+/**
+ * Computes the edit distance of the diff between two texts, as diff_levenshtein(diff_main(text1, text2, false)) of
+ * diff-match-patch does.
+ * <p>
+ * The distance sums the larger of inserted and deleted characters between equalities. The diff is not always minimal,
+ * so the distance is never lower than the Levenshtein distance. This is a port of the diff-match-patch algorithm
+ * with its default timeout of one second, so that distances stay exactly the same as before. The diagonal buffers of
+ * the bisection are kept per thread and reused, but a diff is still built as a list of sections per pair, because the
+ * distance depends on how the sections are merged. Computing it costs about as much as with diff-match-patch; the
+ * bit-parallel Levenshtein distance only saves time where it rules pairs out.
+ */
+final class DiffDistance {
+    /**
+     * Time in milliseconds after which a diff is no longer optimized, as the default of diff-match-patch.
+     */
+    private static final Long TIMEOUT = 1000L;
+
+    /**
+     * Diagonal buffers of the current thread.
+     */
+    private static final ThreadLocal<int[]> buffers = ThreadLocal.withInitial(() -> new int[0]);
+
+    /**
+     * Operations of a diff.
+     */
+    private enum Operation {
+        DELETE, INSERT, EQUAL
+    }
+
+    /**
+     * Private constructor.
+     */
+    private DiffDistance() {
+    }
+
+    /**
+     * Returns the edit distance of the diff between two texts.
+     *
+     * @param text1 text 1
+     * @param text2 text 2
+     * @return The number of inserted, deleted or substituted characters.
+     */
+    public static Integer getDistance(String text1, String text2) {
+        if (text1.equals(text2)) {
+            return 0;
+        }
+
+        LinkedList<Diff> diffs = diff(text1, text2, System.currentTimeMillis() + TIMEOUT);
+        int distance = 0;
+        int insertions = 0;
+        int deletions = 0;
+
+        for (Diff diff : diffs) {
+            if (diff.operation == Operation.INSERT) {
+                insertions += diff.text.length();
+            } else if (diff.operation == Operation.DELETE) {
+                deletions += diff.text.length();
+            } else {
+                distance += Math.max(insertions, deletions);
+                insertions = 0;
+                deletions = 0;
+            }
+        }
+
+        return distance + Math.max(insertions, deletions);
+    }
+
+    /**
+     * Finds the differences between two texts. A common prefix and suffix are split off first.
+     *
+     * @param text1    old text
+     * @param text2    new text
+     * @param deadline time after which the diff is no longer optimized
+     * @return A list of diffs.
+     */
+    private static LinkedList<Diff> diff(String text1, String text2, long deadline) {
+        LinkedList<Diff> diffs;
+
+        if (text1.equals(text2)) {
+            diffs = new LinkedList<>();
+
+            if (!text1.isEmpty()) {
+                diffs.add(new Diff(Operation.EQUAL, text1));
+            }
+
+            return diffs;
+        }
+
+        int prefixLength = getCommonPrefix(text1, text2);
+        String prefix = text1.substring(0, prefixLength);
+        text1 = text1.substring(prefixLength);
+        text2 = text2.substring(prefixLength);
+        int suffixLength = getCommonSuffix(text1, text2);
+        String suffix = text1.substring(text1.length() - suffixLength);
+        text1 = text1.substring(0, text1.length() - suffixLength);
+        text2 = text2.substring(0, text2.length() - suffixLength);
+        diffs = compute(text1, text2, deadline);
+
+        if (!prefix.isEmpty()) {
+            diffs.addFirst(new Diff(Operation.EQUAL, prefix));
+        }
+
+        if (!suffix.isEmpty()) {
+            diffs.addLast(new Diff(Operation.EQUAL, suffix));
+        }
+
+        cleanupMerge(diffs);
+        return diffs;
+    }
+
+    /**
+     * Finds the differences between two texts without a common prefix or suffix.
+     *
+     * @param text1    old text
+     * @param text2    new text
+     * @param deadline time after which the diff is no longer optimized
+     * @return A list of diffs.
+     */
+    private static LinkedList<Diff> compute(String text1, String text2, long deadline) {
+        LinkedList<Diff> diffs = new LinkedList<>();
+
+        if (text1.isEmpty()) {
+            diffs.add(new Diff(Operation.INSERT, text2));
+            return diffs;
+        }
+
+        if (text2.isEmpty()) {
+            diffs.add(new Diff(Operation.DELETE, text1));
+            return diffs;
+        }
+
+        String longText = text1.length() > text2.length() ? text1 : text2;
+        String shortText = text1.length() > text2.length() ? text2 : text1;
+        int index = longText.indexOf(shortText);
+
+        if (index != -1) {
+            Operation operation = text1.length() > text2.length() ? Operation.DELETE : Operation.INSERT;
+            diffs.add(new Diff(operation, longText.substring(0, index)));
+            diffs.add(new Diff(Operation.EQUAL, shortText));
+            diffs.add(new Diff(operation, longText.substring(index + shortText.length())));
+            return diffs;
+        }
+
+        if (shortText.length() == 1) {
+            diffs.add(new Diff(Operation.DELETE, text1));
+            diffs.add(new Diff(Operation.INSERT, text2));
+            return diffs;
+        }
+
+        String[] halfMatch = getHalfMatch(text1, text2);
+
+        if (halfMatch != null) {
+            diffs = diff(halfMatch[0], halfMatch[2], deadline);
+            diffs.add(new Diff(Operation.EQUAL, halfMatch[4]));
+            diffs.addAll(diff(halfMatch[1], halfMatch[3], deadline));
+            return diffs;
+        }
+
+        return bisect(text1, text2, deadline);
+    }
+
+    /**
+     * Finds the middle snake of a diff with the algorithm of Myers and splits the diff there.
+     *
+     * @param text1    old text
+     * @param text2    new text
+     * @param deadline time after which the diff is no longer optimized
+     * @return A list of diffs.
+     */
+    private static LinkedList<Diff> bisect(String text1, String text2, long deadline) {
+        int length1 = text1.length();
+        int length2 = text2.length();
+        int maxD = (length1 + length2 + 1) / 2;
+        int offset = maxD;
+        int vLength = 2 * maxD;
+        int[] v = getBuffer(2 * vLength);
+        // the forward diagonals take the first half of the buffer, the reverse diagonals the second half
+        int v2 = vLength;
+        Arrays.fill(v, 0, 2 * vLength, -1);
+        v[offset + 1] = 0;
+        v[v2 + offset + 1] = 0;
+        int delta = length1 - length2;
+        boolean front = delta % 2 != 0;
+        int k1Start = 0;
+        int k1End = 0;
+        int k2Start = 0;
+        int k2End = 0;
+
+        for (int d = 0; d < maxD; d++) {
+            if (System.currentTimeMillis() > deadline) {
+                break;
+            }
+
+            for (int k1 = -d + k1Start; k1 <= d - k1End; k1 += 2) {
+                int k1Offset = offset + k1;
+                int x1;
+
+                if (k1 == -d || (k1 != d && v[k1Offset - 1] < v[k1Offset + 1])) {
+                    x1 = v[k1Offset + 1];
+                } else {
+                    x1 = v[k1Offset - 1] + 1;
+                }
+
+                int y1 = x1 - k1;
+
+                while (x1 < length1 && y1 < length2 && text1.charAt(x1) == text2.charAt(y1)) {
+                    x1++;
+                    y1++;
+                }
+
+                v[k1Offset] = x1;
+
+                if (x1 > length1) {
+                    k1End += 2;
+                } else if (y1 > length2) {
+                    k1Start += 2;
+                } else if (front) {
+                    int k2Offset = offset + delta - k1;
+
+                    if (k2Offset >= 0 && k2Offset < vLength && v[v2 + k2Offset] != -1) {
+                        if (x1 >= length1 - v[v2 + k2Offset]) {
+                            return bisectSplit(text1, text2, x1, y1, deadline);
+                        }
+                    }
+                }
+            }
+
+            for (int k2 = -d + k2Start; k2 <= d - k2End; k2 += 2) {
+                int k2Offset = offset + k2;
+                int x2;
+
+                if (k2 == -d || (k2 != d && v[v2 + k2Offset - 1] < v[v2 + k2Offset + 1])) {
+                    x2 = v[v2 + k2Offset + 1];
+                } else {
+                    x2 = v[v2 + k2Offset - 1] + 1;
+                }
+
+                int y2 = x2 - k2;
+
+                while (x2 < length1 && y2 < length2 &&
+                        text1.charAt(length1 - x2 - 1) == text2.charAt(length2 - y2 - 1)) {
+                    x2++;
+                    y2++;
+                }
+
+                v[v2 + k2Offset] = x2;
+
+                if (x2 > length1) {
+                    k2End += 2;
+                } else if (y2 > length2) {
+                    k2Start += 2;
+                } else if (!front) {
+                    int k1Offset = offset + delta - k2;
+
+                    if (k1Offset >= 0 && k1Offset < vLength && v[k1Offset] != -1) {
+                        int x1 = v[k1Offset];
+                        int y1 = offset + x1 - k1Offset;
+
+                        if (x1 >= length1 - x2) {
+                            return bisectSplit(text1, text2, x1, y1, deadline);
+                        }
+                    }
+                }
+            }
+        }
+
+        // the deadline passed or the texts have nothing in common
+        LinkedList<Diff> diffs = new LinkedList<>();
+        diffs.add(new Diff(Operation.DELETE, text1));
+        diffs.add(new Diff(Operation.INSERT, text2));
+        return diffs;
+    }
+
+    /**
+     * Splits a diff at the middle snake and diffs both parts.
+     *
+     * @param text1    old text
+     * @param text2    new text
+     * @param x        index of the split in text 1
+     * @param y        index of the split in text 2
+     * @param deadline time after which the diff is no longer optimized
+     * @return A list of diffs.
+     */
+    private static LinkedList<Diff> bisectSplit(String text1, String text2, int x, int y, long deadline) {
+        LinkedList<Diff> diffs = diff(text1.substring(0, x), text2.substring(0, y), deadline);
+        diffs.addAll(diff(text1.substring(x), text2.substring(y), deadline));
+        return diffs;
+    }
+
+    /**
+     * Returns a diagonal buffer of the current thread.
+     *
+     * @param length minimum length of the buffer
+     * @return An array of at least the given length.
+     */
+    private static int[] getBuffer(int length) {
+        int[] buffer = buffers.get();
+
+        if (buffer.length < length) {
+            buffer = new int[Math.max(length, buffer.length * 2)];
+            buffers.set(buffer);
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Returns the length of the common prefix of two texts.
+     *
+     * @param text1 text 1
+     * @param text2 text 2
+     * @return A number of characters.
+     */
+    private static int getCommonPrefix(String text1, String text2) {
+        int length = Math.min(text1.length(), text2.length());
+
+        for (int i = 0; i < length; i++) {
+            if (text1.charAt(i) != text2.charAt(i)) {
+                return i;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Returns the length of the common suffix of two texts.
+     *
+     * @param text1 text 1
+     * @param text2 text 2
+     * @return A number of characters.
+     */
+    private static int getCommonSuffix(String text1, String text2) {
+        int length1 = text1.length();
+        int length2 = text2.length();
+        int length = Math.min(length1, length2);
+
+        for (int i = 1; i <= length; i++) {
+            if (text1.charAt(length1 - i) != text2.charAt(length2 - i)) {
+                return i - 1;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Checks if two texts share a substring which is at least half the length of the longer text, which splits the
+     * diff in two. The result may not be the minimal diff.
+     *
+     * @param text1 text 1
+     * @param text2 text 2
+     * @return An array of the prefix of text 1, the suffix of text 1, the prefix of text 2, the suffix of text 2 and
+     * the common middle, or null if there is no such substring.
+     */
+    private static String[] getHalfMatch(String text1, String text2) {
+        String longText = text1.length() > text2.length() ? text1 : text2;
+        String shortText = text1.length() > text2.length() ? text2 : text1;
+
+        if (longText.length() < 4 || shortText.length() * 2 < longText.length()) {
+            return null;
+        }
+
+        // check if the second quarter or the third quarter of the longer text seeds a half match
+        String[] halfMatch1 = getHalfMatch(longText, shortText, (longText.length() + 3) / 4);
+        String[] halfMatch2 = getHalfMatch(longText, shortText, (longText.length() + 1) / 2);
+        String[] halfMatch;
+
+        if (halfMatch1 == null && halfMatch2 == null) {
+            return null;
+        } else if (halfMatch2 == null) {
+            halfMatch = halfMatch1;
+        } else if (halfMatch1 == null) {
+            halfMatch = halfMatch2;
+        } else {
+            halfMatch = halfMatch1[4].length() > halfMatch2[4].length() ? halfMatch1 : halfMatch2;
+        }
+
+        if (text1.length() > text2.length()) {
+            return halfMatch;
+        } else {
+            return new String[]{halfMatch[2], halfMatch[3], halfMatch[0], halfMatch[1], halfMatch[4]};
+        }
+    }
+
+    /**
+     * Checks if a substring of the shorter text exists within the longer text such that it is at least half the
+     * length of the longer text.
+     *
+     * @param longText  the longer text
+     * @param shortText the shorter text
+     * @param index     start of a quarter length substring within the longer text
+     * @return An array of the prefix of the longer text, the suffix of the longer text, the prefix of the shorter
+     * text, the suffix of the shorter text and the common middle, or null if there is no such substring.
+     */
+    private static String[] getHalfMatch(String longText, String shortText, int index) {
+        String seed = longText.substring(index, index + longText.length() / 4);
+        String bestCommon = "";
+        String bestLongTextA = "";
+        String bestLongTextB = "";
+        String bestShortTextA = "";
+        String bestShortTextB = "";
+        int j = -1;
+
+        while ((j = shortText.indexOf(seed, j + 1)) != -1) {
+            int prefixLength = getCommonPrefix(longText.substring(index), shortText.substring(j));
+            int suffixLength = getCommonSuffix(longText.substring(0, index), shortText.substring(0, j));
+
+            if (bestCommon.length() < suffixLength + prefixLength) {
+                bestCommon = shortText.substring(j - suffixLength, j) + shortText.substring(j, j + prefixLength);
+                bestLongTextA = longText.substring(0, index - suffixLength);
+                bestLongTextB = longText.substring(index + prefixLength);
+                bestShortTextA = shortText.substring(0, j - suffixLength);
+                bestShortTextB = shortText.substring(j + prefixLength);
+            }
+        }
+
+        if (bestCommon.length() * 2 >= longText.length()) {
+            return new String[]{bestLongTextA, bestLongTextB, bestShortTextA, bestShortTextB, bestCommon};
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Merges like edit sections, factors out common prefixes and suffixes of edits and shifts single edits sideways
+     * over equalities, so that equalities between edits may be eliminated.
+     *
+     * @param diffs a list of diffs, changed in place
+     */
+    private static void cleanupMerge(LinkedList<Diff> diffs) {
+        // a dummy equality at the end flushes the last edits
+        diffs.add(new Diff(Operation.EQUAL, ""));
+        ListIterator<Diff> pointer = diffs.listIterator();
+        int deleteCount = 0;
+        int insertCount = 0;
+        String deleteText = "";
+        String insertText = "";
+        Diff thisDiff = pointer.next();
+        Diff previousEqual = null;
+
+        while (thisDiff != null) {
+            switch (thisDiff.operation) {
+                case INSERT:
+                    insertCount++;
+                    insertText += thisDiff.text;
+                    previousEqual = null;
+                    break;
+                case DELETE:
+                    deleteCount++;
+                    deleteText += thisDiff.text;
+                    previousEqual = null;
+                    break;
+                case EQUAL:
+                    if (deleteCount + insertCount > 1) {
+                        boolean bothTypes = deleteCount != 0 && insertCount != 0;
+                        pointer.previous();
+
+                        while (deleteCount-- > 0) {
+                            pointer.previous();
+                            pointer.remove();
+                        }
+
+                        while (insertCount-- > 0) {
+                            pointer.previous();
+                            pointer.remove();
+                        }
+
+                        if (bothTypes) {
+                            int commonLength = getCommonPrefix(insertText, deleteText);
+
+                            if (commonLength != 0) {
+                                if (pointer.hasPrevious()) {
+                                    thisDiff = pointer.previous();
+                                    thisDiff.text += insertText.substring(0, commonLength);
+                                    pointer.next();
+                                } else {
+                                    pointer.add(new Diff(Operation.EQUAL, insertText.substring(0, commonLength)));
+                                }
+
+                                insertText = insertText.substring(commonLength);
+                                deleteText = deleteText.substring(commonLength);
+                            }
+
+                            commonLength = getCommonSuffix(insertText, deleteText);
+
+                            if (commonLength != 0) {
+                                thisDiff = pointer.next();
+                                thisDiff.text = insertText.substring(insertText.length() - commonLength) +
+                                        thisDiff.text;
+                                insertText = insertText.substring(0, insertText.length() - commonLength);
+                                deleteText = deleteText.substring(0, deleteText.length() - commonLength);
+                                pointer.previous();
+                            }
+                        }
+
+                        if (!deleteText.isEmpty()) {
+                            pointer.add(new Diff(Operation.DELETE, deleteText));
+                        }
+
+                        if (!insertText.isEmpty()) {
+                            pointer.add(new Diff(Operation.INSERT, insertText));
+                        }
+
+                        thisDiff = pointer.hasNext() ? pointer.next() : null;
+                    } else if (previousEqual != null) {
+                        previousEqual.text += thisDiff.text;
+                        pointer.remove();
+                        thisDiff = pointer.previous();
+                        pointer.next();
+                    }
+
+                    insertCount = 0;
+                    deleteCount = 0;
+                    deleteText = "";
+                    insertText = "";
+                    previousEqual = thisDiff;
+                    break;
+            }
+
+            thisDiff = pointer.hasNext() ? pointer.next() : null;
+        }
+
+        if (diffs.getLast().text.isEmpty()) {
+            diffs.removeLast();
+        }
+
+        // single edits surrounded by equalities are shifted over one of them, e.g. A<ins>BA</ins>C to <ins>AB</ins>AC
+        boolean changes = false;
+        pointer = diffs.listIterator();
+        Diff previousDiff = pointer.hasNext() ? pointer.next() : null;
+        thisDiff = pointer.hasNext() ? pointer.next() : null;
+        Diff nextDiff = pointer.hasNext() ? pointer.next() : null;
+
+        while (nextDiff != null) {
+            if (previousDiff.operation == Operation.EQUAL && nextDiff.operation == Operation.EQUAL) {
+                if (thisDiff.text.endsWith(previousDiff.text)) {
+                    thisDiff.text = previousDiff.text +
+                            thisDiff.text.substring(0, thisDiff.text.length() - previousDiff.text.length());
+                    nextDiff.text = previousDiff.text + nextDiff.text;
+                    pointer.previous();
+                    pointer.previous();
+                    pointer.previous();
+                    pointer.remove();
+                    pointer.next();
+                    thisDiff = pointer.next();
+                    nextDiff = pointer.hasNext() ? pointer.next() : null;
+                    changes = true;
+                } else if (thisDiff.text.startsWith(nextDiff.text)) {
+                    previousDiff.text += nextDiff.text;
+                    thisDiff.text = thisDiff.text.substring(nextDiff.text.length()) + nextDiff.text;
+                    pointer.remove();
+                    nextDiff = pointer.hasNext() ? pointer.next() : null;
+                    changes = true;
+                }
+            }
+
+            previousDiff = thisDiff;
+            thisDiff = nextDiff;
+            nextDiff = pointer.hasNext() ? pointer.next() : null;
+        }
+
+        if (changes) {
+            cleanupMerge(diffs);
+        }
+    }
+
+    /**
+     * A section of a diff.
+     */
+    private static class Diff {
+        /**
+         * Operation of the section.
+         */
+        private final Operation operation;
+
+        /**
+         * Text of the section.
+         */
+        private String text;
+
+        /**
+         * Creates a section of a diff.
+         *
+         * @param operation operation of the section
+         * @param text      text of the section
+         */
+        private Diff(Operation operation, String text) {
+            this.operation = operation;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package lemming.context.inbound;
+
+import java.util.Arrays;
+
+/**
+ * Computes Levenshtein distances with the bit-parallel algorithm of Myers in the block-based formulation of Hyyrö.
+ * <p>
+ * The shorter text is the pattern. Its rows are split into blocks of 64 bits, and every character of the longer text
+ * advances all blocks by one column, so that the cost is proportional to the length of the text times the number of
+ * blocks. A common prefix and suffix are skipped, and computation stops as soon as the distance is known to exceed a
+ * given maximum. Buffers are kept per thread and reused.
+ */
+final class EditDistance {
+    /**
+     * Number of bits in a block.
+     */
+    private static final Integer BLOCK_SIZE = Long.SIZE;
+
+    /**
+     * Buffers of the current thread.
+     */
+    private static final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * Private constructor.
+     */
+    private EditDistance() {
+    }
+
+    /**
+     * Returns the Levenshtein distance between two texts.
+     *
+     * @param text1 text 1
+     * @param text2 text 2
+     * @return The Levenshtein distance.
+     */
+    public static Integer getDistance(CharSequence text1, CharSequence text2) {
+        return getDistance(text1, text2, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the Levenshtein distance between two texts, if it doesn’t exceed a maximum.
+     *
+     * @param text1       text 1
+     * @param text2       text 2
+     * @param maxDistance maximum distance of interest
+     * @return The Levenshtein distance, or maxDistance + 1 if the distance is greater than maxDistance.
+     */
+    public static Integer getDistance(CharSequence text1, CharSequence text2, Integer maxDistance) {
+        CharSequence pattern = text1.length() <= text2.length() ? text1 : text2;
+        CharSequence text = pattern == text1 ? text2 : text1;
+        int exceeded = maxDistance == Integer.MAX_VALUE ? maxDistance : maxDistance + 1;
+        int start = 0;
+        int patternEnd = pattern.length();
+        int textEnd = text.length();
+
+        if (textEnd - patternEnd > maxDistance) {
+            return exceeded;
+        }
+
+        while (start < patternEnd && pattern.charAt(start) == text.charAt(start)) {
+            start++;
+        }
+
+        while (patternEnd > start && pattern.charAt(patternEnd - 1) == text.charAt(textEnd - 1)) {
+            patternEnd--;
+            textEnd--;
+        }
+
+        if (patternEnd == start) {
+            return textEnd - start;
+        }
+
+        int distance = getBlockDistance(pattern, text, start, patternEnd, textEnd, maxDistance);
+        return distance > maxDistance ? exceeded : distance;
+    }
+
+    /**
+     * Returns the Levenshtein distance between ranges of a pattern and a text with the block-based algorithm.
+     *
+     * @param pattern     the shorter text
+     * @param text        the longer text
+     * @param start       start of both ranges
+     * @param patternEnd  end of the pattern range, greater than start
+     * @param textEnd     end of the text range
+     * @param maxDistance maximum distance of interest
+     * @return The Levenshtein distance, or a number greater than maxDistance.
+     */
+    private static int getBlockDistance(CharSequence pattern, CharSequence text, int start, int patternEnd,
+                                        int textEnd, int maxDistance) {
+        int patternLength = patternEnd - start;
+        int textLength = textEnd - start;
+        int blockCount = (patternLength + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int lastBlock = blockCount - 1;
+        long lastBit = 1L << ((patternLength - 1) % BLOCK_SIZE);
+        Buffers buffers = EditDistance.buffers.get();
+        buffers.prepare(pattern, start, patternEnd, blockCount);
+        long[] positive = buffers.positive;
+        long[] negative = buffers.negative;
+        long[] equalities = buffers.equalities;
+        int score = patternLength;
+
+        for (int column = 0; column < textLength; column++) {
+            int row = buffers.getRow(text.charAt(start + column));
+            // the top row grows by one per column
+            int carry = 1;
+
+            for (int block = 0; block < blockCount; block++) {
+                int carryIn = carry;
+                long equality = row < 0 ? 0L : equalities[row * blockCount + block];
+                long vertical1 = positive[block];
+                long vertical0 = negative[block];
+                long verticalMix = equality | vertical0;
+
+                if (carryIn < 0) {
+                    equality |= 1L;
+                }
+
+                long horizontalMix = (((equality & vertical1) + vertical1) ^ vertical1) | equality;
+                long horizontal1 = vertical0 | ~(horizontalMix | vertical1);
+                long horizontal0 = vertical1 & horizontalMix;
+                long outBit = block == lastBlock ? lastBit : Long.MIN_VALUE;
+
+                carry = (horizontal1 & outBit) != 0 ? 1 : (horizontal0 & outBit) != 0 ? -1 : 0;
+                horizontal1 = (horizontal1 << 1) | (carryIn > 0 ? 1L : 0L);
+                horizontal0 = (horizontal0 << 1) | (carryIn < 0 ? 1L : 0L);
+
+                positive[block] = horizontal0 | ~(verticalMix | horizontal1);
+                negative[block] = horizontal1 & verticalMix;
+            }
+
+            score += carry;
+
+            // each remaining column lowers the score by one at most
+            if (score - (textLength - column - 1) > maxDistance) {
+                return score - (textLength - column - 1);
+            }
+        }
+
+        return score;
+    }
+
+    /**
+     * Buffers reused by the computations of a thread.
+     */
+    private static class Buffers {
+        /**
+         * Characters of the pattern in an open-addressing table.
+         */
+        private char[] keys = new char[0];
+
+        /**
+         * Generation in which a slot of the key table was filled.
+         */
+        private int[] generations = new int[0];
+
+        /**
+         * Current generation of the key table.
+         */
+        private int generation = 0;
+
+        /**
+         * Mask for slots of the key table.
+         */
+        private int mask;
+
+        /**
+         * Number of blocks of the current pattern.
+         */
+        private int blockCount;
+
+        /**
+         * Equality bit vectors per slot of the key table and block.
+         */
+        private long[] equalities = new long[0];
+
+        /**
+         * Vertical positive deltas per block.
+         */
+        private long[] positive = new long[0];
+
+        /**
+         * Vertical negative deltas per block.
+         */
+        private long[] negative = new long[0];
+
+        /**
+         * Fills the buffers for a pattern range.
+         *
+         * @param pattern    the pattern
+         * @param start      start of the range
+         * @param end        end of the range
+         * @param blockCount number of blocks
+         */
+        public void prepare(CharSequence pattern, int start, int end, int blockCount) {
+            int slotCount = Integer.highestOneBit(Math.max(1, end - start) * 2 - 1) * 2;
+
+            if (keys.length < slotCount) {
+                keys = new char[slotCount];
+                generations = new int[slotCount];
+                generation = 0;
+            }
+
+            if (++generation == 0) {
+                Arrays.fill(generations, 0);
+                generation = 1;
+            }
+
+            mask = keys.length - 1;
+            this.blockCount = blockCount;
+
+            if (equalities.length < keys.length * blockCount) {
+                equalities = new long[keys.length * blockCount];
+            }
+
+            if (positive.length < blockCount) {
+                positive = new long[blockCount];
+                negative = new long[blockCount];
+            }
+
+            for (int index = start; index < end; index++) {
+                int row = getSlot(pattern.charAt(index));
+                int position = index - start;
+                equalities[row * blockCount + position / BLOCK_SIZE] |= 1L << (position % BLOCK_SIZE);
+            }
+
+            Arrays.fill(positive, 0, blockCount, -1L);
+            Arrays.fill(negative, 0, blockCount, 0L);
+        }
+
+        /**
+         * Returns the slot of a pattern character, adding it with cleared bit vectors if necessary.
+         *
+         * @param character a pattern character
+         * @return A slot index.
+         */
+        private int getSlot(char character) {
+            int slot = (character * 0x9E3779B1 >>> 16) & mask;
+
+            while (generations[slot] == generation && keys[slot] != character) {
+                slot = (slot + 1) & mask;
+            }
+
+            if (generations[slot] != generation) {
+                generations[slot] = generation;
+                keys[slot] = character;
+                Arrays.fill(equalities, slot * blockCount, (slot + 1) * blockCount, 0L);
+            }
+
+            return slot;
+        }
+
+        /**
+         * Returns the slot of a text character.
+         *
+         * @param character a text character
+         * @return A slot index, or -1 if the character is not part of the pattern.
+         */
+        public int getRow(char character) {
+            int slot = (character * 0x9E3779B1 >>> 16) & mask;
+
+            while (generations[slot] == generation) {
+                if (keys[slot] == character) {
+                    return slot;
+                }
+
+                slot = (slot + 1) & mask;
+            }
+
+            return -1;
+        }
+    }
+}
@@ -95,6 +95,13 @@ public interface IInboundContextPackageDao extends IDao<InboundContextPackage> {
      */
     void matchContextsByHash(InboundContextPackage contextPackage);
 
+    /**
+     * Marks inbound context packages as completed, so that they are listed.
+     *
+     * @param contextPackages packages of inbound contexts whose contexts are all written
+     */
+    void complete(List<InboundContextPackage> contextPackages);
+
     /**
      * Imports inbound contexts of an inbound context package, removes old contexts and adds new contexts.
      *
@@ -19,6 +19,7 @@ import javax.persistence.Table;
 @OptimisticLocking(type = OptimisticLockType.VERSION)
 @Table(name = "inbound_context", indexes = {
         @Index(columnList = "hash"),
+        @Index(columnList = "fingerprint"),
         @Index(columnList = "keyword, location")
 })
 public class InboundContext extends BaseContext {
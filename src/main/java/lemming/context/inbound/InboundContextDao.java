@@ -309,7 +309,7 @@ public class InboundContextDao extends GenericDao<InboundContext> implements IIn
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             InboundContext ancestor = findAncestor(entityManager, firstUnmatchedContext);
             InboundContext successor = findSuccessor(entityManager, lastUnmatchedContext);
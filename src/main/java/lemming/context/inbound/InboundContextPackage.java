@@ -48,6 +48,12 @@ public class InboundContextPackage extends DatedEntity implements Serializable {
     @Type(type = "timestamp")
     private Timestamp lockTimestamp;
 
+    /**
+     * True if all contexts of an inbound context package are written.
+     */
+    @Column(name = "completed", nullable = false)
+    private Boolean completed = false;
+
     /**
      * Owner of an inbound context package.
      */
@@ -139,6 +145,24 @@ public class InboundContextPackage extends DatedEntity implements Serializable {
         this.lockTimestamp = lockTimestamp;
     }
 
+    /**
+     * Checks if all contexts of a context package are written.
+     *
+     * @return True if the context package is completed; false otherwise.
+     */
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Sets whether all contexts of a context package are written.
+     *
+     * @param completed true if the context package is completed
+     */
+    public void setCompleted(Boolean completed) {
+        this.completed = completed;
+    }
+
     /**
      * Returns the owner of a context package.
      *
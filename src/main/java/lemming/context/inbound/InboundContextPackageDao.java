@@ -3,9 +3,11 @@ package lemming.context.inbound;
 import lemming.context.Comment;
 import lemming.context.Context;
 import lemming.data.EntityManagerListener;
+import lemming.data.FingerprintBackfill;
 import lemming.data.GenericDao;
 import org.hibernate.StaleObjectStateException;
 import org.hibernate.UnresolvableObjectException;
+import org.hibernate.query.NativeQuery;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityTransaction;
@@ -103,8 +105,44 @@ public class InboundContextPackageDao extends GenericDao<InboundContextPackage>
         }
     }
 
+    /**
+     * Removes a context package and its contexts by bulk deletes, without loading the contexts.
+     *
+     * @param primaryKey ID of a context package
+     * @throws RuntimeException
+     */
+    @Override
+    public void removeByPrimaryKey(Object primaryKey) throws RuntimeException {
+        EntityManager entityManager = EntityManagerListener.createEntityManager();
+        EntityTransaction transaction = null;
+
+        try {
+            transaction = entityManager.getTransaction();
+            transaction.begin();
+            entityManager.createQuery("DELETE FROM InboundContext i WHERE i._package.id = :packageId")
+                    .setParameter("packageId", primaryKey).executeUpdate();
+            entityManager.createQuery("DELETE FROM InboundContextPackage i WHERE i.id = :packageId")
+                    .setParameter("packageId", primaryKey).executeUpdate();
+            invalidateCountsAfterCommit(entityManager, InboundContext.class, InboundContextPackage.class);
+            transaction.commit();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            throw e;
+        } finally {
+            entityManager.close();
+        }
+    }
+
     /**
      * {@inheritDoc}
+     * <p>
+     * Only completed packages are returned, so that packages are not listed while an import job writes their
+     * contexts.
      *
      * @throws RuntimeException
      */
@@ -114,10 +152,11 @@ public class InboundContextPackageDao extends GenericDao<InboundContextPackage>
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<InboundContextPackage> query = entityManager.createQuery("SELECT i FROM InboundContextPackage i " +
-                    "ORDER BY i.created, i.user.realName", InboundContextPackage.class);
+                    "WHERE i.completed = true ORDER BY i.created, i.user.realName, i.id",
+                    InboundContextPackage.class);
             List<InboundContextPackage> contextPackageList = query.getResultList();
             transaction.commit();
             return contextPackageList;
@@ -145,7 +184,7 @@ public class InboundContextPackageDao extends GenericDao<InboundContextPackage>
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<InboundContext> query = entityManager.createQuery("SELECT i FROM InboundContext i " +
                     "WHERE i._package = :package", InboundContext.class);
@@ -176,7 +215,7 @@ public class InboundContextPackageDao extends GenericDao<InboundContextPackage>
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<String> query = entityManager.createQuery("SELECT i.location FROM InboundContext i " +
                     "WHERE i._package = :package ORDER BY i.location ASC", String.class);
@@ -213,7 +252,7 @@ public class InboundContextPackageDao extends GenericDao<InboundContextPackage>
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<String> query = entityManager.createQuery("SELECT i.location FROM InboundContext i " +
                     "WHERE i._package = :package ORDER BY i.location DESC", String.class);
@@ -281,7 +320,7 @@ public class InboundContextPackageDao extends GenericDao<InboundContextPackage>
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<InboundContext> query = entityManager.createQuery("SELECT i FROM InboundContext i " +
                             "WHERE i._package = :package AND i.match IS NULL ORDER BY i.location, i.number",
@@ -313,7 +352,7 @@ public class InboundContextPackageDao extends GenericDao<InboundContextPackage>
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<String> query = entityManager.createQuery("SELECT DISTINCT(i.location) " +
                             "FROM InboundContext i WHERE i._package = :package AND i.match IS NULL " +
@@ -369,7 +408,7 @@ public class InboundContextPackageDao extends GenericDao<InboundContextPackage>
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             List<InboundContext> contexts = findUnmatchedContextsByLocation(entityManager, contextPackage, location);
             transaction.commit();
@@ -400,7 +439,7 @@ public class InboundContextPackageDao extends GenericDao<InboundContextPackage>
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<InboundContext> query = entityManager.createQuery("SELECT i FROM InboundContext i " +
                     "WHERE i._package = :package AND i.location = :location " +
@@ -536,38 +575,56 @@ public class InboundContextPackageDao extends GenericDao<InboundContextPackage>
     }
 
     /**
-     * Removes matches from inbound contexts with multiple possible matches.
+     * Returns the property used as key to match contexts. Fingerprints are used once all contexts have one.
      *
-     * @param entityManager entityManager entity manager
-     * @param contextPackage a package of inbound contexts
+     * @return A property name.
+     * @see FingerprintBackfill
      */
-    private void removeDuplicateMatches(EntityManager entityManager, InboundContextPackage contextPackage) {
-        TypedQuery<String> selectQuery = entityManager.createQuery("SELECT c.hash FROM Context c " +
-                "GROUP BY c.hash HAVING COUNT(c.hash) > 1", String.class);
-        List<String> duplicateHashes = selectQuery.getResultList();
-
-        for (String hash : duplicateHashes) {
-            javax.persistence.Query updateQuery = entityManager.createQuery("UPDATE InboundContext " +
-                    "SET match_id = NULL WHERE hash = :hash AND package_id = :package");
-            updateQuery.setParameter("hash", hash).setParameter("package", contextPackage).executeUpdate();
-        }
+    private String getMatchKey() {
+        return FingerprintBackfill.isComplete() ? "fingerprint" : "hash";
     }
 
     /**
-     * Removes matches from inbound contexts with duplicate hashes.
+     * {@inheritDoc}
+     * <p>
+     * Inbound contexts of the package are matched with one join update, so that the number of statements doesn't
+     * depend on the size of the package. An inbound context remains without match if its key belongs to several
+     * contexts or to several inbound contexts. Duplicates are only looked up for the keys of the package, through the
+     * key indexes, so that matching costs depend on the size of the package rather than the number of contexts.
      *
-     * @param entityManager entityManager entity manager
-     * @param contextPackage a package of inbound contexts
+     * @throws RuntimeException
      */
-    private void removeMatchesFromDuplicateContexts(EntityManager entityManager, InboundContextPackage contextPackage) {
-        TypedQuery<String> selectQuery = entityManager.createQuery("SELECT i.hash FROM InboundContext i " +
-                "GROUP BY i.hash HAVING COUNT(i.hash) > 1", String.class);
-        List<String> duplicateHashes = selectQuery.getResultList();
-
-        for (String hash : duplicateHashes) {
-            javax.persistence.Query updateQuery = entityManager.createQuery("UPDATE InboundContext " +
-                    "SET match_id = NULL WHERE hash = :hash AND package_id = :package");
-            updateQuery.setParameter("hash", hash).setParameter("package", contextPackage).executeUpdate();
+    @Override
+    public void matchContextsByHash(InboundContextPackage contextPackage) {
+        EntityManager entityManager = EntityManagerListener.createEntityManager();
+        EntityTransaction transaction = null;
+
+        try {
+            transaction = entityManager.getTransaction();
+            transaction.begin();
+            String matchKey = getMatchKey();
+            // match keys are mapped to columns of the same name; every joined row of an ambiguous key sets null
+            // synchronizing the query with inbound contexts evicts their cached entities and queries
+            entityManager.createNativeQuery("UPDATE inbound_context i " +
+                    "LEFT JOIN context c ON c." + matchKey + " = i." + matchKey + " " +
+                    "LEFT JOIN context dc ON dc." + matchKey + " = c." + matchKey + " AND dc.id <> c.id " +
+                    "LEFT JOIN inbound_context di ON di." + matchKey + " = i." + matchKey + " AND di.id <> i.id " +
+                    "SET i.match_id = IF(dc.id IS NULL AND di.id IS NULL, c.id, NULL) " +
+                    "WHERE i.package_id = :package")
+                    .unwrap(NativeQuery.class).addSynchronizedEntityClass(InboundContext.class)
+                    .setParameter("package", contextPackage.getId()).executeUpdate();
+            invalidateCountsAfterCommit(entityManager, InboundContext.class);
+            transaction.commit();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            throw e;
+        } finally {
+            entityManager.close();
         }
     }
 
@@ -577,38 +634,26 @@ public class InboundContextPackageDao extends GenericDao<InboundContextPackage>
      * @throws RuntimeException
      */
     @Override
-    public void matchContextsByHash(InboundContextPackage contextPackage) {
+    public void complete(List<InboundContextPackage> contextPackages) {
         EntityManager entityManager = EntityManagerListener.createEntityManager();
         EntityTransaction transaction = null;
-        Context context = null;
-        Integer batchSize = 50;
-        Integer counter = 0;
+        List<Integer> packageIds = new ArrayList<>();
+
+        for (InboundContextPackage contextPackage : contextPackages) {
+            packageIds.add(contextPackage.getId());
+        }
+
+        if (packageIds.isEmpty()) {
+            return;
+        }
 
         try {
             transaction = entityManager.getTransaction();
             transaction.begin();
-            TypedQuery<Context> selectQuery = entityManager.createQuery("SELECT c FROM InboundContext i " +
-                    "INNER JOIN Context c ON i.hash = c.hash WHERE i._package = :package", Context.class);
-            List<Context> contexts = selectQuery.setParameter("package", contextPackage).getResultList();
-
-            for (Iterator<Context> iterator = contexts.iterator(); iterator.hasNext(); context = iterator.next()) {
-                javax.persistence.Query updateQuery = entityManager.createQuery("UPDATE InboundContext " +
-                        "SET match_id = :id WHERE hash = :hash AND package_id = :package");
-
-                if (context != null) {
-                    updateQuery.setParameter("id", context.getId()).setParameter("hash", context.getHash())
-                            .setParameter("package", contextPackage).executeUpdate();
-                    counter++;
-                }
-
-                if (counter % batchSize == 0) {
-                    entityManager.flush();
-                    entityManager.clear();
-                }
-            }
-
-            removeDuplicateMatches(entityManager, contextPackage);
-            removeMatchesFromDuplicateContexts(entityManager, contextPackage);
+            entityManager.createQuery("UPDATE InboundContextPackage i SET i.completed = true, " +
+                    "i.version = i.version + 1 WHERE i.id IN :packageIds")
+                    .setParameter("packageIds", packageIds).executeUpdate();
+            invalidateCountsAfterCommit(entityManager, InboundContextPackage.class);
             transaction.commit();
         } catch (RuntimeException e) {
             e.printStackTrace();
@@ -617,13 +662,7 @@ public class InboundContextPackageDao extends GenericDao<InboundContextPackage>
                 transaction.rollback();
             }
 
-            if (e instanceof StaleObjectStateException) {
-                panicOnSaveLockingError(context, e);
-            } else if (e instanceof UnresolvableObjectException) {
-                panicOnSaveUnresolvableObjectError(context, e);
-            } else {
-                throw e;
-            }
+            throw e;
         } finally {
             entityManager.close();
         }
@@ -728,6 +767,8 @@ public class InboundContextPackageDao extends GenericDao<InboundContextPackage>
                 }
             }
 
+            invalidateCountsAfterCommit(entityManager, Context.class, InboundContext.class,
+                    InboundContextPackage.class);
             transaction.commit();
         } catch (RuntimeException e) {
             e.printStackTrace();
@@ -10,7 +10,6 @@ import org.apache.wicket.markup.html.link.Link;
 import org.apache.wicket.markup.repeater.RepeatingView;
 import org.apache.wicket.model.IModel;
 
-import javax.ws.rs.core.MultivaluedMap;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -98,8 +97,7 @@ class InboundContextVerificationForm extends Form<InboundContextPackage> {
      */
     private List<Triple> computeMatchingTriples(List<InboundContext> contexts, List<Context> complements) {
         if (complements != null) {
-            MultivaluedMap<Integer, Triple> distanceMap = MatchHelper.getTriples(complements, contexts);
-            return MatchHelper.computeMatchingTriples(distanceMap);
+            return MatchHelper.computeMatchingTriples(complements, contexts);
         }
 
         return new ArrayList<>();
@@ -2,61 +2,201 @@ package lemming.context.inbound;
 
 import lemming.context.BaseContext;
 import lemming.context.Context;
-import name.fraser.neil.plaintext.diff_match_patch;
+import org.apache.wicket.Application;
+import org.apache.wicket.protocol.http.WebApplication;
 
-import javax.ws.rs.core.MultivaluedHashMap;
-import javax.ws.rs.core.MultivaluedMap;
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * A helper class for context matching.
  */
 public abstract class MatchHelper {
     /**
-     * Returns the Levenshtein Distance between two texts.
+     * Distance of a pair pruned by the candidate filter in a matrix of distances.
+     */
+    private static final int PRUNED = -1;
+
+    /**
+     * Name of the context parameter defining the mode of computing matching triples.
+     */
+    private static final String MODE_PARAMETER = "lemming.matchMode";
+
+    /**
+     * Name of the context parameter defining the maximum distance of matched pairs.
+     */
+    private static final String MAX_DISTANCE_PARAMETER = "lemming.matchMaxDistance";
+
+    /**
+     * Modes of computing matching triples.
+     */
+    public enum Mode {
+        /**
+         * An optimal order-preserving alignment of contexts.
+         */
+        ALIGNMENT,
+        /**
+         * Applies pairs greedily in order of lowest distance.
+         */
+        GREEDY
+    }
+
+    /**
+     * Returns the mode of computing matching triples configured by a context parameter, or the alignment mode.
      *
-     * @param text1 text 1
-     * @param text2 text 2
-     * @return The Levenshtein distance.
+     * @return A mode of computing matching triples.
      */
-    private static Integer getLeventstheinDistance(String text1, String text2) {
-        diff_match_patch diffMatchPatch = new diff_match_patch();
-        LinkedList<diff_match_patch.Diff> diffs = diffMatchPatch.diff_main(text1, text2, false);
-        return diffMatchPatch.diff_levenshtein(diffs);
+    private static Mode getMode() {
+        if (Application.exists() && Application.get() instanceof WebApplication) {
+            WebApplication application = (WebApplication) Application.get();
+            String modeValue = application.getServletContext().getInitParameter(MODE_PARAMETER);
+
+            if (modeValue != null && !modeValue.trim().isEmpty()) {
+                return Mode.valueOf(modeValue.trim().toUpperCase());
+            }
+        }
+
+        return Mode.ALIGNMENT;
     }
 
     /**
-     * Returns the Levenshtein distance between two contexts.
+     * Returns the maximum distance of matched pairs configured by a context parameter. A maximum of 0 or none means
+     * that every pair gets its distance.
      *
-     * @param context1 context 1
-     * @param context2 context 2
-     * @return The Levenshtein distance.
+     * @return A distance, or Integer.MAX_VALUE if there is no maximum.
      */
-    private static Integer getDistance(BaseContext context1, BaseContext context2) {
-        String context1String = context1.toString("#");
-        String context2String = context2.toString("#");
-        return getLeventstheinDistance(context1String, context2String);
+    private static Integer getMaxDistance() {
+        if (Application.exists() && Application.get() instanceof WebApplication) {
+            WebApplication application = (WebApplication) Application.get();
+            String maxDistanceValue = application.getServletContext().getInitParameter(MAX_DISTANCE_PARAMETER);
+
+            if (maxDistanceValue != null && !maxDistanceValue.trim().isEmpty() &&
+                    Integer.valueOf(maxDistanceValue.trim()) > 0) {
+                return Integer.valueOf(maxDistanceValue.trim());
+            }
+        }
+
+        return Integer.MAX_VALUE;
     }
 
     /**
-     * Computes distances between contexts.
+     * Returns the text of a context which is compared with other contexts.
+     *
+     * @param context a context
+     * @return A string value for a context.
+     */
+    private static String getText(BaseContext context) {
+        return context.toString("#");
+    }
+
+    /**
+     * Returns the texts of contexts which are compared with other contexts.
      *
      * @param contexts list of contexts
-     * @param inboundContexts list of inbound contexts
-     * @return A map of triples.
+     * @return An array of texts, in order of contexts.
+     */
+    private static String[] getTexts(List<? extends BaseContext> contexts) {
+        String[] texts = new String[contexts.size()];
+
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = getText(contexts.get(i));
+        }
+
+        return texts;
+    }
+
+    /**
+     * Returns the edit distance between the texts of two contexts.
+     *
+     * @param text1 text of context 1
+     * @param text2 text of context 2
+     * @return The edit distance.
+     * @see DiffDistance
      */
-    public static MultivaluedMap<Integer, Triple> getTriples(List<Context> contexts,
-                                                             List<InboundContext> inboundContexts) {
-        MultivaluedMap<Integer, Triple> distanceMap = new MultivaluedHashMap<>();
+    private static Integer getDistance(String text1, String text2) {
+        return DiffDistance.getDistance(text1, text2);
+    }
 
-        for (int i = 0; i < contexts.size(); i++) {
-            for (int j = 0; j < inboundContexts.size(); j++) {
-                Integer distance = getDistance(contexts.get(i), inboundContexts.get(j));
-                distanceMap.add(distance, new Triple(contexts.get(i), i, distance, inboundContexts.get(j), j));
+    /**
+     * Returns the edit distance between the texts of two contexts, if it doesn’t exceed a maximum. The Levenshtein
+     * distance is a lower bound of the edit distance, so it rules out most pairs beyond the maximum more cheaply.
+     * Without a maximum, which is the default, every pair gets the full diff distance, so matching is no faster than
+     * with diff-match-patch.
+     *
+     * @param text1 text of context 1
+     * @param text2 text of context 2
+     * @param maxDistance maximum distance, or Integer.MAX_VALUE
+     * @return The edit distance, or PRUNED if the distance exceeds the maximum.
+     */
+    private static int getDistance(String text1, String text2, Integer maxDistance) {
+        if (maxDistance == Integer.MAX_VALUE) {
+            return getDistance(text1, text2);
+        } else if (EditDistance.getDistance(text1, text2, maxDistance) > maxDistance) {
+            return PRUNED;
+        }
+
+        int distance = getDistance(text1, text2);
+        return distance > maxDistance ? PRUNED : distance;
+    }
+
+    /**
+     * Computes distances between texts of contexts. Rows of the matrix are computed in parallel on the common
+     * fork-join pool.
+     * <p>
+     * Pairs pruned by the candidate filter or beyond the maximum distance get PRUNED instead of their distance.
+     *
+     * @param contextTexts texts of contexts
+     * @param inboundContextTexts texts of inbound contexts
+     * @param filter filter pruning pairs
+     * @param maxDistance maximum distance, or Integer.MAX_VALUE
+     * @return A matrix of distances with a row per context and a column per inbound context, in row-major order.
+     * @see #isPruned(int)
+     */
+    private static int[] getDistances(String[] contextTexts, String[] inboundContextTexts, CandidateFilter filter,
+                                      Integer maxDistance) {
+        int columnCount = inboundContextTexts.length;
+        int[] distances = new int[contextTexts.length * columnCount];
+        int[][] contextSignatures = getSignatures(contextTexts, filter);
+        int[][] inboundContextSignatures = getSignatures(inboundContextTexts, filter);
+
+        IntStream.range(0, contextTexts.length).parallel().forEach(i -> {
+            for (int j = 0; j < columnCount; j++) {
+                if (filter.isCandidate(contextSignatures[i], inboundContextSignatures[j])) {
+                    distances[i * columnCount + j] = getDistance(contextTexts[i], inboundContextTexts[j], maxDistance);
+                } else {
+                    distances[i * columnCount + j] = PRUNED;
+                }
             }
+        });
+
+        return distances;
+    }
+
+    /**
+     * Computes signatures of texts for a candidate filter, in parallel.
+     *
+     * @param texts texts of contexts
+     * @param filter filter pruning pairs
+     * @return An array of signatures, in order of texts, or an array of nulls if the filter is disabled.
+     */
+    private static int[][] getSignatures(String[] texts, CandidateFilter filter) {
+        int[][] signatures = new int[texts.length][];
+
+        if (filter.isEnabled()) {
+            IntStream.range(0, texts.length).parallel().forEach(i -> signatures[i] = filter.getSignature(texts[i]));
         }
 
-        return distanceMap;
+        return signatures;
+    }
+
+    /**
+     * Checks if a pair of texts was pruned from a matrix of distances.
+     *
+     * @param distance distance of the pair in the matrix
+     * @return True if the pair was pruned; false otherwise.
+     */
+    private static boolean isPruned(int distance) {
+        return distance == PRUNED;
     }
 
     /**
@@ -81,23 +221,22 @@ public abstract class MatchHelper {
     }
 
     /**
-     * Checks if a triple has no intersection with triples in a list.
+     * Checks if a pair of contexts has no intersection with pairs in a list.
      *
-     * @param triple a triple
-     * @param triples list of triples
+     * @param contextIndex index of a context
+     * @param inboundContextIndex index of an inbound context
+     * @param pairs list of pairs of context index and inbound context index
      * @return True if there is no intersection; false otherwise.
      */
-    private static boolean hasNoIntersectionWith(Triple triple, List<Triple> triples) {
-        for (Triple t : triples) {
-            if (t.getContextIndex().equals(triple.getContextIndex())) {
+    private static boolean hasNoIntersectionWith(int contextIndex, int inboundContextIndex, List<int[]> pairs) {
+        for (int[] pair : pairs) {
+            if (pair[0] == contextIndex) {
                 return false;
-            } else if (t.getInboundContextIndex().equals(triple.getInboundContextIndex())) {
+            } else if (pair[1] == inboundContextIndex) {
                 return false;
-            } else if (t.getContextIndex() < triple.getContextIndex() &&
-                    t.getInboundContextIndex() > triple.getInboundContextIndex()) {
+            } else if (pair[0] < contextIndex && pair[1] > inboundContextIndex) {
                 return false;
-            } else if (t.getContextIndex() > triple.getContextIndex() &&
-                    t.getInboundContextIndex() < triple.getInboundContextIndex()) {
+            } else if (pair[0] > contextIndex && pair[1] < inboundContextIndex) {
                 return false;
             }
         }
@@ -106,27 +245,286 @@ public abstract class MatchHelper {
     }
 
     /**
-     * Applies triples in order of lowest distance if they don’t have an intersection with each other.
+     * Computes matching triples in the configured mode, by default with an optimal order-preserving alignment of
+     * contexts.
      *
+     * @param contexts list of contexts
+     * @param inboundContexts list of inbound contexts
+     * @return A list of triples.
+     */
+    public static List<Triple> computeMatchingTriples(List<Context> contexts, List<InboundContext> inboundContexts) {
+        return computeMatchingTriples(contexts, inboundContexts, getMode(), CandidateFilter.get());
+    }
+
+    /**
+     * Computes matching triples. No two triples share a context, and triples never cross, i.e. the order of
+     * contexts is preserved. Alignment leaves contexts unmatched rather than pairing unrelated or pruned texts,
+     * whereas greedy matching applies pairs pruned by the candidate filter only after all candidate pairs.
+     *
+     * @param contexts list of contexts
+     * @param inboundContexts list of inbound contexts
+     * @param mode mode of computing matching triples
+     * @param filter filter pruning pairs before their distance is computed
      * @return A list of triples.
      */
-    public static List<Triple> computeMatchingTriples(MultivaluedMap<Integer, Triple> distanceMap) {
-        TreeSet<Integer> distanceSet = new TreeSet<>(distanceMap.keySet());
-        ArrayList<Triple> appliedTriples = new ArrayList<>();
+    public static List<Triple> computeMatchingTriples(List<Context> contexts, List<InboundContext> inboundContexts,
+                                                      Mode mode, CandidateFilter filter) {
+        String[] contextTexts = getTexts(contexts);
+        String[] inboundContextTexts = getTexts(inboundContexts);
+        int[] distances = getDistances(contextTexts, inboundContextTexts, filter, getMaxDistance());
+        List<int[]> pairs;
+
+        if (mode == Mode.GREEDY) {
+            pairs = getGreedyPairs(distances, inboundContextTexts.length);
+        } else {
+            pairs = new Alignment(contextTexts, inboundContextTexts, distances).getPairs();
+        }
+
+        ArrayList<Triple> triples = new ArrayList<>();
+
+        for (int[] pair : pairs) {
+            int i = pair[0];
+            int j = pair[1];
+            int distance = distances[i * inboundContexts.size() + j];
+
+            if (isPruned(distance)) {
+                distance = getDistance(contextTexts[i], inboundContextTexts[j]);
+            }
+
+            triples.add(new Triple(contexts.get(i), i, distance, inboundContexts.get(j), j));
+        }
+
+        return triples;
+    }
+
+    /**
+     * Applies pairs of contexts in order of lowest distance if they don’t have an intersection with each other.
+     * Pairs of equal distance are applied in order of contexts, then inbound contexts. Pruned pairs come last.
+     *
+     * @param distances matrix of distances
+     * @param columnCount number of inbound contexts
+     * @return A list of pairs of context index and inbound context index, in order of application.
+     */
+    private static List<int[]> getGreedyPairs(int[] distances, int columnCount) {
+        long[] pairs = new long[distances.length];
+        List<int[]> appliedPairs = new ArrayList<>();
+
+        // a distance in the high bits and a matrix index in the low bits sort pairs by distance, then index
+        for (int index = 0; index < distances.length; index++) {
+            int distance = distances[index];
+
+            if (isPruned(distance)) {
+                distance = Integer.MAX_VALUE;
+            }
+
+            pairs[index] = ((long) distance << Integer.SIZE) | index;
+        }
+
+        Arrays.sort(pairs);
+
+        for (long pair : pairs) {
+            int index = (int) pair;
+            int i = index / columnCount;
+            int j = index % columnCount;
+
+            if (hasNoIntersectionWith(i, j, appliedPairs)) {
+                appliedPairs.add(new int[]{i, j});
+            }
+        }
+
+        return appliedPairs;
+    }
+
+    /**
+     * An order-preserving alignment of contexts and inbound contexts with maximum weight.
+     * <p>
+     * A pair weighs the length of its longer text minus twice the distance of both texts, i.e. a pair is worth
+     * aligning only if its texts have more in common than not. Pairs of unrelated texts and pairs pruned by the
+     * candidate filter weigh nothing, so that both contexts stay unmatched. Positive weights are scaled so that more
+     * pairs win among alignments of equal weight. The alignment is computed like a weighted longest common
+     * subsequence, split in the middle row in the manner of Hirschberg, so that scores need memory per column only.
+     */
+    private static class Alignment {
+        /**
+         * Lengths of the texts of contexts.
+         */
+        private final int[] contextLengths;
+
+        /**
+         * Lengths of the texts of inbound contexts.
+         */
+        private final int[] inboundContextLengths;
+
+        /**
+         * Matrix of distances.
+         */
+        private final int[] distances;
+
+        /**
+         * Factor by which weights are scaled.
+         */
+        private final long scale;
+
+        /**
+         * Forward scores per column.
+         */
+        private final long[] forwardScores;
+
+        /**
+         * Backward scores per column.
+         */
+        private final long[] backwardScores;
+
+        /**
+         * Aligned pairs of context index and inbound context index, in order of contexts.
+         */
+        private final List<int[]> pairs = new ArrayList<>();
 
-        for (Integer distance : distanceSet) {
-            List<Triple> triples = distanceMap.get(distance);
+        /**
+         * Creates an alignment.
+         *
+         * @param contextTexts texts of contexts
+         * @param inboundContextTexts texts of inbound contexts
+         * @param distances matrix of distances
+         */
+        public Alignment(String[] contextTexts, String[] inboundContextTexts, int[] distances) {
+            this.contextLengths = new int[contextTexts.length];
+            this.inboundContextLengths = new int[inboundContextTexts.length];
+            this.distances = distances;
+            this.scale = Math.min(contextTexts.length, inboundContextTexts.length) + 1L;
+            this.forwardScores = new long[inboundContextTexts.length + 1];
+            this.backwardScores = new long[inboundContextTexts.length + 1];
 
-            for (Triple triple : triples) {
-                if (appliedTriples.isEmpty()) {
-                    appliedTriples.add(triple);
-                } else if (hasNoIntersectionWith(triple, appliedTriples)) {
-                    appliedTriples.add(triple);
+            for (int i = 0; i < contextTexts.length; i++) {
+                contextLengths[i] = contextTexts[i].length();
+            }
+
+            for (int j = 0; j < inboundContextTexts.length; j++) {
+                inboundContextLengths[j] = inboundContextTexts[j].length();
+            }
+
+            align(0, contextLengths.length, 0, inboundContextLengths.length);
+        }
+
+        /**
+         * Returns the aligned pairs.
+         *
+         * @return A list of pairs of context index and inbound context index, in order of contexts.
+         */
+        public List<int[]> getPairs() {
+            return pairs;
+        }
+
+        /**
+         * Returns the weight of aligning a context with an inbound context.
+         *
+         * @param i index of a context
+         * @param j index of an inbound context
+         * @return A positive weight, or 0 if both contexts are better left unmatched.
+         */
+        private long getWeight(int i, int j) {
+            int distance = distances[i * inboundContextLengths.length + j];
+
+            if (isPruned(distance)) {
+                return 0;
+            }
+
+            long similarity = Math.max(contextLengths[i], inboundContextLengths[j]) - 2L * distance;
+            return similarity > 0 ? similarity * scale + 1 : 0;
+        }
+
+        /**
+         * Aligns a range of contexts with a range of inbound contexts.
+         *
+         * @param rowStart first context
+         * @param rowEnd end of contexts
+         * @param columnStart first inbound context
+         * @param columnEnd end of inbound contexts
+         */
+        private void align(int rowStart, int rowEnd, int columnStart, int columnEnd) {
+            if (rowStart == rowEnd || columnStart == columnEnd) {
+                return;
+            }
+
+            if (rowEnd - rowStart == 1) {
+                int bestColumn = columnStart;
+
+                for (int j = columnStart + 1; j < columnEnd; j++) {
+                    if (getWeight(rowStart, j) > getWeight(rowStart, bestColumn)) {
+                        bestColumn = j;
+                    }
+                }
+
+                if (getWeight(rowStart, bestColumn) > 0) {
+                    pairs.add(new int[]{rowStart, bestColumn});
+                }
+
+                return;
+            }
+
+            int rowMiddle = (rowStart + rowEnd) / 2;
+            int width = columnEnd - columnStart;
+            computeForwardScores(rowStart, rowMiddle, columnStart, columnEnd);
+            computeBackwardScores(rowMiddle, rowEnd, columnStart, columnEnd);
+            int split = 0;
+
+            for (int k = 1; k <= width; k++) {
+                if (forwardScores[k] + backwardScores[k] > forwardScores[split] + backwardScores[split]) {
+                    split = k;
+                }
+            }
+
+            align(rowStart, rowMiddle, columnStart, columnStart + split);
+            align(rowMiddle, rowEnd, columnStart + split, columnEnd);
+        }
+
+        /**
+         * Computes the best scores of aligning a range of contexts with the first k inbound contexts of a range.
+         *
+         * @param rowStart first context
+         * @param rowEnd end of contexts
+         * @param columnStart first inbound context
+         * @param columnEnd end of inbound contexts
+         */
+        private void computeForwardScores(int rowStart, int rowEnd, int columnStart, int columnEnd) {
+            int width = columnEnd - columnStart;
+            Arrays.fill(forwardScores, 0, width + 1, 0L);
+
+            for (int i = rowStart; i < rowEnd; i++) {
+                long diagonal = forwardScores[0];
+
+                for (int k = 1; k <= width; k++) {
+                    long above = forwardScores[k];
+                    forwardScores[k] = Math.max(Math.max(above, forwardScores[k - 1]),
+                            diagonal + getWeight(i, columnStart + k - 1));
+                    diagonal = above;
                 }
             }
         }
 
-        return appliedTriples;
+        /**
+         * Computes the best scores of aligning a range of contexts with the inbound contexts of a range from k on.
+         *
+         * @param rowStart first context
+         * @param rowEnd end of contexts
+         * @param columnStart first inbound context
+         * @param columnEnd end of inbound contexts
+         */
+        private void computeBackwardScores(int rowStart, int rowEnd, int columnStart, int columnEnd) {
+            int width = columnEnd - columnStart;
+            Arrays.fill(backwardScores, 0, width + 1, 0L);
+
+            for (int i = rowEnd - 1; i >= rowStart; i--) {
+                long diagonal = backwardScores[width];
+
+                for (int k = width - 1; k >= 0; k--) {
+                    long below = backwardScores[k];
+                    backwardScores[k] = Math.max(Math.max(below, backwardScores[k + 1]),
+                            diagonal + getWeight(i, columnStart + k));
+                    diagonal = below;
+                }
+            }
+        }
     }
 
     /**
@@ -0,0 +1,56 @@
+package lemming.data;
+
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A resource exposing hit and miss statistics of the second-level and query cache.
+ */
+@Path("cache")
+@RolesAllowed({"ADMIN"})
+public class CacheStatisticsResource {
+    /**
+     * Returns cache statistics per region.
+     *
+     * @return A map of statistics, serialized as JSON.
+     */
+    @GET
+    @Path("statistics")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getStatistics() {
+        Statistics statistics = EntityManagerListener.getStatistics();
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map<String, Object> regions = new LinkedHashMap<>();
+
+        result.put("secondLevelCacheHitCount", statistics.getSecondLevelCacheHitCount());
+        result.put("secondLevelCacheMissCount", statistics.getSecondLevelCacheMissCount());
+        result.put("secondLevelCachePutCount", statistics.getSecondLevelCachePutCount());
+        result.put("queryCacheHitCount", statistics.getQueryCacheHitCount());
+        result.put("queryCacheMissCount", statistics.getQueryCacheMissCount());
+        result.put("queryCachePutCount", statistics.getQueryCachePutCount());
+
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(regionName);
+
+            if (regionStatistics != null) {
+                Map<String, Long> region = new LinkedHashMap<>();
+                region.put("hitCount", regionStatistics.getHitCount());
+                region.put("missCount", regionStatistics.getMissCount());
+                region.put("putCount", regionStatistics.getPutCount());
+                region.put("elementCountInMemory", regionStatistics.getElementCountInMemory());
+                regions.put(regionName, region);
+            }
+        }
+
+        result.put("regions", regions);
+        return result;
+    }
+}
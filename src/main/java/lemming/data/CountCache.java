@@ -0,0 +1,188 @@
+package lemming.data;
+
+import org.hibernate.engine.spi.SessionImplementor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A bounded application-wide cache of item counts, keyed by entity type, filter string and filter property.
+ * <p>
+ * Committed writes of an entity type increment its generation, which makes all cached counts of that type outdated.
+ */
+final class CountCache {
+    /**
+     * Maximum number of cached counts.
+     */
+    private static final Integer MAXIMUM_SIZE = 256;
+
+    /**
+     * Cached counts in least recently used order.
+     */
+    private static final Map<List<Object>, Entry> entries = Collections.synchronizedMap(
+            new LinkedHashMap<List<Object>, Entry>(MAXIMUM_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Object>, Entry> eldest) {
+                    return size() > MAXIMUM_SIZE;
+                }
+            });
+
+    /**
+     * Current generations of entity types.
+     */
+    private static final Map<Class<?>, Long> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Entity types written by sessions, whose counts are made outdated when the transaction of the session completes.
+     */
+    private static final Map<SessionImplementor, Set<Class<?>>> pendingTypes = new ConcurrentHashMap<>();
+
+    /**
+     * Prevents instantiation.
+     */
+    private CountCache() {
+    }
+
+    /**
+     * Returns a cached count.
+     *
+     * @param typeClass entity type
+     * @param filter    filter string, or null
+     * @param property  filter property, or null
+     * @return A cache entry, or null.
+     */
+    static Entry get(Class<?> typeClass, String filter, String property) {
+        return entries.get(Arrays.asList(typeClass, filter, property));
+    }
+
+    /**
+     * Caches a count for a generation of an entity type.
+     * <p>
+     * The generation must be read before the items are counted. A write committed while counting then outdates the
+     * count at once, instead of an old count being stamped with the new generation.
+     *
+     * @param typeClass  entity type
+     * @param filter     filter string, or null
+     * @param property   filter property, or null
+     * @param count      number of items
+     * @param generation generation of the entity type before the items were counted
+     */
+    static void put(Class<?> typeClass, String filter, String property, Long count, Long generation) {
+        entries.put(Arrays.asList(typeClass, filter, property), new Entry(typeClass, count, generation));
+    }
+
+    /**
+     * Makes all cached counts of an entity type outdated.
+     *
+     * @param typeClass entity type
+     */
+    static void invalidate(Class<?> typeClass) {
+        generations.merge(typeClass, 1L, Long::sum);
+    }
+
+    /**
+     * Makes all cached counts of an entity type outdated once the current transaction of a session is committed.
+     * <p>
+     * Counts read before the commit don’t see the written data, so invalidating them earlier would let outdated
+     * counts be cached as current. Each session registers one completion process per transaction.
+     *
+     * @param session   a session with an active transaction
+     * @param typeClass entity type
+     */
+    static void invalidateAfterCommit(SessionImplementor session, Class<?> typeClass) {
+        pendingTypes.computeIfAbsent(session, key -> {
+            key.getActionQueue().registerProcess((success, completedSession) -> {
+                Set<Class<?>> typeClasses = pendingTypes.remove(key);
+
+                if (success && typeClasses != null) {
+                    typeClasses.forEach(CountCache::invalidate);
+                }
+            });
+
+            // a session is used by one thread at a time
+            return new HashSet<>();
+        }).add(typeClass);
+    }
+
+    /**
+     * Returns the current generation of an entity type.
+     *
+     * @param typeClass entity type
+     * @return A generation number.
+     */
+    static Long getGeneration(Class<?> typeClass) {
+        return generations.getOrDefault(typeClass, 0L);
+    }
+
+    /**
+     * A cached count.
+     */
+    static final class Entry {
+        /**
+         * Entity type of the count.
+         */
+        private final Class<?> typeClass;
+
+        /**
+         * Number of items.
+         */
+        private final Long count;
+
+        /**
+         * Generation of the entity type before the items were counted.
+         */
+        private final Long generation;
+
+        /**
+         * Time in milliseconds when the count was cached.
+         */
+        private final Long timestamp;
+
+        /**
+         * Creates a cache entry.
+         *
+         * @param typeClass  entity type
+         * @param count      number of items
+         * @param generation generation of the entity type before the items were counted
+         */
+        private Entry(Class<?> typeClass, Long count, Long generation) {
+            this.typeClass = typeClass;
+            this.count = count;
+            this.generation = generation;
+            this.timestamp = System.currentTimeMillis();
+        }
+
+        /**
+         * Returns the number of items.
+         *
+         * @return Number of items.
+         */
+        Long getCount() {
+            return count;
+        }
+
+        /**
+         * Checks if no write happened since the count was cached.
+         *
+         * @return True if the count is current; false otherwise.
+         */
+        Boolean isCurrent() {
+            return generation.equals(getGeneration(typeClass));
+        }
+
+        /**
+         * Returns the age of the count.
+         *
+         * @return Age in milliseconds.
+         */
+        Long getAge() {
+            return System.currentTimeMillis() - timestamp;
+        }
+    }
+}
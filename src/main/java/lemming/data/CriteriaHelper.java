@@ -1,330 +1,224 @@
 package lemming.data;
 
-import lemming.context.Context;
-import lemming.context.ContextType;
-import lemming.lemma.Lemma;
-import lemming.pos.Pos;
-import org.apache.wicket.model.ResourceModel;
+import org.apache.wicket.Application;
+import org.apache.wicket.Localizer;
+import org.apache.wicket.Session;
 
 import javax.persistence.criteria.*;
-import java.lang.reflect.Array;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A helper class for criteria restrictions.
  */
 final class CriteriaHelper {
     /**
-     * Matches a filter string against a context type.
-     *
-     * @param filter string filter
-     * @return A context type, or null.
+     * Enum labels in upper case, mapped by locale and enum class.
      */
-    private static ContextType.Type matchContextType(String filter) {
-        String rubricString = new ResourceModel("Type.RUBRIC").getObject();
-        String segmentString = new ResourceModel("Type.SEGMENT").getObject();
-        String verseString = new ResourceModel("Type.VERSE").getObject();
-
-        if (rubricString.toUpperCase().startsWith(filter.toUpperCase())) {
-            return ContextType.Type.RUBRIC;
-        } else if (segmentString.toUpperCase().startsWith(filter.toUpperCase())) {
-            return ContextType.Type.SEGMENT;
-        } else if (verseString.toUpperCase().startsWith(filter.toUpperCase())) {
-            return ContextType.Type.VERSE;
-        }
-
-        return null;
-    }
+    private static final ConcurrentMap<List<Object>, String[]> enumLabels = new ConcurrentHashMap<>();
 
     /**
-     * Matches a filter string against a lemma source type.
+     * Matches a filter string against the labels of an enum. Labels are looked up once per locale.
      *
-     * @param filter string filter
-     * @return A lemma source type, or null.
+     * @param enumClass enum class
+     * @param filter    string filter
+     * @return The first enum constant whose label starts with the filter, or null.
      */
-    private static Source.LemmaType matchLemmaSourceType(String filter) {
-        String tlString = new ResourceModel("LemmaType.TL").getObject();
-        String userString = new ResourceModel("LemmaType.USER").getObject();
-
-
-        if (tlString.toUpperCase().startsWith(filter.toUpperCase())) {
-            return Source.LemmaType.TL;
-        } else if (userString.toUpperCase().startsWith(filter.toUpperCase())) {
-            return Source.LemmaType.USER;
+    public static Enum<?> matchEnumLabel(Class<? extends Enum<?>> enumClass, String filter) {
+        Enum<?>[] constants = enumClass.getEnumConstants();
+        String[] labels = getEnumLabels(enumClass);
+        String upperCaseFilter = filter.toUpperCase();
+
+        for (int i = 0; i < constants.length; i++) {
+            if (labels[i].startsWith(upperCaseFilter)) {
+                return constants[i];
+            }
         }
 
         return null;
     }
 
     /**
-     * Matches a filter string against a pos source type.
+     * Returns the labels of an enum in the locale of the current session. A label is looked up by the simple name
+     * of the enum class and the name of the constant, e.g. “LemmaType.TL”.
      *
-     * @param filter string filter
-     * @return A pos source type, or null.
+     * @param enumClass enum class
+     * @return An array of upper-case labels, indexed by ordinal.
      */
-    private static Source.PosType matchPosSourceType(String filter) {
-        String deafString = new ResourceModel("PosType.DEAF").getObject();
-        String userString = new ResourceModel("PosType.USER").getObject();
-
+    private static String[] getEnumLabels(Class<? extends Enum<?>> enumClass) {
+        Locale locale = Session.exists() ? Session.get().getLocale() : Locale.getDefault();
+        List<Object> key = Arrays.asList(locale, enumClass);
+        String[] labels = enumLabels.get(key);
+
+        if (labels == null) {
+            Localizer localizer = Application.get().getResourceSettings().getLocalizer();
+            Enum<?>[] constants = enumClass.getEnumConstants();
+            labels = new String[constants.length];
+
+            for (int i = 0; i < constants.length; i++) {
+                String resourceKey = enumClass.getSimpleName() + "." + constants[i].name();
+                labels[i] = localizer.getString(resourceKey, null, null, locale, null, (String) null).toUpperCase();
+            }
 
-        if (deafString.toUpperCase().startsWith(filter.toUpperCase())) {
-            return Source.PosType.DEAF;
-        } else if (userString.toUpperCase().startsWith(filter.toUpperCase())) {
-            return Source.PosType.USER;
+            enumLabels.putIfAbsent(key, labels);
         }
 
-        return null;
+        return labels;
     }
 
     /**
-     * Returns automatically created context restrictions for a string filter.
+     * Returns the property used to break ties of a context sort property.
      *
-     * @param criteriaBuilder contructor for criteria queries
-     * @param root            query root referencing entities
-     * @param filter          string filter
-     * @return An expression of type boolean, or null.
+     * @param property sort property
+     * @return A tie-breaking sort property, or null.
      */
-    private static Expression<Boolean> getContextFilterStringRestriction(CriteriaBuilder criteriaBuilder,
-                                                                         Root<?> root, String filter) {
-        Predicate predicate = criteriaBuilder.or(
-                criteriaBuilder.like(root.get("location"), filter + "%"),
-                criteriaBuilder.like(root.get("preceding"), filter + "%"),
-                criteriaBuilder.like(root.get("keyword"), filter + "%"),
-                criteriaBuilder.like(root.get("following"), filter + "%"),
-                criteriaBuilder.like(root.get("lemmaString"), filter + "%"),
-                criteriaBuilder.like(root.get("posString"), filter + "%"));
-
-        if (filter.matches("^\\d+$")) {
-            predicate = criteriaBuilder.or(predicate, criteriaBuilder.equal(root.get("number"), filter));
+    private static String getContextTieBreakingProperty(String property) {
+        switch (property) {
+            case "number":
+                return "location";
+            case "lemmaString":
+                return "keyword";
+            case "posString":
+                return "lemmaString";
+            case "location":
+                return "number";
+            case "preceding":
+                return "keyword";
+            case "keyword":
+                return "following";
+            case "following":
+                return "keyword";
         }
 
-        // don’t filter by type
-        //predicate = criteriaBuilder.or(predicate, criteriaBuilder.equal(root.get("type"), filter));
-
-        return predicate;
+        return null;
     }
 
     /**
-     * Returns automatically created context restrictions for a string filter with property.
+     * Returns the properties forming a keyset for context ordering: the sort property, its tie-breaking property
+     * and the ID.
      *
-     * @param criteriaBuilder contructor for criteria queries
-     * @param root            query root referencing entities
-     * @param filter          string filter
-     * @param property        property filter
-     * @return An expression of type boolean, or null.
+     * @param property sort property
+     * @return An array of properties, or null if the sort property is unknown.
      */
-    private static Expression<Boolean> getContextFilterStringRestriction(CriteriaBuilder criteriaBuilder,
-                                                                         Root<?> root, String filter, String property) {
-        if (property.equals("number")) {
-            if (filter.matches("^\\d+$")) {
-                return criteriaBuilder.equal(root.get("number"), filter);
-            } else {
-                return criteriaBuilder.ge(root.get("number"), 0);
-            }
-        } else {
-            return criteriaBuilder.like(root.get(property), filter + "%");
+    public static String[] getContextKeysetProperties(String property) {
+        String tieBreakingProperty = getContextTieBreakingProperty(property);
+
+        if (tieBreakingProperty == null) {
+            return null;
         }
+
+        return new String[]{property, tieBreakingProperty, "id"};
     }
 
     /**
-     * Returns automatically created lemma restrictions for a string filter.
+     * Returns the sort directions of keyset properties for context ordering.
      *
-     * @param criteriaBuilder contructor for criteria queries
-     * @param root            query root referencing entities
-     * @param filter          string filter
-     * @return An expression of type boolean, or null.
+     * @param isAscending sort direction of the sort property
+     * @return An array of sort directions, true meaning ascending.
      */
-    private static Expression<Boolean> getLemmaFilterStringRestriction(CriteriaBuilder criteriaBuilder, Root<?> root,
-                                                                       String filter) {
-        Source.LemmaType source = CriteriaHelper.matchLemmaSourceType(filter);
-
-        if (source != null) {
-            return criteriaBuilder.or(
-                    criteriaBuilder.like(root.get("name"), filter + "%"),
-                    criteriaBuilder.like(root.get("replacementString"), filter + "%"),
-                    criteriaBuilder.like(root.get("posString"), filter + "%"),
-                    criteriaBuilder.equal(root.get("source"), source),
-                    criteriaBuilder.like(root.get("reference"), filter + "%"));
-        } else {
-            return criteriaBuilder.or(
-                    criteriaBuilder.like(root.get("name"), filter + "%"),
-                    criteriaBuilder.like(root.get("replacementString"), filter + "%"),
-                    criteriaBuilder.like(root.get("posString"), filter + "%"),
-                    criteriaBuilder.like(root.get("reference"), filter + "%"));
-        }
+    public static Boolean[] getContextKeysetDirections(Boolean isAscending) {
+        return new Boolean[]{isAscending, true, true};
     }
 
     /**
-     * Returns automatically created pos restrictions for a string filter.
+     * Returns a list of order objects for keyset properties.
      *
      * @param criteriaBuilder contructor for criteria queries
      * @param root            query root referencing entities
-     * @param filter          string filter
-     * @return An expression of type boolean, or null.
+     * @param properties      keyset properties
+     * @param directions      sort directions, true meaning ascending
+     * @return A list of order objects.
      */
-    private static Expression<Boolean> getPosFilterStringRestriction(CriteriaBuilder criteriaBuilder, Root<?> root,
-                                                                     String filter) {
-        Source.PosType source = CriteriaHelper.matchPosSourceType(filter);
-
-        if (source != null) {
-            return criteriaBuilder.or(
-                    criteriaBuilder.like(root.get("name"), filter + "%"),
-                    criteriaBuilder.equal(root.get("source"), source));
-        } else {
-            return criteriaBuilder.like(root.get("name"), filter + "%");
+    public static List<Order> getKeysetOrder(CriteriaBuilder criteriaBuilder, Root<?> root, String[] properties,
+                                             Boolean[] directions) {
+        List<Order> orderList = new ArrayList<>();
+
+        for (int i = 0; i < properties.length; i++) {
+            if (directions[i]) {
+                orderList.add(criteriaBuilder.asc(root.get(properties[i])));
+            } else {
+                orderList.add(criteriaBuilder.desc(root.get(properties[i])));
+            }
         }
+
+        return orderList;
     }
 
     /**
-     * Returns automatically created restrictions for a string filter.
+     * Returns a restriction matching rows which follow a keyset in the given order. NULL values sort first in
+     * ascending order, like in MySQL.
      *
      * @param criteriaBuilder contructor for criteria queries
      * @param root            query root referencing entities
-     * @param joins           map of joins
-     * @param filter          string filter
-     * @param typeClass       data type
-     * @return An expression of type boolean, or null.
+     * @param properties      keyset properties
+     * @param directions      sort directions, true meaning ascending
+     * @param values          keyset values
+     * @return A predicate.
      */
-    public static Expression<Boolean> getFilterStringRestriction(CriteriaBuilder criteriaBuilder, Root<?> root,
-                                                                 Map<String, Join<?, ?>> joins, String filter,
-                                                                 String property, Class<?> typeClass) {
-        if (typeClass.equals(Context.class)) {
-            if (property != null) {
-                return getContextFilterStringRestriction(criteriaBuilder, root, filter, property);
-            } else {
-                return getContextFilterStringRestriction(criteriaBuilder, root, filter);
+    public static Predicate getKeysetRestriction(CriteriaBuilder criteriaBuilder, Root<?> root, String[] properties,
+                                                 Boolean[] directions, Object[] values) {
+        List<Predicate> predicateList = new ArrayList<>();
+
+        for (int i = 0; i < properties.length; i++) {
+            List<Predicate> conjunction = new ArrayList<>();
+
+            for (int j = 0; j < i; j++) {
+                conjunction.add(getKeysetEqualRestriction(criteriaBuilder, root.get(properties[j]), values[j]));
             }
-        } else if (typeClass.equals(Lemma.class)) {
-            return getLemmaFilterStringRestriction(criteriaBuilder, root, filter);
-        } else if (typeClass.equals(Pos.class)) {
-            return getPosFilterStringRestriction(criteriaBuilder, root, filter);
+
+            conjunction.add(getKeysetFollowingRestriction(criteriaBuilder, root.get(properties[i]), directions[i],
+                    values[i]));
+            predicateList.add(criteriaBuilder.and(conjunction.toArray(new Predicate[conjunction.size()])));
         }
 
-        return null;
+        return criteriaBuilder.or(predicateList.toArray(new Predicate[predicateList.size()]));
     }
 
     /**
-     * Returns an automatically created list of order objects for context ordering.
+     * Returns a restriction matching a keyset value.
      *
      * @param criteriaBuilder contructor for criteria queries
-     * @param root            query root referencing entities
-     * @param property        sort property
-     * @param isAscending     sort direction
-     * @return A list of order objects.
+     * @param path            path of a keyset property
+     * @param value           keyset value
+     * @return A predicate.
      */
-    private static List<Order> getContextOrder(CriteriaBuilder criteriaBuilder, Root<?> root, String property,
-                                               Boolean isAscending) {
-        List<Order> orderList = new ArrayList<>();
-
-        if (isAscending) {
-            switch (property) {
-                case "number":
-                    orderList.add(criteriaBuilder.asc(root.get("number")));
-                    orderList.add(criteriaBuilder.asc(root.get("location")));
-                    break;
-                case "lemmaString":
-                    orderList.add(criteriaBuilder.asc(root.get("lemmaString")));
-                    orderList.add(criteriaBuilder.asc(root.get("keyword")));
-                    break;
-                case "posString":
-                    orderList.add(criteriaBuilder.asc(root.get("posString")));
-                    orderList.add(criteriaBuilder.asc(root.get("lemmaString")));
-                    break;
-                case "location":
-                    orderList.add(criteriaBuilder.asc(root.get("location")));
-                    orderList.add(criteriaBuilder.asc(root.get("number")));
-                    break;
-                case "preceding":
-                    orderList.add(criteriaBuilder.asc(root.get("preceding")));
-                    orderList.add(criteriaBuilder.asc(root.get("keyword")));
-                    break;
-                case "keyword":
-                    orderList.add(criteriaBuilder.asc(root.get("keyword")));
-                    orderList.add(criteriaBuilder.asc(root.get("following")));
-                    break;
-                case "following":
-                    orderList.add(criteriaBuilder.asc(root.get("following")));
-                    orderList.add(criteriaBuilder.asc(root.get("keyword")));
-                    break;
-            }
-        } else {
-            switch (property) {
-                case "number":
-                    orderList.add(criteriaBuilder.desc(root.get("number")));
-                    orderList.add(criteriaBuilder.asc(root.get("location")));
-                    break;
-                case "lemmaString":
-                    orderList.add(criteriaBuilder.desc(root.get("lemmaString")));
-                    orderList.add(criteriaBuilder.asc(root.get("keyword")));
-                    break;
-                case "posString":
-                    orderList.add(criteriaBuilder.desc(root.get("posString")));
-                    orderList.add(criteriaBuilder.asc(root.get("lemmaString")));
-                    break;
-                case "location":
-                    orderList.add(criteriaBuilder.desc(root.get("location")));
-                    orderList.add(criteriaBuilder.asc(root.get("number")));
-                    break;
-                case "preceding":
-                    orderList.add(criteriaBuilder.desc(root.get("preceding")));
-                    orderList.add(criteriaBuilder.asc(root.get("keyword")));
-                    break;
-                case "keyword":
-                    orderList.add(criteriaBuilder.desc(root.get("keyword")));
-                    orderList.add(criteriaBuilder.asc(root.get("following")));
-                    break;
-                case "following":
-                    orderList.add(criteriaBuilder.desc(root.get("following")));
-                    orderList.add(criteriaBuilder.asc(root.get("keyword")));
-                    break;
-            }
+    private static Predicate getKeysetEqualRestriction(CriteriaBuilder criteriaBuilder, Path<?> path, Object value) {
+        if (value == null) {
+            return criteriaBuilder.isNull(path);
         }
 
-        return orderList;
+        return criteriaBuilder.equal(path, value);
     }
 
     /**
-     * Returns an automatically created list of order objects for a property string.
+     * Returns a restriction matching values which follow a keyset value.
      *
      * @param criteriaBuilder contructor for criteria queries
-     * @param root            query root referencing entities
-     * @param joins           map of joins
-     * @param property        sort property
+     * @param path            path of a keyset property
      * @param isAscending     sort direction
-     * @param typeClass       data type
-     * @return A list of order objects.
+     * @param value           keyset value
+     * @return A predicate.
      */
-    public static List<Order> getOrder(CriteriaBuilder criteriaBuilder, Root<?> root, Map<String, Join<?, ?>> joins,
-                                       String property, Boolean isAscending, Class<?> typeClass) {
-        List<Order> orderList = new ArrayList<>();
-        String[] splitProperty = property.split("\\.");
-        Expression<String> expression;
+    @SuppressWarnings("unchecked")
+    private static Predicate getKeysetFollowingRestriction(CriteriaBuilder criteriaBuilder, Path<?> path,
+                                                           Boolean isAscending, Object value) {
+        Expression<Comparable> expression = (Expression<Comparable>) path;
 
-        if (typeClass.equals(Context.class)) {
-            return getContextOrder(criteriaBuilder, root, property, isAscending);
-        }
-
-        if (Array.getLength(splitProperty) == 2) {
-            Join<?, ?> join = joins.get(splitProperty[0]);
-
-            if (join != null) {
-                expression = join.get(splitProperty[1]);
-            } else {
-                throw new IllegalStateException("Join for sort property " + property + " is missing.");
+        if (isAscending) {
+            if (value == null) {
+                return criteriaBuilder.isNotNull(path);
             }
-        } else {
-            expression = root.get(property);
-        }
 
-        if (isAscending) {
-            orderList.add(criteriaBuilder.asc(expression));
+            return criteriaBuilder.greaterThan(expression, (Comparable) value);
         } else {
-            orderList.add(criteriaBuilder.desc(expression));
-        }
+            if (value == null) {
+                return criteriaBuilder.disjunction();
+            }
 
-        return orderList;
+            return criteriaBuilder.or(criteriaBuilder.lessThan(expression, (Comparable) value),
+                    criteriaBuilder.isNull(path));
+        }
     }
 
     /**
@@ -1,5 +1,8 @@
 package lemming.data;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
@@ -18,12 +21,25 @@ public class EntityManagerListener implements ServletContextListener {
     private static EntityManagerFactory entityManagerFactory;
 
     /**
-     * Initializes the entity manager factory.
+     * Thread filling in missing fingerprints of contexts.
+     */
+    private Thread backfillThread;
+
+    /**
+     * Initializes the entity manager factory, registers listeners, seeds ID generators and backfills fingerprints in
+     * the background.
      *
      * @param servletContextEvent event containing the ServletContext that is being initialized
      */
     public void contextInitialized(ServletContextEvent servletContextEvent) {
         entityManagerFactory = Persistence.createEntityManagerFactory("persistence-unit");
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        CountCacheListener.register(sessionFactory);
+        FilterIndexEntityListener.register(sessionFactory);
+        PooledIdGenerator.seed(sessionFactory);
+        backfillThread = new Thread(() -> FingerprintBackfill.run(sessionFactory), "fingerprint-backfill");
+        backfillThread.setDaemon(true);
+        backfillThread.start();
     }
 
     /**
@@ -32,19 +48,53 @@ public class EntityManagerListener implements ServletContextListener {
      * @param servletContextEvent event containing the ServletContext that is being destroyed
      */
     public void contextDestroyed(ServletContextEvent servletContextEvent) {
+        if (backfillThread != null) {
+            backfillThread.interrupt();
+        }
+
         entityManagerFactory.close();
     }
 
     /**
-     * Creates an entity manager.
+     * Creates an entity manager. If a unit of work is bound to the current thread, its shared entity manager is
+     * returned instead.
      *
      * @return An entity manager.
+     * @see UnitOfWork
      */
     public static EntityManager createEntityManager() {
+        EntityManager sharedEntityManager = UnitOfWork.getSharedEntityManager();
+
+        if (sharedEntityManager != null) {
+            return sharedEntityManager;
+        }
+
+        return openEntityManager();
+    }
+
+    /**
+     * Opens a new entity manager regardless of a bound unit of work.
+     *
+     * @return An entity manager.
+     */
+    static EntityManager openEntityManager() {
         if (entityManagerFactory == null) {
             throw new IllegalStateException("Context is not yet initialized.");
         }
 
         return entityManagerFactory.createEntityManager();
     }
+
+    /**
+     * Returns statistics of the session factory, including second-level and query cache statistics.
+     *
+     * @return A statistics object.
+     */
+    public static Statistics getStatistics() {
+        if (entityManagerFactory == null) {
+            throw new IllegalStateException("Context is not yet initialized.");
+        }
+
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
 }
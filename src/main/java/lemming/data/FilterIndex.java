@@ -0,0 +1,521 @@
+package lemming.data;
+
+import lemming.context.Context;
+import lemming.lemma.Lemma;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.FSDirectory;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An embedded, file-based inverted index of the string filter fields of contexts and lemmas.
+ * <p>
+ * The index resolves the IDs of candidate rows for a string filter, so that a filtered query can be restricted by
+ * primary key instead of scanning the table. Every entity has one document, keyed by type and ID, which is replaced
+ * or deleted when a transaction writing the entity is committed. While a data type is rebuilt at startup, an entity
+ * written concurrently may have an outdated document besides its current one. Candidates are therefore always checked
+ * against the regular restrictions by the database.
+ */
+public final class FilterIndex {
+    /**
+     * A logger named corresponding to this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(FilterIndex.class);
+
+    /**
+     * Name of the field storing the ID of an entity.
+     */
+    private static final String ID_FIELD = "id";
+
+    /**
+     * Name of the field storing the type of an entity.
+     */
+    private static final String TYPE_FIELD = "type";
+
+    /**
+     * Name of the field identifying the document of an entity by type and ID.
+     */
+    private static final String KEY_FIELD = "key";
+
+    /**
+     * Number of rows read between commits of a rebuild.
+     */
+    private static final Integer REBUILD_BATCH_SIZE = 10000;
+
+    /**
+     * Maximum number of indexed characters of a field value.
+     */
+    private static final Integer MAXIMUM_TERM_LENGTH = 1000;
+
+    /**
+     * Indexed string filter fields of contexts.
+     */
+    private static final String[] CONTEXT_FIELDS = {"location", "preceding", "keyword", "following", "lemmaString",
+            "posString", "number"};
+
+    /**
+     * Indexed string filter fields of lemmas.
+     */
+    private static final String[] LEMMA_FIELDS = {"name", "replacementString", "posString", "reference"};
+
+    /**
+     * The index writer, or null if the index is closed.
+     */
+    private static IndexWriter indexWriter;
+
+    /**
+     * Manager of searchers seeing the latest writes.
+     */
+    private static SearcherManager searcherManager;
+
+    /**
+     * Data types whose index is completely built.
+     */
+    private static final Set<Class<?>> readyTypes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Documents written by sessions, mapped by document key. A null document deletes the document of an entity.
+     */
+    private static final Map<SessionImplementor, Map<String, PendingDocument>> pendingDocuments =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor.
+     */
+    private FilterIndex() {
+    }
+
+    /**
+     * Opens the index in a directory.
+     *
+     * @param directory index directory
+     * @throws IOException if the index cannot be opened
+     */
+    static synchronized void open(Path directory) throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer())
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        indexWriter = new IndexWriter(FSDirectory.open(directory), config);
+        searcherManager = new SearcherManager(indexWriter, null);
+    }
+
+    /**
+     * Commits and closes the index.
+     */
+    static synchronized void close() {
+        readyTypes.clear();
+
+        if (indexWriter == null) {
+            return;
+        }
+
+        try {
+            searcherManager.close();
+            indexWriter.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            searcherManager = null;
+            indexWriter = null;
+        }
+    }
+
+    /**
+     * Checks if a data type is indexed.
+     *
+     * @param typeClass data type
+     * @return True if the data type is indexed; false otherwise.
+     */
+    static Boolean isIndexed(Class<?> typeClass) {
+        return getFields(typeClass) != null;
+    }
+
+    /**
+     * Rebuilds the index of a data type from the database.
+     *
+     * @param sessionFactory a session factory
+     * @param typeClass      data type
+     */
+    static void rebuild(SessionFactory sessionFactory, Class<?> typeClass) {
+        String[] fields = getFields(typeClass);
+        StringBuilder queryString = new StringBuilder("SELECT e.id");
+        StatelessSession session = null;
+        Transaction transaction = null;
+        Integer count = 0;
+
+        if (fields == null || indexWriter == null) {
+            return;
+        }
+
+        for (String field : fields) {
+            queryString.append(", e.").append(field);
+        }
+
+        queryString.append(" FROM ").append(typeClass.getSimpleName()).append(" e");
+        readyTypes.remove(typeClass);
+
+        try {
+            // writes after the deletion are indexed again, whether the scan sees them or not
+            indexWriter.deleteDocuments(new Term(TYPE_FIELD, typeClass.getSimpleName()));
+            session = sessionFactory.openStatelessSession();
+            transaction = session.beginTransaction();
+            org.hibernate.Query query = session.createQuery(queryString.toString());
+            query.setReadOnly(true).setCacheable(false).setFetchSize(Integer.MIN_VALUE);
+            ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+
+            while (results.next()) {
+                Object[] row = results.get();
+                indexWriter.addDocument(getDocument(typeClass, (Integer) row[0], fields,
+                        Arrays.copyOfRange(row, 1, row.length)));
+
+                if (++count % REBUILD_BATCH_SIZE == 0) {
+                    indexWriter.commit();
+                }
+            }
+
+            results.close();
+            transaction.commit();
+            indexWriter.commit();
+            searcherManager.maybeRefresh();
+            readyTypes.add(typeClass);
+            logger.info("Indexed " + count + " rows of " + typeClass.getSimpleName() + ".");
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+        } finally {
+            if (session != null) {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Replaces the document of an entity with its current field values once the transaction of a session is
+     * committed.
+     *
+     * @param session a session with an active transaction
+     * @param object  an entity
+     */
+    static void update(SessionImplementor session, Object object) {
+        Class<?> typeClass = object.getClass();
+        String[] fields = getFields(typeClass);
+
+        if (indexWriter == null || fields == null) {
+            return;
+        }
+
+        try {
+            if (object instanceof Context) {
+                Context context = (Context) object;
+                addPending(session, typeClass, context.getId(), getDocument(typeClass, context.getId(), fields,
+                        new Object[]{context.getLocation(), context.getPreceding(), context.getKeyword(),
+                                context.getFollowing(), context.getLemmaString(), context.getPosString(),
+                                context.getNumber()}));
+            } else if (object instanceof Lemma) {
+                Lemma lemma = (Lemma) object;
+                addPending(session, typeClass, lemma.getId(), getDocument(typeClass, lemma.getId(), fields,
+                        new Object[]{lemma.getName(), lemma.getReplacementString(), lemma.getPosString(),
+                                lemma.getReference()}));
+            }
+        } catch (RuntimeException e) {
+            // the index is only a candidate filter; an unindexed write must not fail the transaction
+            logger.error("Indexing " + typeClass.getSimpleName() + " failed.", e);
+            readyTypes.remove(typeClass);
+        }
+    }
+
+    /**
+     * Deletes the document of an entity once the transaction of a session is committed.
+     *
+     * @param session   a session with an active transaction
+     * @param typeClass data type
+     * @param id        ID of the entity
+     */
+    static void delete(SessionImplementor session, Class<?> typeClass, Integer id) {
+        if (indexWriter != null && getFields(typeClass) != null) {
+            addPending(session, typeClass, id, null);
+        }
+    }
+
+    /**
+     * Remembers a document written by a session. The first document of a session registers a completion process
+     * which writes the documents of the session if its transaction is committed.
+     *
+     * @param session   a session with an active transaction
+     * @param typeClass data type
+     * @param id        ID of the entity
+     * @param document  a document, or null to delete the document of the entity
+     */
+    private static void addPending(SessionImplementor session, Class<?> typeClass, Integer id, Document document) {
+        pendingDocuments.computeIfAbsent(session, key -> {
+            key.getActionQueue().registerProcess((success, completedSession) -> {
+                Map<String, PendingDocument> documents = pendingDocuments.remove(key);
+
+                if (success && documents != null) {
+                    write(documents);
+                }
+            });
+
+            // a session is used by one thread at a time
+            return new LinkedHashMap<>();
+        }).put(getKey(typeClass, id), new PendingDocument(typeClass, document));
+    }
+
+    /**
+     * Writes committed documents to the index.
+     *
+     * @param documents documents mapped by document key
+     */
+    private static void write(Map<String, PendingDocument> documents) {
+        IndexWriter writer = indexWriter;
+
+        if (writer == null) {
+            return;
+        }
+
+        for (Map.Entry<String, PendingDocument> entry : documents.entrySet()) {
+            Term term = new Term(KEY_FIELD, entry.getKey());
+            Class<?> typeClass = entry.getValue().getTypeClass();
+            Document document = entry.getValue().getDocument();
+
+            try {
+                if (document == null) {
+                    writer.deleteDocuments(term);
+                } else {
+                    writer.updateDocument(term, document);
+                }
+            } catch (IOException | RuntimeException e) {
+                // the index is only a candidate filter; a failed write disables it until the next rebuild
+                logger.error("Indexing " + typeClass.getSimpleName() + " failed.", e);
+                readyTypes.remove(typeClass);
+            }
+        }
+    }
+
+    /**
+     * Returns the key of the document of an entity.
+     *
+     * @param typeClass data type
+     * @param id        ID of the entity
+     * @return A document key.
+     */
+    private static String getKey(Class<?> typeClass, Integer id) {
+        return typeClass.getSimpleName() + ":" + id;
+    }
+
+    /**
+     * Finds the IDs of candidate rows matching a string filter.
+     *
+     * @param typeClass data type
+     * @param plan      compiled query plan of the filter property
+     * @param filter    string filter
+     * @param maximum   maximum number of candidates
+     * @return A set of IDs, or null if the index cannot resolve the filter or there are too many candidates.
+     */
+    static Set<Integer> findCandidates(Class<?> typeClass, QueryPlan plan, String filter, Integer maximum) {
+        Query query = getQuery(typeClass, plan, filter);
+        SearcherManager manager = searcherManager;
+
+        if (query == null || manager == null || !readyTypes.contains(typeClass)) {
+            return null;
+        }
+
+        try {
+            manager.maybeRefresh();
+            IndexSearcher searcher = manager.acquire();
+
+            try {
+                // documents of an entity may be duplicated by writes during a rebuild
+                TopDocs topDocs = searcher.search(new ConstantScoreQuery(query), maximum * 2);
+                Set<Integer> candidates = new HashSet<>();
+
+                if (topDocs.totalHits > maximum * 2) {
+                    return null;
+                }
+
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    Document document = searcher.doc(scoreDoc.doc, Collections.singleton(ID_FIELD));
+                    candidates.add(document.getField(ID_FIELD).numericValue().intValue());
+                }
+
+                return candidates.size() <= maximum ? candidates : null;
+            } finally {
+                manager.release(searcher);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns a query matching a superset of the rows matched by the string filter restrictions of a query plan.
+     *
+     * @param typeClass data type
+     * @param plan      compiled query plan
+     * @param filter    string filter
+     * @return A query, or null if the filter cannot be resolved by the index.
+     */
+    private static Query getQuery(Class<?> typeClass, QueryPlan plan, String filter) {
+        String[] fields = getFields(typeClass);
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        String numberProperty = plan.getNumberProperty();
+        Boolean isNumeric = filter.matches("^\\d+$");
+        String term = normalize(filter);
+
+        // wildcards in a like pattern and enum labels are not indexed
+        if (fields == null || filter.isEmpty() || filter.length() > MAXIMUM_TERM_LENGTH ||
+                filter.contains("%") || filter.contains("_") ||
+                plan.matchesEnumLabel(filter) || (plan.isNumberOnly() && !isNumeric)) {
+            return null;
+        }
+
+        for (String property : plan.getLikeProperties()) {
+            if (!Arrays.asList(fields).contains(property)) {
+                return null;
+            }
+
+            builder.add(new PrefixQuery(new Term(property, term)), BooleanClause.Occur.SHOULD);
+        }
+
+        if (numberProperty != null && isNumeric) {
+            if (!Arrays.asList(fields).contains(numberProperty)) {
+                return null;
+            }
+
+            builder.add(new TermQuery(new Term(numberProperty, new BigInteger(filter).toString())),
+                    BooleanClause.Occur.SHOULD);
+        }
+
+        return new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(TYPE_FIELD, typeClass.getSimpleName())), BooleanClause.Occur.FILTER)
+                .add(builder.build(), BooleanClause.Occur.MUST).build();
+    }
+
+    /**
+     * Creates an index document.
+     *
+     * @param typeClass data type
+     * @param id        ID of an entity
+     * @param fields    indexed fields
+     * @param values    field values in order of fields
+     * @return A document.
+     */
+    private static Document getDocument(Class<?> typeClass, Integer id, String[] fields, Object[] values) {
+        Document document = new Document();
+        document.add(new StringField(TYPE_FIELD, typeClass.getSimpleName(), Field.Store.NO));
+        document.add(new StringField(KEY_FIELD, getKey(typeClass, id), Field.Store.NO));
+        document.add(new StoredField(ID_FIELD, id));
+
+        for (int i = 0; i < fields.length; i++) {
+            if (values[i] instanceof Number) {
+                document.add(new StringField(fields[i], values[i].toString(), Field.Store.NO));
+            } else if (values[i] != null) {
+                String value = normalize(values[i].toString());
+
+                if (value.length() > MAXIMUM_TERM_LENGTH) {
+                    value = value.substring(0, MAXIMUM_TERM_LENGTH);
+                }
+
+                document.add(new StringField(fields[i], value, Field.Store.NO));
+            }
+        }
+
+        return document;
+    }
+
+    /**
+     * Returns the indexed fields of a data type.
+     *
+     * @param typeClass data type
+     * @return An array of field names, or null if the data type is not indexed.
+     */
+    private static String[] getFields(Class<?> typeClass) {
+        if (typeClass.equals(Context.class)) {
+            return CONTEXT_FIELDS;
+        } else if (typeClass.equals(Lemma.class)) {
+            return LEMMA_FIELDS;
+        }
+
+        return null;
+    }
+
+    /**
+     * Normalizes a string like a case- and accent-insensitive database collation.
+     *
+     * @param string a string
+     * @return A normalized string.
+     */
+    private static String normalize(String string) {
+        return Normalizer.normalize(string, Normalizer.Form.NFD).replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A document written by a session, waiting for the transaction of the session to be committed.
+     */
+    private static class PendingDocument {
+        /**
+         * Data type of the entity.
+         */
+        private final Class<?> typeClass;
+
+        /**
+         * The document, or null if the document of the entity is deleted.
+         */
+        private final Document document;
+
+        /**
+         * Creates a pending document.
+         *
+         * @param typeClass data type of the entity
+         * @param document  a document, or null
+         */
+        private PendingDocument(Class<?> typeClass, Document document) {
+            this.typeClass = typeClass;
+            this.document = document;
+        }
+
+        /**
+         * Returns the data type of the entity.
+         *
+         * @return A data type.
+         */
+        public Class<?> getTypeClass() {
+            return typeClass;
+        }
+
+        /**
+         * Returns the document.
+         *
+         * @return A document, or null.
+         */
+        public Document getDocument() {
+            return document;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package lemming.data;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Replaces or deletes the documents of entities in the filter index when they are written.
+ *
+ * @see FilterIndex
+ */
+public class FilterIndexEntityListener implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener {
+    /**
+     * Registers a listener with the event listener registry of a session factory.
+     *
+     * @param sessionFactory a session factory
+     */
+    static void register(SessionFactory sessionFactory) {
+        EventListenerRegistry registry = sessionFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        FilterIndexEntityListener listener = new FilterIndexEntityListener();
+
+        registry.appendListeners(EventType.POST_INSERT, listener);
+        registry.appendListeners(EventType.POST_UPDATE, listener);
+        registry.appendListeners(EventType.POST_DELETE, listener);
+    }
+
+    /**
+     * Called after an entity is inserted.
+     *
+     * @param event a post-insert event
+     */
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        FilterIndex.update(event.getSession(), event.getEntity());
+    }
+
+    /**
+     * Called after an entity is updated.
+     *
+     * @param event a post-update event
+     */
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        FilterIndex.update(event.getSession(), event.getEntity());
+    }
+
+    /**
+     * Called after an entity is deleted.
+     *
+     * @param event a post-delete event
+     */
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getId() instanceof Integer) {
+            FilterIndex.delete(event.getSession(), event.getPersister().getMappedClass(), (Integer) event.getId());
+        }
+    }
+
+    /**
+     * Checks if the listener needs to be called after the transaction completes. Index writes after commit are
+     * registered by the filter index, so entity actions aren’t kept until the transaction completes.
+     *
+     * @param persister an entity persister
+     * @return Always false.
+     */
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+}
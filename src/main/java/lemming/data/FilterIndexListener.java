@@ -0,0 +1,88 @@
+package lemming.data;
+
+import lemming.context.Context;
+import lemming.lemma.Lemma;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Listener for receiving notification events about ServletContext lifecycle changes.
+ */
+@WebListener
+public class FilterIndexListener implements ServletContextListener {
+    /**
+     * A logger named corresponding to this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(FilterIndexListener.class);
+
+    /**
+     * Name of the context parameter defining the index directory.
+     */
+    private static final String INDEX_DIRECTORY_PARAMETER = "lemming.indexDirectory";
+
+    /**
+     * Thread rebuilding the filter index.
+     */
+    private Thread rebuildThread;
+
+    /**
+     * Opens the filter index and rebuilds it in the background. Until a data type is rebuilt, filtered queries of
+     * that type don’t use the index.
+     *
+     * @param servletContextEvent event containing the ServletContext that is being initialized
+     */
+    public void contextInitialized(ServletContextEvent servletContextEvent) {
+        String directoryName = servletContextEvent.getServletContext().getInitParameter(INDEX_DIRECTORY_PARAMETER);
+        Path directory;
+
+        if (directoryName == null || directoryName.trim().isEmpty()) {
+            directory = Paths.get(System.getProperty("java.io.tmpdir"), "lemming-index");
+        } else {
+            directory = Paths.get(directoryName.trim());
+        }
+
+        try {
+            FilterIndex.open(directory);
+        } catch (IOException e) {
+            logger.error("Opening filter index in " + directory + " failed.", e);
+            return;
+        }
+
+        rebuildThread = new Thread(() -> {
+            EntityManager entityManager = EntityManagerListener.openEntityManager();
+
+            try {
+                SessionFactory sessionFactory = entityManager.unwrap(Session.class).getSessionFactory();
+                FilterIndex.rebuild(sessionFactory, Context.class);
+                FilterIndex.rebuild(sessionFactory, Lemma.class);
+            } finally {
+                entityManager.close();
+            }
+        }, "filter-index-rebuild");
+        rebuildThread.setDaemon(true);
+        rebuildThread.start();
+    }
+
+    /**
+     * Closes the filter index.
+     *
+     * @param servletContextEvent event containing the ServletContext that is being destroyed
+     */
+    public void contextDestroyed(ServletContextEvent servletContextEvent) {
+        if (rebuildThread != null) {
+            rebuildThread.interrupt();
+        }
+
+        FilterIndex.close();
+    }
+}
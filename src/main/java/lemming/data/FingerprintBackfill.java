@@ -0,0 +1,156 @@
+package lemming.data;
+
+import lemming.context.BaseContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fills in missing fingerprints of contexts from their hashes.
+ * <p>
+ * Rows are updated in small ID ranges, each in its own transaction, so that the application stays usable while
+ * the backfill runs. Until it is complete, contexts are matched by hash instead of fingerprint.
+ */
+public final class FingerprintBackfill {
+    /**
+     * A logger named corresponding to this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(FingerprintBackfill.class);
+
+    /**
+     * Number of IDs updated in one transaction.
+     */
+    private static final Integer RANGE_SIZE = 1000;
+
+    /**
+     * Set when all fingerprints are filled in.
+     */
+    private static volatile Boolean complete = false;
+
+    /**
+     * Private constructor.
+     */
+    private FingerprintBackfill() {
+    }
+
+    /**
+     * Checks if all contexts have fingerprints, so that they can be matched by fingerprint.
+     *
+     * @return True if the backfill is complete; false otherwise.
+     */
+    public static Boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Fills in missing fingerprints of all context tables. Stops early if the current thread is interrupted.
+     *
+     * @param sessionFactory a session factory
+     */
+    static void run(SessionFactory sessionFactory) {
+        SessionFactoryImplementor sessionFactoryImplementor = sessionFactory.unwrap(SessionFactoryImplementor.class);
+
+        for (EntityPersister persister : sessionFactoryImplementor.getMetamodel().entityPersisters().values()) {
+            if (BaseContext.class.isAssignableFrom(persister.getMappedClass()) &&
+                    persister instanceof AbstractEntityPersister) {
+                if (!backfill(sessionFactory, (AbstractEntityPersister) persister)) {
+                    return;
+                }
+            }
+        }
+
+        complete = true;
+        logger.info("Fingerprints of contexts are complete.");
+    }
+
+    /**
+     * Fills in missing fingerprints of a table.
+     *
+     * @param sessionFactory a session factory
+     * @param persister      persister of a context class
+     * @return True if the table is complete; false if the backfill was interrupted.
+     */
+    private static Boolean backfill(SessionFactory sessionFactory, AbstractEntityPersister persister) {
+        String table = persister.getTableName();
+        Class<?> entityClass = persister.getMappedClass();
+        Object[] range = (Object[]) execute(sessionFactory, session -> session.createNativeQuery("SELECT " +
+                "MIN(id), MAX(id) FROM " + table + " WHERE fingerprint IS NULL").uniqueResult());
+
+        if (range[0] == null) {
+            return true;
+        }
+
+        Long first = ((Number) range[0]).longValue();
+        Long last = ((Number) range[1]).longValue();
+        logger.info("Backfilling fingerprints of table " + table + ".");
+
+        for (Long start = first; start <= last; start += RANGE_SIZE) {
+            Long from = start;
+            Long to = start + RANGE_SIZE - 1;
+
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+
+            // the fingerprint is the first half of the hexadecimal SHA512 hash; cached entities of the table are stale
+            execute(sessionFactory, session -> session.createNativeQuery("UPDATE " + table + " " +
+                    "SET fingerprint = UNHEX(SUBSTRING(hash, 1, 32)) " +
+                    "WHERE fingerprint IS NULL AND id BETWEEN :from AND :to")
+                    .addSynchronizedEntityClass(entityClass)
+                    .setParameter("from", from).setParameter("to", to).executeUpdate());
+        }
+
+        return true;
+    }
+
+    /**
+     * Executes work in a transaction of a stateless session.
+     *
+     * @param sessionFactory a session factory
+     * @param work           work done in the transaction
+     * @return The result of the work.
+     */
+    private static Object execute(SessionFactory sessionFactory, Work work) {
+        StatelessSession session = null;
+        Transaction transaction = null;
+
+        try {
+            session = sessionFactory.openStatelessSession();
+            transaction = session.beginTransaction();
+            Object result = work.execute(session);
+            transaction.commit();
+            return result;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            throw e;
+        } finally {
+            if (session != null) {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Work done in a transaction of a stateless session.
+     */
+    @FunctionalInterface
+    private interface Work {
+        /**
+         * Executes the work.
+         *
+         * @param session a stateless session
+         * @return A result.
+         */
+        Object execute(StatelessSession session);
+    }
+}
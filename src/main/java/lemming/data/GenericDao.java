@@ -5,8 +5,12 @@ import lemming.ui.page.UnresolvableObjectErrorPage;
 import org.apache.wicket.Page;
 import org.apache.wicket.RestartResponseException;
 import org.apache.wicket.request.cycle.RequestCycle;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.StaleObjectStateException;
 import org.hibernate.UnresolvableObjectException;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,7 +18,9 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityTransaction;
 import javax.persistence.TypedQuery;
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Implements methods from interface IDao.
@@ -173,7 +179,7 @@ public abstract class GenericDao<E> implements IDao<E> {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             E entity = entityManager.find(entityClass, primaryKey);
             transaction.commit();
@@ -201,7 +207,7 @@ public abstract class GenericDao<E> implements IDao<E> {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<E> query = entityManager.createQuery("FROM " + entityClass.getSimpleName(), entityClass);
             List<E> entityList = query.getResultList();
@@ -220,6 +226,91 @@ public abstract class GenericDao<E> implements IDao<E> {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void forEach(Consumer<E> consumer, Integer batchSize) {
+        forEachBatch(batch -> batch.forEach(consumer), batchSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws RuntimeException
+     */
+    public void forEachBatch(Consumer<List<E>> consumer, Integer batchSize) throws RuntimeException {
+        // a cursor must not clear the persistence context of a unit of work
+        EntityManager entityManager = EntityManagerListener.openEntityManager();
+        EntityTransaction transaction = null;
+        ScrollableResults results = null;
+        List<E> batch = new ArrayList<>(batchSize);
+
+        try {
+            transaction = new ReadOnlyTransaction(entityManager);
+            transaction.begin();
+            org.hibernate.query.Query<E> query = entityManager.unwrap(Session.class)
+                    .createQuery("FROM " + entityClass.getSimpleName(), entityClass);
+            // a fetch size of Integer.MIN_VALUE makes the MySQL driver stream rows instead of reading all of them
+            query.setReadOnly(true).setCacheable(false).setFetchSize(Integer.MIN_VALUE);
+            results = query.scroll(ScrollMode.FORWARD_ONLY);
+
+            while (results.next()) {
+                batch.add(entityClass.cast(results.get(0)));
+
+                if (batch.size() == batchSize) {
+                    entityManager.clear();
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                entityManager.clear();
+                consumer.accept(batch);
+            }
+
+            results.close();
+            results = null;
+            transaction.commit();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+
+            if (results != null) {
+                results.close();
+            }
+
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            throw e;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public EntityTransaction getReadOnlyTransaction(EntityManager entityManager) {
+        return UnitOfWork.getTransaction(entityManager, true);
+    }
+
+    /**
+     * Makes cached item counts of entity types outdated once the transaction of an entity manager is committed. Bulk
+     * and native statements bypass entity listeners and call this after they are executed.
+     *
+     * @param entityManager an entity manager with an active transaction
+     * @param typeClasses   written entity types
+     */
+    protected void invalidateCountsAfterCommit(EntityManager entityManager, Class<?>... typeClasses) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+
+        for (Class<?> typeClass : typeClasses) {
+            CountCache.invalidateAfterCommit(session, typeClass);
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
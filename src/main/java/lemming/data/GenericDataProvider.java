@@ -8,13 +8,11 @@ import org.apache.wicket.model.IModel;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityTransaction;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
-import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
+import java.lang.reflect.Constructor;
+import java.util.*;
 
 /**
  * Provides data for data table views.
@@ -23,9 +21,39 @@ import java.util.Map;
  */
 public final class GenericDataProvider<T> extends SortableDataProvider<T, String> implements IFilterStateLocator<T> {
     /**
-     * The data type that is provided.
+     * Maximum number of rows skipped from a known keyset before falling back to offset pagination.
      */
-    private final Class<T> typeClass;
+    private static final Long MAXIMUM_KEYSET_DISTANCE = 1000L;
+
+    /**
+     * Maximum number of remembered keysets.
+     */
+    private static final Integer KEYSET_CACHE_SIZE = 64;
+
+    /**
+     * Maximum age in milliseconds of an outdated count used as approximate size.
+     */
+    private static final Long MAXIMUM_APPROXIMATE_SIZE_AGE = 60000L;
+
+    /**
+     * Maximum number of candidate IDs resolved by the filter index for a query.
+     */
+    private static final Integer MAXIMUM_INDEX_CANDIDATES = 1000;
+
+    /**
+     * The data type that is queried.
+     */
+    private final Class<?> typeClass;
+
+    /**
+     * The row type that is provided.
+     */
+    private final Class<T> rowClass;
+
+    /**
+     * Properties of the data type selected for a row, or null if whole entities are provided.
+     */
+    private final String[] projection;
 
     /**
      * Defindes the default sort order.
@@ -47,6 +75,56 @@ public final class GenericDataProvider<T> extends SortableDataProvider<T, String
      */
     private String property;
 
+    /**
+     * True if keyset pagination is enabled.
+     */
+    private Boolean keysetPagination = false;
+
+    /**
+     * Keysets of rows, mapped by row index. Valid for the current filter, sort order and data only.
+     */
+    private KeysetCache keysets = new KeysetCache();
+
+    /**
+     * The sort order remembered keysets belong to.
+     */
+    private SortParam<String> keysetSort;
+
+    /**
+     * The count cache generation of the entity type remembered keysets belong to.
+     */
+    private Long keysetGeneration;
+
+    /**
+     * Constructor of projected rows, or null if not yet looked up.
+     */
+    private transient Constructor<T> rowConstructor;
+
+    /**
+     * First row of the page expected to be requested next.
+     */
+    private long expectedFirst = 0;
+
+    /**
+     * Number of rows of the page expected to be requested next, or null if unknown.
+     */
+    private Long expectedCount;
+
+    /**
+     * A page fetched together with the total number of items.
+     */
+    private transient Page<T> prefetchedPage;
+
+    /**
+     * Number of items above which an outdated cached count may be used, or null.
+     */
+    private Long approximateSizeThreshold;
+
+    /**
+     * True if the last returned size is approximate.
+     */
+    private Boolean sizeApproximate = false;
+
     /**
      * Creates a data provider.
      *
@@ -55,6 +133,28 @@ public final class GenericDataProvider<T> extends SortableDataProvider<T, String
      */
     public GenericDataProvider(Class<T> typeClass, SortParam<String> defaultSortParam) {
         this.typeClass = typeClass;
+        this.rowClass = typeClass;
+        this.projection = null;
+        this.defaultSortParam = defaultSortParam;
+    }
+
+    /**
+     * Creates a data provider for rows projected from a data type.
+     * <p>
+     * Rows are constructed from the selected properties instead of hydrating entities. A collection-valued property
+     * is selected as its size. A row class must provide a constructor matching the properties, and properties used
+     * for filtering must have fields with the same names.
+     *
+     * @param typeClass        class type that is queried
+     * @param rowClass         row type that is provided
+     * @param projection       properties selected for a row, in order of constructor parameters
+     * @param defaultSortParam default sort param
+     */
+    public GenericDataProvider(Class<?> typeClass, Class<T> rowClass, String[] projection,
+                               SortParam<String> defaultSortParam) {
+        this.typeClass = typeClass;
+        this.rowClass = rowClass;
+        this.projection = projection;
         this.defaultSortParam = defaultSortParam;
     }
 
@@ -66,48 +166,22 @@ public final class GenericDataProvider<T> extends SortableDataProvider<T, String
      * @return Iterator capable of iterating over row data.
      */
     @Override
-    @SuppressWarnings("unchecked")
     public Iterator<T> iterator(long first, long count) {
-        EntityManager entityManager = EntityManagerListener.createEntityManager();
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(typeClass);
-        Root<T> root = criteriaQuery.from(typeClass);
-        EntityTransaction transaction = entityManager.getTransaction();
-
         if (getSort() == null) {
             setSort(defaultSortParam);
         }
 
-        Selection<T> selection = getSelection(root);
-        Map<String, Join<?, ?>> joins = CriteriaHelper.getJoins(root, typeClass);
-        Expression<Boolean> restriction = getRestriction(criteriaBuilder, root, joins);
-        List<Order> orderList = getOrder(criteriaBuilder, root, joins);
-        TypedQuery<T> typedQuery = null;
+        expectedFirst = first;
+        expectedCount = count;
 
-        if (restriction == null) {
-            typedQuery = entityManager.createQuery(criteriaQuery.select(selection).orderBy(orderList))
-                    .setFirstResult((int) first).setMaxResults((int) count);
-        } else {
-            typedQuery = entityManager.createQuery(criteriaQuery.select(selection).where(restriction)
-                    .orderBy(orderList)).setFirstResult((int) first).setMaxResults((int) count);
+        if (prefetchedPage != null && prefetchedPage.matches(first, count)) {
+            List<T> rows = prefetchedPage.getRows();
+            prefetchedPage = null;
+            return rows.iterator();
         }
 
-        try {
-            transaction.begin();
-            Iterator<T> iterator = typedQuery.getResultList().iterator();
-            transaction.commit();
-            return iterator;
-        } catch (RuntimeException e) {
-            e.printStackTrace();
-
-            if (transaction != null && transaction.isActive()) {
-                transaction.rollback();
-            }
-
-            throw e;
-        } finally {
-            entityManager.close();
-        }
+        prefetchedPage = null;
+        return fetchPage(first, count, false).getRows().iterator();
     }
 
     /**
@@ -132,23 +206,206 @@ public final class GenericDataProvider<T> extends SortableDataProvider<T, String
 
     /**
      * Returns the total number of items in the collection represented by the DataProvider.
+     * <p>
+     * A cached count is used if available. Otherwise the expected page is fetched together with the total count in
+     * one query, and handed out by the next call of iterator().
      *
      * @return Total number of items.
      */
     @Override
     public long size() {
-        EntityManager entityManager = EntityManagerListener.createEntityManager();
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Long> criteriaQuery = criteriaBuilder.createQuery(Long.class);
-        Root<T> root = criteriaQuery.from(typeClass);
-        EntityTransaction transaction = entityManager.getTransaction();
-
         if (getSort() == null) {
             setSort(defaultSortParam);
         }
 
+        Long size = getCachedSize();
+
+        if (size != null) {
+            return size;
+        }
+
+        if (expectedCount != null) {
+            Page<T> page = fetchPage(expectedFirst, expectedCount, true);
+
+            if (page.getTotal() != null) {
+                prefetchedPage = page;
+                size = page.getTotal();
+            }
+        }
+
+        if (size == null) {
+            Long generation = CountCache.getGeneration(typeClass);
+            size = count();
+            cacheSize(size, generation);
+        }
+
+        return size;
+    }
+
+    /**
+     * Detaches the provider and drops a prefetched page.
+     */
+    @Override
+    public void detach() {
+        super.detach();
+        prefetchedPage = null;
+    }
+
+    /**
+     * Fetches a page of data, optionally together with the total number of items.
+     *
+     * @param first     first row of data
+     * @param count     maximum number of rows retrieved
+     * @param withTotal true if the total number of items shall be selected by a subquery
+     * @return A page of data.
+     */
+    private Page<T> fetchPage(long first, long count, Boolean withTotal) {
+        // the generation is read before the query, so that a write committed meanwhile outdates the total
+        Long generation = CountCache.getGeneration(typeClass);
+        EntityManager entityManager = EntityManagerListener.createEntityManager();
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+        Root<?> root = criteriaQuery.from(typeClass);
+        EntityTransaction transaction = UnitOfWork.getTransaction(entityManager, true);
+        QueryPlan plan = getQueryPlan(entityManager);
+        Set<Integer> candidates = getIndexCandidates(plan);
         Map<String, Join<?, ?>> joins = CriteriaHelper.getJoins(root, typeClass);
-        Expression<Boolean> restriction = getRestriction(criteriaBuilder, root, joins);
+        Expression<Boolean> restriction = getRestriction(criteriaBuilder, root, plan, candidates);
+        List<Selection<?>> selectionList = new ArrayList<>();
+        List<Predicate> predicateList = new ArrayList<>();
+        List<Order> orderList = plan.getOrder(criteriaBuilder, root, joins);
+        String[] keysetProperties = null;
+        Boolean isReversed = false;
+        long firstResult = first;
+
+        selectionList.addAll(getRowSelections(criteriaBuilder, root));
+
+        if (restriction != null) {
+            predicateList.add(criteriaBuilder.isTrue(restriction));
+        }
+
+        if (withTotal) {
+            Subquery<Long> subquery = criteriaQuery.subquery(Long.class);
+            Root<?> subqueryRoot = subquery.from(typeClass);
+            Expression<Boolean> subqueryRestriction = getRestriction(criteriaBuilder, subqueryRoot, plan,
+                    candidates);
+
+            subquery.select(criteriaBuilder.count(subqueryRoot));
+
+            if (subqueryRestriction != null) {
+                subquery.where(subqueryRestriction);
+            }
+
+            selectionList.add(subquery);
+        }
+
+        if (keysetPagination && plan.getKeysetProperties() != null) {
+            // inserted or removed rows shift the indexes of remembered keysets
+            if (!getSort().equals(keysetSort) || !generation.equals(keysetGeneration)) {
+                keysets.clear();
+                keysetSort = getSort();
+                keysetGeneration = generation;
+            }
+
+            Boolean[] directions = plan.getKeysetDirections();
+            Long precedingIndex = getPrecedingKeysetIndex(first);
+            Long followingIndex = getFollowingKeysetIndex(first, count);
+            keysetProperties = plan.getKeysetProperties();
+
+            if (precedingIndex != null && (followingIndex == null ||
+                    first - precedingIndex - 1 <= followingIndex - first - count)) {
+                // seek forward from the last known row before the page
+                predicateList.add(CriteriaHelper.getKeysetRestriction(criteriaBuilder, root, keysetProperties,
+                        directions, keysets.get(precedingIndex)));
+                firstResult = first - precedingIndex - 1;
+            } else if (followingIndex != null) {
+                // seek backward from the first known row after the page
+                directions = getReversedDirections(directions);
+                predicateList.add(CriteriaHelper.getKeysetRestriction(criteriaBuilder, root, keysetProperties,
+                        directions, keysets.get(followingIndex)));
+                firstResult = followingIndex - first - count;
+                isReversed = true;
+            }
+
+            orderList = CriteriaHelper.getKeysetOrder(criteriaBuilder, root, keysetProperties, directions);
+
+            // keysets are selected with the row, so that they can be remembered for projected rows too
+            for (String keysetProperty : keysetProperties) {
+                selectionList.add(root.get(keysetProperty));
+            }
+        }
+
+        criteriaQuery.multiselect(selectionList).orderBy(orderList);
+
+        if (!predicateList.isEmpty()) {
+            criteriaQuery.where(predicateList.toArray(new Predicate[predicateList.size()]));
+        }
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(criteriaQuery).setFirstResult((int) firstResult)
+                .setMaxResults((int) count);
+
+        try {
+            transaction.begin();
+            List<Tuple> tupleList = typedQuery.getResultList();
+            transaction.commit();
+            List<T> rows = new ArrayList<>(tupleList.size());
+            Long total = null;
+
+            for (Tuple tuple : tupleList) {
+                rows.add(getRow(tuple));
+            }
+
+            if (withTotal && !tupleList.isEmpty()) {
+                total = tupleList.get(0).get(getRowSelectionCount(), Long.class);
+            }
+
+            if (isReversed) {
+                Collections.reverse(rows);
+            } else if (total == null && rows.size() < count && (first == 0 || !rows.isEmpty())) {
+                // a short page ends the data
+                total = first + rows.size();
+            }
+
+            if (keysetProperties != null && !rows.isEmpty()) {
+                Integer keysetOffset = selectionList.size() - keysetProperties.length;
+                Tuple firstTuple = tupleList.get(isReversed ? tupleList.size() - 1 : 0);
+                Tuple lastTuple = tupleList.get(isReversed ? 0 : tupleList.size() - 1);
+
+                keysets.put(first, getKeyset(firstTuple, keysetOffset, keysetProperties.length));
+                keysets.put(first + rows.size() - 1, getKeyset(lastTuple, keysetOffset, keysetProperties.length));
+            }
+
+            if (total != null) {
+                cacheSize(total, generation);
+            }
+
+            return new Page<>(first, count, rows, total);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            throw e;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Counts the total number of items.
+     *
+     * @return Total number of items.
+     */
+    private Long count() {
+        EntityManager entityManager = EntityManagerListener.createEntityManager();
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> criteriaQuery = criteriaBuilder.createQuery(Long.class);
+        Root<?> root = criteriaQuery.from(typeClass);
+        EntityTransaction transaction = UnitOfWork.getTransaction(entityManager, true);
+        QueryPlan plan = getQueryPlan(entityManager);
+        Expression<Boolean> restriction = getRestriction(criteriaBuilder, root, plan, getIndexCandidates(plan));
         TypedQuery<Long> typedQuery = null;
 
         if (restriction == null) {
@@ -176,6 +433,65 @@ public final class GenericDataProvider<T> extends SortableDataProvider<T, String
         }
     }
 
+    /**
+     * Returns a cached total number of items for the current filter, if any.
+     *
+     * @return A number of items, or null.
+     */
+    private Long getCachedSize() {
+        sizeApproximate = false;
+
+        if (state != null) {
+            return null;
+        }
+
+        CountCache.Entry entry = CountCache.get(typeClass, filter, property);
+
+        if (entry == null) {
+            return null;
+        } else if (entry.isCurrent()) {
+            return entry.getCount();
+        } else if (approximateSizeThreshold != null && entry.getCount() > approximateSizeThreshold &&
+                entry.getAge() <= MAXIMUM_APPROXIMATE_SIZE_AGE) {
+            sizeApproximate = true;
+            return entry.getCount();
+        }
+
+        return null;
+    }
+
+    /**
+     * Caches the total number of items for the current filter.
+     *
+     * @param size       number of items
+     * @param generation generation of the entity type before the items were counted
+     */
+    private void cacheSize(Long size, Long generation) {
+        sizeApproximate = false;
+
+        if (state == null) {
+            CountCache.put(typeClass, filter, property, size, generation);
+        }
+    }
+
+    /**
+     * Checks if the last returned size is an outdated count of a large result.
+     *
+     * @return True if the size is approximate; false otherwise.
+     */
+    public Boolean isSizeApproximate() {
+        return sizeApproximate;
+    }
+
+    /**
+     * Sets the number of items above which an outdated cached count may be used as approximate size.
+     *
+     * @param approximateSizeThreshold a number of items, or null if sizes shall always be exact
+     */
+    public void setApproximateSizeThreshold(Long approximateSizeThreshold) {
+        this.approximateSizeThreshold = approximateSizeThreshold;
+    }
+
     /**
      * Returns the state defined by a filter form.
      *
@@ -196,104 +512,160 @@ public final class GenericDataProvider<T> extends SortableDataProvider<T, String
         this.state = state;
         this.filter = null;
         this.property = null;
+        keysets.clear();
+        expectedFirst = 0;
+    }
+
+    /**
+     * Updates the string filter of the DataProvider.
+     *
+     * @param filter string filter
+     */
+    public void updateFilter(String filter) {
+        this.filter = filter;
+        this.property = null;
+        this.state = null;
+        keysets.clear();
+        expectedFirst = 0;
+    }
+
+    /**
+     * Updates the string filter and filter property of the DataProvider.
+     *
+     * @param filter string filter
+     * @param property filter property
+     */
+    public void updateFilter(String filter, String property) {
+        this.filter = filter;
+        this.property = property;
+        this.state = null;
+        keysets.clear();
+        expectedFirst = 0;
     }
 
     /**
-     * Returns automatically created restrictions for a filter state.
+     * Returns the selections of a row for criteria queries. A projected row is selected as its properties, a
+     * collection-valued property as its size.
      *
      * @param criteriaBuilder contructor for criteria queries
      * @param root            query root referencing entities
-     * @return An expression of type boolean, or null.
+     * @return A list of selections.
      */
-    private Expression<Boolean> getFilterStateRestriction(CriteriaBuilder criteriaBuilder, Root<T> root) {
-        if (state != null) {
-            List<Predicate> predicateList = new ArrayList<>();
-
-            for (Field field : state.getClass().getDeclaredFields()) {
-                field.setAccessible(true);
-
-                if (field.getName().equals("serialVersionUID") || field.getName().equals("id")
-                        || field.getName().equals("uuid")) {
-                    continue;
-                }
-
-                Object value = null;
-
-                try {
-                    value = field.get(state);
-                } catch (IllegalArgumentException | IllegalAccessException e) {
-                    e.printStackTrace();
-                }
-
-                if (value != null) {
-                    if (value instanceof String) {
-                        Expression<String> expression = root.get(field.getName());
-                        String filter = value + "%";
-                        predicateList.add(criteriaBuilder.like(expression, filter));
-                    } else {
-                        Expression<String> expression = root.get(field.getName());
-                        predicateList.add(criteriaBuilder.equal(expression, value));
-                    }
-                }
-            }
+    private List<Selection<?>> getRowSelections(CriteriaBuilder criteriaBuilder, Root<?> root) {
+        List<Selection<?>> selectionList = new ArrayList<>();
 
-            if (!predicateList.isEmpty()) {
-                return criteriaBuilder.or(predicateList.toArray(new Predicate[predicateList.size()]));
+        if (projection == null) {
+            selectionList.add(root);
+            return selectionList;
+        }
+
+        for (String projectionProperty : projection) {
+            if (root.getModel().getAttribute(projectionProperty).isCollection()) {
+                selectionList.add(criteriaBuilder.size(root.<Collection<?>>get(projectionProperty)));
+            } else {
+                selectionList.add(root.get(projectionProperty));
             }
         }
 
-        return null;
+        return selectionList;
     }
 
     /**
-     * Returns automatically created restrictions for a filter string.
+     * Returns the number of selections of a row.
      *
-     * @param criteriaBuilder contructor for criteria queries
-     * @param root            query root referencing entities
-     * @return An expression of type boolean, or null.
+     * @return A number of selections.
      */
-    private Expression<Boolean> getFilterStringRestriction(CriteriaBuilder criteriaBuilder, Root<T> root,
-                                                           Map<String, Join<?, ?>> joins) {
-        if (filter != null && property != null) {
-            return CriteriaHelper.getFilterStringRestriction(criteriaBuilder, root, joins, filter, property, typeClass);
-        } else if (filter != null) {
-            return CriteriaHelper.getFilterStringRestriction(criteriaBuilder, root, joins, filter, null, typeClass);
-        } else {
-            return null;
+    private Integer getRowSelectionCount() {
+        return projection != null ? projection.length : 1;
+    }
+
+    /**
+     * Returns the row of a selected tuple.
+     *
+     * @param tuple a selected tuple
+     * @return A row object.
+     */
+    private T getRow(Tuple tuple) {
+        if (projection == null) {
+            return rowClass.cast(tuple.get(0));
+        }
+
+        Object[] arguments = new Object[projection.length];
+
+        for (int i = 0; i < projection.length; i++) {
+            arguments[i] = tuple.get(i);
+        }
+
+        try {
+            if (rowConstructor == null) {
+                rowConstructor = getRowConstructor();
+            }
+
+            return rowConstructor.newInstance(arguments);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Row " + rowClass.getSimpleName() + " cannot be constructed.", e);
         }
     }
 
     /**
-     * Updates the string filter of the DataProvider.
+     * Returns the constructor of the row class matching the projection.
      *
-     * @param filter string filter
+     * @return A constructor.
+     * @throws NoSuchMethodException if there is no matching constructor
      */
-    public void updateFilter(String filter) {
-        this.filter = filter;
-        this.property = null;
-        this.state = null;
+    @SuppressWarnings("unchecked")
+    private Constructor<T> getRowConstructor() throws NoSuchMethodException {
+        for (Constructor<?> constructor : rowClass.getConstructors()) {
+            if (constructor.getParameterCount() == projection.length) {
+                return (Constructor<T>) constructor;
+            }
+        }
+
+        throw new NoSuchMethodException("No constructor of " + rowClass.getSimpleName() + " with " +
+                projection.length + " parameters.");
     }
 
     /**
-     * Updates the string filter and filter property of the DataProvider.
+     * Returns the keyset values selected with a row.
      *
-     * @param filter string filter
-     * @param property filter property
+     * @param tuple  a selected tuple
+     * @param offset index of the first keyset value
+     * @param length number of keyset values
+     * @return An array of keyset values.
      */
-    public void updateFilter(String filter, String property) {
-        this.filter = filter;
-        this.property = property;
-        this.state = null;
+    private Object[] getKeyset(Tuple tuple, Integer offset, Integer length) {
+        Object[] values = new Object[length];
+
+        for (int i = 0; i < length; i++) {
+            values[i] = tuple.get(offset + i);
+        }
+
+        return values;
+    }
+
+    /**
+     * Returns the compiled query plan for the current filter property and sort order.
+     *
+     * @param entityManager an entity manager
+     * @return A query plan.
+     */
+    private QueryPlan getQueryPlan(EntityManager entityManager) {
+        return QueryPlan.get(entityManager.getMetamodel(), typeClass, property, getSort().getProperty(),
+                getSort().isAscending());
     }
 
     /**
-     * Return the selection for criteria queries.
+     * Returns the IDs of candidate rows for the string filter from the filter index.
      *
-     * @param root query root referencing entities
-     * @return A selection.
+     * @param plan compiled query plan
+     * @return A set of IDs, or null if the index is not applicable.
      */
-    private Selection<T> getSelection(Root<T> root) {
-        return root;
+    private Set<Integer> getIndexCandidates(QueryPlan plan) {
+        if (state == null && filter != null && FilterIndex.isIndexed(typeClass)) {
+            return FilterIndex.findCandidates(typeClass, plan, filter, MAXIMUM_INDEX_CANDIDATES);
+        }
+
+        return null;
     }
 
     /**
@@ -301,34 +673,195 @@ public final class GenericDataProvider<T> extends SortableDataProvider<T, String
      *
      * @param criteriaBuilder contructor for criteria queries
      * @param root            query root referencing entities
+     * @param plan            compiled query plan
+     * @param candidates      IDs of candidate rows from the filter index, or null
      * @return An expression of type boolean, or null.
      */
-    private Expression<Boolean> getRestriction(CriteriaBuilder criteriaBuilder, Root<T> root,
-                                               Map<String, Join<?, ?>> joins) {
-        Expression<Boolean> filterStateRestriction = getFilterStateRestriction(criteriaBuilder, root);
-        Expression<Boolean> filterStringRestriction = getFilterStringRestriction(criteriaBuilder, root, joins);
+    private Expression<Boolean> getRestriction(CriteriaBuilder criteriaBuilder, Root<?> root, QueryPlan plan,
+                                               Set<Integer> candidates) {
+        if (state != null) {
+            Expression<Boolean> filterStateRestriction = plan.getFilterStateRestriction(criteriaBuilder, root, state);
+
+            if (filterStateRestriction != null) {
+                return filterStateRestriction;
+            }
+        }
 
-        if (filterStateRestriction != null) {
-            return filterStateRestriction;
-        } else if (filterStringRestriction != null) {
-            return filterStringRestriction;
+        if (filter != null) {
+            Expression<Boolean> filterStringRestriction = plan.getFilterStringRestriction(criteriaBuilder, root,
+                    filter);
+
+            if (candidates == null || filterStringRestriction == null) {
+                return filterStringRestriction;
+            } else if (candidates.isEmpty()) {
+                return criteriaBuilder.disjunction();
+            }
+
+            // candidates are looked up by primary key; the string restriction drops outdated candidates
+            return criteriaBuilder.and(root.get("id").in(candidates), filterStringRestriction);
         }
 
         return null;
     }
 
     /**
-     * Returns a list of orders matching sort properties.
+     * Enables or disables keyset pagination. Keyset pagination is available for contexts only. It seeks pages from
+     * the keysets of rows already seen, so that next, previous and nearby pages do not scan all preceding rows.
+     * Distant pages are still retrieved by offset.
      *
-     * @param criteriaBuilder contructor for criteria queries
-     * @param root            query root referencing entities
-     * @param joins           map of joins
-     * @return A list of order objects.
+     * @param keysetPagination true if keyset pagination shall be enabled
+     */
+    public void setKeysetPagination(Boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+        keysets.clear();
+    }
+
+    /**
+     * Returns the index of the nearest known row before a page within seeking distance.
+     *
+     * @param first first row of a page
+     * @return A row index, or null.
      */
-    private List<Order> getOrder(CriteriaBuilder criteriaBuilder, Root<T> root, Map<String, Join<?, ?>> joins) {
-        String property = getSort().getProperty();
+    private Long getPrecedingKeysetIndex(long first) {
+        Long nearestIndex = null;
 
-        return CriteriaHelper.getOrder(criteriaBuilder, root, joins, property, getSort().isAscending(),
-                typeClass);
+        for (Long index : keysets.keySet()) {
+            if (index < first && first - index - 1 <= MAXIMUM_KEYSET_DISTANCE &&
+                    (nearestIndex == null || index > nearestIndex)) {
+                nearestIndex = index;
+            }
+        }
+
+        return nearestIndex;
+    }
+
+    /**
+     * Returns the index of the nearest known row after a page within seeking distance.
+     *
+     * @param first first row of a page
+     * @param count number of rows of a page
+     * @return A row index, or null.
+     */
+    private Long getFollowingKeysetIndex(long first, long count) {
+        Long nearestIndex = null;
+
+        for (Long index : keysets.keySet()) {
+            if (index >= first + count && index - first - count <= MAXIMUM_KEYSET_DISTANCE &&
+                    (nearestIndex == null || index < nearestIndex)) {
+                nearestIndex = index;
+            }
+        }
+
+        return nearestIndex;
+    }
+
+    /**
+     * Returns reversed sort directions.
+     *
+     * @param directions sort directions, true meaning ascending
+     * @return An array of reversed sort directions.
+     */
+    private Boolean[] getReversedDirections(Boolean[] directions) {
+        Boolean[] reversedDirections = new Boolean[directions.length];
+
+        for (int i = 0; i < directions.length; i++) {
+            reversedDirections[i] = !directions[i];
+        }
+
+        return reversedDirections;
+    }
+
+    /**
+     * A page of data with an optional total number of items.
+     *
+     * @param <T> data type of rows
+     */
+    private static class Page<T> {
+        /**
+         * First row of the page.
+         */
+        private final long first;
+
+        /**
+         * Requested number of rows.
+         */
+        private final long count;
+
+        /**
+         * Rows of the page.
+         */
+        private final List<T> rows;
+
+        /**
+         * Total number of items, or null if unknown.
+         */
+        private final Long total;
+
+        /**
+         * Creates a page.
+         *
+         * @param first first row of the page
+         * @param count requested number of rows
+         * @param rows  rows of the page
+         * @param total total number of items, or null
+         */
+        Page(long first, long count, List<T> rows, Long total) {
+            this.first = first;
+            this.count = count;
+            this.rows = rows;
+            this.total = total;
+        }
+
+        /**
+         * Checks if the page matches a request.
+         *
+         * @param first first row of data
+         * @param count number of rows
+         * @return True if the page matches; false otherwise.
+         */
+        Boolean matches(long first, long count) {
+            return this.first == first && this.count == count;
+        }
+
+        /**
+         * Returns the rows of the page.
+         *
+         * @return A list of rows.
+         */
+        List<T> getRows() {
+            return rows;
+        }
+
+        /**
+         * Returns the total number of items.
+         *
+         * @return Total number of items, or null.
+         */
+        Long getTotal() {
+            return total;
+        }
+    }
+
+    /**
+     * A bounded map of row indexes and keysets which evicts the least recently used keysets.
+     */
+    private static class KeysetCache extends LinkedHashMap<Long, Object[]> {
+        /**
+         * Creates a keyset cache.
+         */
+        KeysetCache() {
+            super(KEYSET_CACHE_SIZE, 0.75f, true);
+        }
+
+        /**
+         * Checks if the eldest entry shall be removed.
+         *
+         * @param eldest eldest entry
+         * @return True if the cache is full.
+         */
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Object[]> eldest) {
+            return size() > KEYSET_CACHE_SIZE;
+        }
     }
 }
@@ -1,8 +1,11 @@
 package lemming.data;
 
+import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
 import lemming.context.BaseContext;
 
+import javax.persistence.PostLoad;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
 import java.nio.charset.StandardCharsets;
@@ -12,6 +15,16 @@ import java.nio.charset.StandardCharsets;
  */
 @SuppressWarnings("unused")
 public class HashEntityListener {
+    /**
+     * Delimiter hashed between text elements of a context.
+     */
+    private static final String DELIMITER = "\u001F\u001F";
+
+    /**
+     * Length of a fingerprint in bytes.
+     */
+    public static final Integer FINGERPRINT_LENGTH = 16;
+
     /**
      * Called on pre-persist.
      *
@@ -33,25 +46,74 @@ public class HashEntityListener {
     }
 
     /**
-     * Returns a SHA512 hash of an input string.
+     * Called on post-load. Remembers that the loaded hash matches the loaded text elements.
+     *
+     * @param object an object
+     */
+    @PostLoad
+    public void onPostLoad(Object object) {
+        if (object instanceof BaseContext) {
+            ((BaseContext) object).setHashCurrent();
+        }
+    }
+
+    /**
+     * Returns a SHA512 hash of the text elements of a context.
+     * <p>
+     * Text elements are fed to the digest one by one, which gives the same hash as hashing the string of text
+     * elements joined by the delimiter, without building that string. Missing punctuation is hashed as empty string.
      *
-     * @param input input string
+     * @param context a context
      * @return A string representation of a SHA512 hash.
      */
-    private String getSha512(String input) {
-        return Hashing.sha512().hashString(input, StandardCharsets.UTF_8).toString();
+    public static String getHash(BaseContext context) {
+        Hasher hasher = Hashing.sha512().newHasher();
+        String[] textElements = context.getTextElements();
+
+        for (int i = 0; i < textElements.length; i++) {
+            String textElement = textElements[i];
+
+            if (i > 0) {
+                hasher.putString(DELIMITER, StandardCharsets.UTF_8);
+            }
+
+            if (textElement != null) {
+                hasher.putString(textElement, StandardCharsets.UTF_8);
+            } else if (i % 2 == 0) {
+                // preceding text, keyword and following text are joined as "null" if missing
+                hasher.putString("null", StandardCharsets.UTF_8);
+            }
+        }
+
+        return hasher.hash().toString();
     }
 
     /**
-     * Sets a hash for an entity if its class is recognized.
+     * Returns the fingerprint of a hash, which consists of its first 128 bits.
+     *
+     * @param hash a string representation of a hash
+     * @return A 16 byte array, or null if the hash is null.
+     */
+    public static byte[] getFingerprint(String hash) {
+        if (hash == null) {
+            return null;
+        }
+
+        return BaseEncoding.base16().lowerCase().decode(hash.substring(0, FINGERPRINT_LENGTH * 2));
+    }
+
+    /**
+     * Sets a hash for an entity if its class is recognized and its text elements have changed.
      *
      * @param object an object
      */
     private void setHash(Object object) {
         if (object instanceof BaseContext) {
             BaseContext context = (BaseContext) object;
-            String hash = getSha512(context.toString("\u001F\u001F"));
-            context.setHash(hash);
+
+            if (context.isHashOutdated()) {
+                context.setHash(getHash(context));
+            }
         } else {
             throw new IllegalStateException("Unknown entity: " + object.getClass().getCanonicalName());
         }
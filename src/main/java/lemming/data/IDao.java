@@ -1,6 +1,9 @@
 package lemming.data;
 
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * The root interface of the DAO hierarchy.
@@ -69,6 +72,34 @@ public interface IDao<E> {
      */
     List<E> getAll();
 
+    /**
+     * Passes all entity instances to a consumer without loading them at once. Entity instances are read by a
+     * forward-only cursor and detached after each batch, so that memory use does not depend on the number of entity
+     * instances.
+     *
+     * @param consumer  consumer of entity instances
+     * @param batchSize number of entity instances held in memory at most
+     */
+    void forEach(Consumer<E> consumer, Integer batchSize);
+
+    /**
+     * Passes all entity instances to a consumer in batches without loading them at once. Entity instances of a batch
+     * are detached before the batch is passed.
+     *
+     * @param consumer  consumer of batches of entity instances
+     * @param batchSize number of entity instances of a batch
+     */
+    void forEachBatch(Consumer<List<E>> consumer, Integer batchSize);
+
+    /**
+     * Returns a transaction for queries which are not followed by a mutation. Entities are loaded without snapshots
+     * for dirty checking, the persistence context is not flushed and the connection is read-only.
+     *
+     * @param entityManager an entity manager
+     * @return An entity transaction.
+     */
+    EntityTransaction getReadOnlyTransaction(EntityManager entityManager);
+
     /**
      * Sends the user to an error page if saving of data failed due to locking.
      *
@@ -0,0 +1,122 @@
+package lemming.data;
+
+import org.hibernate.MappingException;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+/**
+ * A table-based ID generator reserving blocks of IDs.
+ * <p>
+ * Hibernate cannot batch inserts into IDENTITY columns, because the ID of a row is only known after its insert. This
+ * generator keeps the next free ID of each entity table in a row of a shared generator table and hands out IDs from
+ * a block in memory, so that inserts are batched according to hibernate.jdbc.batch_size.
+ */
+public class PooledIdGenerator extends TableGenerator {
+    /**
+     * A logger named corresponding to this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(PooledIdGenerator.class);
+
+    /**
+     * Name of the generator table.
+     */
+    private static final String GENERATOR_TABLE = "id_generator";
+
+    /**
+     * Name of the column holding the name of an entity table.
+     */
+    private static final String SEGMENT_COLUMN = "entity";
+
+    /**
+     * Name of the column holding the next free ID of an entity table.
+     */
+    private static final String VALUE_COLUMN = "next_id";
+
+    /**
+     * Number of IDs reserved at once.
+     */
+    private static final Integer BLOCK_SIZE = 50;
+
+    /**
+     * Configures the generator with the shared generator table and a block size, unless overridden by parameters.
+     *
+     * @param type            type of the identifier
+     * @param params          generator parameters
+     * @param serviceRegistry service registry
+     * @throws MappingException if the generator is misconfigured
+     */
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        params.putIfAbsent(TABLE_PARAM, GENERATOR_TABLE);
+        params.putIfAbsent(SEGMENT_COLUMN_PARAM, SEGMENT_COLUMN);
+        params.putIfAbsent(VALUE_COLUMN_PARAM, VALUE_COLUMN);
+        params.putIfAbsent(CONFIG_PREFER_SEGMENT_PER_ENTITY, "true");
+        params.putIfAbsent(INCREMENT_PARAM, BLOCK_SIZE.toString());
+        params.putIfAbsent(OPT_PARAM, "pooled-lo");
+        super.configure(type, params, serviceRegistry);
+    }
+
+    /**
+     * Inserts a generator row for each entity table using this generator which has none yet.
+     * <p>
+     * The next free ID of a new row is computed from the entity table, so that tables migrated from IDENTITY columns
+     * keep their IDs. Without this, the generator would start at ID 1.
+     *
+     * @param sessionFactory a session factory
+     */
+    static void seed(SessionFactory sessionFactory) {
+        SessionFactoryImplementor sessionFactoryImplementor = sessionFactory.unwrap(SessionFactoryImplementor.class);
+        StatelessSession session = null;
+        Transaction transaction = null;
+
+        try {
+            session = sessionFactory.openStatelessSession();
+            transaction = session.beginTransaction();
+
+            for (EntityPersister persister : sessionFactoryImplementor.getMetamodel().entityPersisters().values()) {
+                if (persister.getIdentifierGenerator() instanceof PooledIdGenerator &&
+                        persister instanceof AbstractEntityPersister) {
+                    PooledIdGenerator generator = (PooledIdGenerator) persister.getIdentifierGenerator();
+                    AbstractEntityPersister entityPersister = (AbstractEntityPersister) persister;
+                    String entityTable = entityPersister.getTableName();
+                    String idColumn = entityPersister.getIdentifierColumnNames()[0];
+                    Integer count = session.createNativeQuery("INSERT INTO " + generator.getTableName() + " (" +
+                            generator.getSegmentColumnName() + ", " + generator.getValueColumnName() + ") " +
+                            "SELECT :segment, COALESCE(MAX(" + idColumn + "), 0) + 1 FROM " + entityTable + " " +
+                            "WHERE NOT EXISTS (SELECT 1 FROM " + generator.getTableName() + " WHERE " +
+                            generator.getSegmentColumnName() + " = :segment)")
+                            .setParameter("segment", generator.getSegmentValue()).executeUpdate();
+
+                    if (count > 0) {
+                        logger.info("Seeded ID generator of table " + entityTable + ".");
+                    }
+                }
+            }
+
+            transaction.commit();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            throw e;
+        } finally {
+            if (session != null) {
+                session.close();
+            }
+        }
+    }
+}
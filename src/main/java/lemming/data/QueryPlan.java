@@ -0,0 +1,463 @@
+package lemming.data;
+
+import lemming.context.Context;
+import lemming.lemma.Lemma;
+import lemming.pos.Pos;
+
+import javax.persistence.criteria.*;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A compiled plan of filter restrictions and sort orders for criteria queries of a data type.
+ * <p>
+ * Plans are compiled once per data type, filter property, sort property and sort direction. Properties are resolved
+ * to metamodel attributes and filter state fields to accessors in advance, so that building a query needs neither
+ * reflection nor resource lookups.
+ */
+final class QueryPlan {
+    /**
+     * Compiled plans, mapped by data type, filter property, sort property and sort direction.
+     */
+    private static final ConcurrentMap<List<Object>, QueryPlan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Compiled filter state accessors, mapped by filter state class.
+     */
+    private static final ConcurrentMap<Class<?>, List<StateAccessor>> stateAccessors = new ConcurrentHashMap<>();
+
+    /**
+     * The metamodel type of the data type.
+     */
+    private final EntityType<?> entityType;
+
+    /**
+     * Attributes matched by a string filter with a like restriction.
+     */
+    private final List<SingularAttribute<?, ?>> likeAttributes = new ArrayList<>();
+
+    /**
+     * Attribute matched by a numeric string filter, or null.
+     */
+    private SingularAttribute<?, ?> numberAttribute;
+
+    /**
+     * True if a string filter matches the number attribute only.
+     */
+    private Boolean numberOnly = false;
+
+    /**
+     * Attribute matched by a string filter against enum labels, or null.
+     */
+    private SingularAttribute<?, ?> enumAttribute;
+
+    /**
+     * Enum class of the enum attribute, or null.
+     */
+    private Class<? extends Enum<?>> enumClass;
+
+    /**
+     * Sort properties in order of precedence.
+     */
+    private final String[] orderProperties;
+
+    /**
+     * Sort directions of sort properties, true meaning ascending.
+     */
+    private final Boolean[] orderDirections;
+
+    /**
+     * True if the sort properties form a unique keyset.
+     */
+    private final Boolean keyset;
+
+    /**
+     * Creates a query plan.
+     *
+     * @param metamodel      metamodel of the persistence unit
+     * @param typeClass      data type
+     * @param filterProperty filter property, or null
+     * @param sortProperty   sort property
+     * @param isAscending    sort direction
+     */
+    private QueryPlan(Metamodel metamodel, Class<?> typeClass, String filterProperty, String sortProperty,
+                      Boolean isAscending) {
+        entityType = metamodel.entity(typeClass);
+
+        if (typeClass.equals(Context.class)) {
+            if (filterProperty == null) {
+                addLikeAttributes("location", "preceding", "keyword", "following", "lemmaString", "posString");
+                numberAttribute = entityType.getSingularAttribute("number");
+            } else if (filterProperty.equals("number")) {
+                numberAttribute = entityType.getSingularAttribute("number");
+                numberOnly = true;
+            } else {
+                addLikeAttributes(filterProperty);
+            }
+        } else if (typeClass.equals(Lemma.class)) {
+            addLikeAttributes("name", "replacementString", "posString", "reference");
+            enumAttribute = entityType.getSingularAttribute("source");
+            enumClass = Source.LemmaType.class;
+        } else if (typeClass.equals(Pos.class)) {
+            addLikeAttributes("name");
+            enumAttribute = entityType.getSingularAttribute("source");
+            enumClass = Source.PosType.class;
+        }
+
+        if (sortProperty == null) {
+            orderProperties = new String[0];
+            orderDirections = new Boolean[0];
+            keyset = false;
+        } else if (typeClass.equals(Context.class)) {
+            String[] keysetProperties = CriteriaHelper.getContextKeysetProperties(sortProperty);
+
+            if (keysetProperties != null) {
+                orderProperties = keysetProperties;
+                orderDirections = CriteriaHelper.getContextKeysetDirections(isAscending);
+                keyset = true;
+            } else {
+                orderProperties = new String[0];
+                orderDirections = new Boolean[0];
+                keyset = false;
+            }
+        } else {
+            orderProperties = new String[]{sortProperty};
+            orderDirections = new Boolean[]{isAscending};
+            keyset = false;
+        }
+    }
+
+    /**
+     * Returns the compiled plan for a data type, filter property and sort order.
+     *
+     * @param metamodel      metamodel of the persistence unit
+     * @param typeClass      data type
+     * @param filterProperty filter property, or null
+     * @param sortProperty   sort property, or null
+     * @param isAscending    sort direction
+     * @return A query plan.
+     */
+    static QueryPlan get(Metamodel metamodel, Class<?> typeClass, String filterProperty, String sortProperty,
+                         Boolean isAscending) {
+        List<Object> key = Arrays.asList(typeClass, filterProperty, sortProperty, isAscending);
+        QueryPlan plan = plans.get(key);
+
+        if (plan == null) {
+            plan = new QueryPlan(metamodel, typeClass, filterProperty, sortProperty, isAscending);
+            plans.putIfAbsent(key, plan);
+        }
+
+        return plan;
+    }
+
+    /**
+     * Adds attributes matched by a like restriction.
+     *
+     * @param properties attribute names
+     */
+    private void addLikeAttributes(String... properties) {
+        for (String property : properties) {
+            likeAttributes.add(entityType.getSingularAttribute(property));
+        }
+    }
+
+    /**
+     * Returns restrictions for a string filter.
+     *
+     * @param criteriaBuilder contructor for criteria queries
+     * @param root            query root referencing entities
+     * @param filter          string filter
+     * @return An expression of type boolean, or null.
+     */
+    Expression<Boolean> getFilterStringRestriction(CriteriaBuilder criteriaBuilder, Root<?> root, String filter) {
+        List<Predicate> predicateList = new ArrayList<>();
+        Boolean isNumeric = filter.matches("^\\d+$");
+
+        if (numberOnly) {
+            if (isNumeric) {
+                return criteriaBuilder.equal(getPath(root, numberAttribute), filter);
+            } else {
+                return criteriaBuilder.ge(getNumberPath(root, numberAttribute), 0);
+            }
+        }
+
+        for (SingularAttribute<?, ?> attribute : likeAttributes) {
+            predicateList.add(criteriaBuilder.like(getStringPath(root, attribute), filter + "%"));
+        }
+
+        if (numberAttribute != null && isNumeric) {
+            predicateList.add(criteriaBuilder.equal(getPath(root, numberAttribute), filter));
+        }
+
+        if (enumAttribute != null) {
+            Enum<?> value = CriteriaHelper.matchEnumLabel(enumClass, filter);
+
+            if (value != null) {
+                predicateList.add(criteriaBuilder.equal(getPath(root, enumAttribute), value));
+            }
+        }
+
+        if (predicateList.isEmpty()) {
+            return null;
+        } else if (predicateList.size() == 1) {
+            return predicateList.get(0);
+        }
+
+        return criteriaBuilder.or(predicateList.toArray(new Predicate[predicateList.size()]));
+    }
+
+    /**
+     * Returns restrictions for a filter state. Non-null persistent fields of the state are matched, strings by
+     * prefix, other values by equality.
+     *
+     * @param criteriaBuilder contructor for criteria queries
+     * @param root            query root referencing entities
+     * @param state           filter state
+     * @return An expression of type boolean, or null.
+     */
+    Expression<Boolean> getFilterStateRestriction(CriteriaBuilder criteriaBuilder, Root<?> root, Object state) {
+        List<Predicate> predicateList = new ArrayList<>();
+
+        for (StateAccessor accessor : getStateAccessors(state.getClass())) {
+            Object value = accessor.getValue(state);
+
+            if (value instanceof String) {
+                predicateList.add(criteriaBuilder.like(getStringPath(root, accessor.getAttribute()), value + "%"));
+            } else if (value != null) {
+                predicateList.add(criteriaBuilder.equal(getPath(root, accessor.getAttribute()), value));
+            }
+        }
+
+        if (!predicateList.isEmpty()) {
+            return criteriaBuilder.or(predicateList.toArray(new Predicate[predicateList.size()]));
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the list of order objects of the plan.
+     *
+     * @param criteriaBuilder contructor for criteria queries
+     * @param root            query root referencing entities
+     * @param joins           map of joins
+     * @return A list of order objects.
+     */
+    List<Order> getOrder(CriteriaBuilder criteriaBuilder, Root<?> root, Map<String, Join<?, ?>> joins) {
+        List<Order> orderList = new ArrayList<>();
+
+        for (int i = 0; i < orderProperties.length; i++) {
+            String[] splitProperty = orderProperties[i].split("\\.");
+            Expression<?> expression;
+
+            if (Array.getLength(splitProperty) == 2) {
+                Join<?, ?> join = joins != null ? joins.get(splitProperty[0]) : null;
+
+                if (join != null) {
+                    expression = join.get(splitProperty[1]);
+                } else {
+                    throw new IllegalStateException("Join for sort property " + orderProperties[i] + " is missing.");
+                }
+            } else {
+                expression = root.get(orderProperties[i]);
+            }
+
+            if (orderDirections[i]) {
+                orderList.add(criteriaBuilder.asc(expression));
+            } else {
+                orderList.add(criteriaBuilder.desc(expression));
+            }
+        }
+
+        return orderList;
+    }
+
+    /**
+     * Returns the names of attributes matched by a string filter with a like restriction.
+     *
+     * @return A list of attribute names.
+     */
+    List<String> getLikeProperties() {
+        List<String> properties = new ArrayList<>();
+
+        for (SingularAttribute<?, ?> attribute : likeAttributes) {
+            properties.add(attribute.getName());
+        }
+
+        return properties;
+    }
+
+    /**
+     * Returns the name of the attribute matched by a numeric string filter.
+     *
+     * @return An attribute name, or null.
+     */
+    String getNumberProperty() {
+        return numberAttribute != null ? numberAttribute.getName() : null;
+    }
+
+    /**
+     * Checks if a string filter matches the number attribute only.
+     *
+     * @return True if only the number attribute is matched; false otherwise.
+     */
+    Boolean isNumberOnly() {
+        return numberOnly;
+    }
+
+    /**
+     * Checks if a string filter matches an enum label of the plan’s enum attribute.
+     *
+     * @param filter string filter
+     * @return True if an enum label is matched; false otherwise.
+     */
+    Boolean matchesEnumLabel(String filter) {
+        return enumAttribute != null && CriteriaHelper.matchEnumLabel(enumClass, filter) != null;
+    }
+
+    /**
+     * Returns the sort properties if they form a unique keyset.
+     *
+     * @return An array of properties, or null.
+     */
+    String[] getKeysetProperties() {
+        return keyset ? orderProperties : null;
+    }
+
+    /**
+     * Returns the sort directions of keyset properties.
+     *
+     * @return An array of sort directions, true meaning ascending, or null.
+     */
+    Boolean[] getKeysetDirections() {
+        return keyset ? orderDirections : null;
+    }
+
+    /**
+     * Returns the accessors of persistent fields of a filter state class.
+     *
+     * @param stateClass filter state class
+     * @return A list of accessors.
+     */
+    private List<StateAccessor> getStateAccessors(Class<?> stateClass) {
+        List<StateAccessor> accessors = stateAccessors.get(stateClass);
+
+        if (accessors == null) {
+            accessors = new ArrayList<>();
+
+            for (Field field : stateClass.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.getName().equals("id")
+                        || field.getName().equals("uuid")) {
+                    continue;
+                }
+
+                for (Attribute<?, ?> attribute : entityType.getSingularAttributes()) {
+                    if (attribute.getName().equals(field.getName())) {
+                        field.setAccessible(true);
+                        accessors.add(new StateAccessor(field, (SingularAttribute<?, ?>) attribute));
+                    }
+                }
+            }
+
+            accessors = Collections.unmodifiableList(accessors);
+            stateAccessors.putIfAbsent(stateClass, accessors);
+        }
+
+        return accessors;
+    }
+
+    /**
+     * Returns the path of an attribute.
+     *
+     * @param root      query root referencing entities
+     * @param attribute an attribute
+     * @return A path.
+     */
+    @SuppressWarnings("unchecked")
+    private static Path<Object> getPath(Root<?> root, SingularAttribute<?, ?> attribute) {
+        return ((Root<Object>) root).get((SingularAttribute<Object, Object>) attribute);
+    }
+
+    /**
+     * Returns the path of a string attribute.
+     *
+     * @param root      query root referencing entities
+     * @param attribute a string attribute
+     * @return A path.
+     */
+    @SuppressWarnings("unchecked")
+    private static Path<String> getStringPath(Root<?> root, SingularAttribute<?, ?> attribute) {
+        return ((Root<Object>) root).get((SingularAttribute<Object, String>) attribute);
+    }
+
+    /**
+     * Returns the path of a numeric attribute.
+     *
+     * @param root      query root referencing entities
+     * @param attribute a numeric attribute
+     * @return A path.
+     */
+    @SuppressWarnings("unchecked")
+    private static Path<Integer> getNumberPath(Root<?> root, SingularAttribute<?, ?> attribute) {
+        return ((Root<Object>) root).get((SingularAttribute<Object, Integer>) attribute);
+    }
+
+    /**
+     * A precomputed accessor of a persistent filter state field.
+     */
+    private static final class StateAccessor {
+        /**
+         * An accessible field.
+         */
+        private final Field field;
+
+        /**
+         * The attribute of the field.
+         */
+        private final SingularAttribute<?, ?> attribute;
+
+        /**
+         * Creates a state accessor.
+         *
+         * @param field     an accessible field
+         * @param attribute the attribute of the field
+         */
+        private StateAccessor(Field field, SingularAttribute<?, ?> attribute) {
+            this.field = field;
+            this.attribute = attribute;
+        }
+
+        /**
+         * Returns the attribute of the field.
+         *
+         * @return A singular attribute.
+         */
+        private SingularAttribute<?, ?> getAttribute() {
+            return attribute;
+        }
+
+        /**
+         * Returns the value of the field for a filter state.
+         *
+         * @param state a filter state
+         * @return A field value, or null.
+         */
+        private Object getValue(Object state) {
+            try {
+                return field.get(state);
+            } catch (IllegalArgumentException | IllegalAccessException e) {
+                e.printStackTrace();
+            }
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package lemming.data;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+
+/**
+ * A resource-level transaction of an entity manager which only reads data.
+ * <p>
+ * While the transaction is active, entities are loaded without snapshots for dirty checking, the session is never
+ * flushed and the JDBC connection is marked read-only, so that the database may skip undo logging and locking.
+ */
+final class ReadOnlyTransaction implements EntityTransaction {
+    /**
+     * The entity manager of the transaction.
+     */
+    private final EntityManager entityManager;
+
+    /**
+     * The resource-level transaction of the entity manager.
+     */
+    private final EntityTransaction transaction;
+
+    /**
+     * Flush mode of the session before the transaction began.
+     */
+    private FlushMode flushMode;
+
+    /**
+     * Default read-only state of the session before the transaction began.
+     */
+    private Boolean defaultReadOnly;
+
+    /**
+     * Creates a read-only transaction.
+     *
+     * @param entityManager an entity manager not bound to a unit of work
+     */
+    ReadOnlyTransaction(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.transaction = entityManager.getTransaction();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void begin() {
+        Session session = entityManager.unwrap(Session.class);
+        transaction.begin();
+        flushMode = session.getHibernateFlushMode();
+        defaultReadOnly = session.isDefaultReadOnly();
+        session.setHibernateFlushMode(FlushMode.MANUAL);
+        session.setDefaultReadOnly(true);
+        session.doWork(connection -> connection.setReadOnly(true));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void commit() {
+        // nothing was written, so the session is not flushed on commit
+        reset();
+        transaction.commit();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rollback() {
+        try {
+            reset();
+        } finally {
+            transaction.rollback();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setRollbackOnly() {
+        transaction.setRollbackOnly();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getRollbackOnly() {
+        return transaction.getRollbackOnly();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isActive() {
+        return transaction.isActive();
+    }
+
+    /**
+     * Restores the session and the connection before they are used for other work.
+     */
+    private void reset() {
+        Session session = entityManager.unwrap(Session.class);
+
+        if (flushMode == null) {
+            return;
+        }
+
+        session.doWork(connection -> connection.setReadOnly(false));
+        session.setHibernateFlushMode(flushMode);
+        session.setDefaultReadOnly(defaultReadOnly);
+        flushMode = null;
+    }
+}
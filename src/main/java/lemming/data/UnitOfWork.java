@@ -0,0 +1,430 @@
+package lemming.data;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * A request-scoped unit of work providing one persistence context, one connection and one transaction per request.
+ * <p>
+ * A unit of work is bound to the current thread by a request listener. While it is bound, entity managers created
+ * by EntityManagerListener are shared proxies. Their transactions take part in the transaction of the unit of work,
+ * and closing them has no effect.
+ */
+public final class UnitOfWork {
+    /**
+     * A logger named corresponding to this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(UnitOfWork.class);
+
+    /**
+     * The unit of work bound to the current thread.
+     */
+    private static final ThreadLocal<UnitOfWork> currentUnitOfWork = new ThreadLocal<>();
+
+    /**
+     * The entity manager of the unit of work, or null if it is not yet opened.
+     */
+    private EntityManager entityManager;
+
+    /**
+     * The shared entity manager proxy handed out to DAOs.
+     */
+    private final EntityManager entityManagerProxy;
+
+    /**
+     * Number of active participating transactions.
+     */
+    private Integer depth = 0;
+
+    /**
+     * True if the outermost active participating transaction is read-write.
+     */
+    private Boolean writing = false;
+
+    /**
+     * True if data was written by the unit of work.
+     */
+    private Boolean written = false;
+
+    /**
+     * True if the unit of work must not commit.
+     */
+    private Boolean rollbackOnly = false;
+
+    /**
+     * Creates a unit of work.
+     */
+    private UnitOfWork() {
+        entityManagerProxy = (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(),
+                new Class<?>[]{EntityManager.class}, new SharedEntityManagerHandler());
+    }
+
+    /**
+     * Binds a new unit of work to the current thread. A stale unit of work is rolled back first.
+     */
+    public static void bind() {
+        UnitOfWork staleUnitOfWork = currentUnitOfWork.get();
+
+        if (staleUnitOfWork != null) {
+            logger.warn("Rolling back a stale unit of work.");
+            unbind(false);
+        }
+
+        currentUnitOfWork.set(new UnitOfWork());
+    }
+
+    /**
+     * Ends the unit of work bound to the current thread, if any.
+     *
+     * @param commit true if written data shall be committed; false if it shall be rolled back
+     */
+    public static void unbind(Boolean commit) {
+        UnitOfWork unitOfWork = currentUnitOfWork.get();
+        currentUnitOfWork.remove();
+
+        if (unitOfWork != null) {
+            unitOfWork.end(commit);
+        }
+    }
+
+    /**
+     * Commits data written so far by the unit of work bound to the current thread, if any. The unit of work stays
+     * bound, and a subsequent access begins a new transaction.
+     * <p>
+     * If the commit fails, the unit of work is rolled back and the exception is rethrown, so that it reaches the
+     * exception handling of the caller.
+     */
+    public static void commit() {
+        UnitOfWork unitOfWork = currentUnitOfWork.get();
+
+        if (unitOfWork != null) {
+            unitOfWork.commitWritten();
+        }
+    }
+
+    /**
+     * Marks the unit of work bound to the current thread as not committable.
+     */
+    public static void markRollbackOnly() {
+        UnitOfWork unitOfWork = currentUnitOfWork.get();
+
+        if (unitOfWork != null) {
+            unitOfWork.rollbackOnly = true;
+        }
+    }
+
+    /**
+     * Checks if a unit of work is bound to the current thread.
+     *
+     * @return True if a unit of work is bound; false otherwise.
+     */
+    public static Boolean isBound() {
+        return currentUnitOfWork.get() != null;
+    }
+
+    /**
+     * Returns the shared entity manager of the unit of work bound to the current thread.
+     *
+     * @return A shared entity manager, or null if no unit of work is bound.
+     */
+    static EntityManager getSharedEntityManager() {
+        UnitOfWork unitOfWork = currentUnitOfWork.get();
+        return unitOfWork != null ? unitOfWork.entityManagerProxy : null;
+    }
+
+    /**
+     * Returns a transaction for an entity manager with explicit read-only or read-write demarcation.
+     * <p>
+     * A read-only transaction of a shared entity manager does not flush and loads entities without snapshots. For
+     * an entity manager not bound to a unit of work, its own resource-level transaction is returned, wrapped in a
+     * transaction on a read-only connection for read-only demarcation.
+     *
+     * @param entityManager an entity manager
+     * @param readOnly      true for read-only demarcation; false for read-write demarcation
+     * @return An entity transaction.
+     */
+    public static EntityTransaction getTransaction(EntityManager entityManager, Boolean readOnly) {
+        if (Proxy.isProxyClass(entityManager.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(entityManager);
+
+            if (handler instanceof SharedEntityManagerHandler) {
+                return ((SharedEntityManagerHandler) handler).getUnitOfWork().new Participation(readOnly);
+            }
+        }
+
+        return readOnly ? new ReadOnlyTransaction(entityManager) : entityManager.getTransaction();
+    }
+
+    /**
+     * Returns the entity manager of the unit of work and begins its transaction if necessary.
+     *
+     * @return An open entity manager.
+     */
+    private EntityManager getEntityManager() {
+        if (entityManager == null) {
+            entityManager = EntityManagerListener.openEntityManager();
+        }
+
+        if (!entityManager.getTransaction().isActive()) {
+            entityManager.getTransaction().begin();
+        }
+
+        return entityManager;
+    }
+
+    /**
+     * Called when a participating transaction begins.
+     *
+     * @param readOnly true for read-only demarcation
+     */
+    private void join(Boolean readOnly) {
+        Session session = getEntityManager().unwrap(Session.class);
+
+        if (depth == 0) {
+            writing = !readOnly;
+
+            if (writing) {
+                // writes operate on detached state like before, so entities loaded read-only are evicted
+                entityManager.clear();
+            }
+
+            session.setDefaultReadOnly(readOnly);
+            session.setHibernateFlushMode(readOnly ? FlushMode.MANUAL : FlushMode.AUTO);
+        } else if (!readOnly && !writing) {
+            writing = true;
+            session.setDefaultReadOnly(false);
+            session.setHibernateFlushMode(FlushMode.AUTO);
+        }
+
+        depth++;
+    }
+
+    /**
+     * Called when a participating transaction commits.
+     */
+    private void leave() {
+        if (depth > 0) {
+            depth--;
+        }
+
+        if (depth == 0 && writing) {
+            entityManager.flush();
+            entityManager.clear();
+            written = true;
+            writing = false;
+        }
+    }
+
+    /**
+     * Rolls back the unit of work and discards its persistence context. A subsequent access opens a new one.
+     */
+    private void rollback() {
+        depth = 0;
+        writing = false;
+        written = false;
+
+        if (entityManager != null) {
+            try {
+                if (entityManager.getTransaction().isActive()) {
+                    entityManager.getTransaction().rollback();
+                }
+            } finally {
+                entityManager.close();
+                entityManager = null;
+            }
+        }
+    }
+
+    /**
+     * Commits the transaction of the unit of work if data was written and no participating transaction is active.
+     */
+    private void commitWritten() {
+        if (entityManager == null || !written || rollbackOnly || depth > 0) {
+            return;
+        }
+
+        EntityTransaction transaction = entityManager.getTransaction();
+
+        try {
+            if (transaction.isActive()) {
+                transaction.commit();
+            }
+
+            written = false;
+        } catch (RuntimeException e) {
+            logger.error("Committing unit of work failed.", e);
+            rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Ends the unit of work.
+     *
+     * @param commit true if written data shall be committed
+     */
+    private void end(Boolean commit) {
+        if (entityManager == null) {
+            return;
+        }
+
+        EntityTransaction transaction = entityManager.getTransaction();
+
+        try {
+            if (transaction.isActive()) {
+                if (commit && written && !rollbackOnly && depth == 0) {
+                    transaction.commit();
+                } else {
+                    // a transaction which only read data is ended without commit
+                    transaction.rollback();
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Ending unit of work failed.", e);
+
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            throw e;
+        } finally {
+            entityManager.close();
+            entityManager = null;
+        }
+    }
+
+    /**
+     * A transaction taking part in the transaction of a unit of work.
+     */
+    private final class Participation implements EntityTransaction {
+        /**
+         * Demarcation of the participating transaction.
+         */
+        private final Boolean readOnly;
+
+        /**
+         * True if the participating transaction is active.
+         */
+        private Boolean active = false;
+
+        /**
+         * Creates a participating transaction.
+         *
+         * @param readOnly true for read-only demarcation
+         */
+        private Participation(Boolean readOnly) {
+            this.readOnly = readOnly;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void begin() {
+            if (active) {
+                throw new IllegalStateException("Transaction already active.");
+            }
+
+            join(readOnly);
+            active = true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void commit() {
+            if (!active) {
+                throw new IllegalStateException("Transaction not active.");
+            }
+
+            // stays active on failure so that callers roll back
+            leave();
+            active = false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void rollback() {
+            active = false;
+            UnitOfWork.this.rollback();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setRollbackOnly() {
+            rollbackOnly = true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean getRollbackOnly() {
+            return rollbackOnly;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    /**
+     * Delegates calls of a shared entity manager to the entity manager of a unit of work.
+     */
+    private final class SharedEntityManagerHandler implements InvocationHandler {
+        /**
+         * Returns the unit of work of the handler.
+         *
+         * @return A unit of work.
+         */
+        private UnitOfWork getUnitOfWork() {
+            return UnitOfWork.this;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] arguments) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    // the unit of work closes the entity manager at the end of a request
+                    return null;
+                case "isOpen":
+                    return true;
+                case "getTransaction":
+                    return new Participation(false);
+                case "equals":
+                    return proxy == arguments[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Shared entity manager of " + UnitOfWork.this;
+            }
+
+            try {
+                return method.invoke(getEntityManager(), arguments);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
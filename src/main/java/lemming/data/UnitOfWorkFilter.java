@@ -0,0 +1,82 @@
+package lemming.data;
+
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+
+/**
+ * Binds a unit of work to each Jersey request.
+ * <p>
+ * The unit of work ends before a streamed entity is written. Streaming resources therefore use their own entity
+ * managers. If no response filter runs because an exception is not mapped to a response, the unit of work is rolled
+ * back when the request is finished.
+ *
+ * @see UnitOfWork
+ */
+@Provider
+@Priority(Priorities.USER)
+public class UnitOfWorkFilter implements ContainerRequestFilter, ContainerResponseFilter, ApplicationEventListener {
+    /**
+     * Binds a unit of work when a request is received.
+     *
+     * @param requestContext request context
+     * @throws IOException
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        UnitOfWork.bind();
+    }
+
+    /**
+     * Commits or rolls back the unit of work depending on the response status.
+     *
+     * @param requestContext  request context
+     * @param responseContext response context
+     * @throws IOException
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext)
+            throws IOException {
+        Boolean successful = responseContext.getStatusInfo().getFamily() != Response.Status.Family.CLIENT_ERROR &&
+                responseContext.getStatusInfo().getFamily() != Response.Status.Family.SERVER_ERROR;
+
+        UnitOfWork.unbind(successful);
+    }
+
+    /**
+     * Ignores application events.
+     *
+     * @param event an application event
+     */
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    /**
+     * Returns a listener which rolls back a unit of work left over by a finished request.
+     *
+     * @param requestEvent the event of the started request
+     * @return A request event listener.
+     */
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        return event -> {
+            if (event.getType() == RequestEvent.Type.ON_EXCEPTION) {
+                UnitOfWork.markRollbackOnly();
+            } else if (event.getType() == RequestEvent.Type.FINISHED && UnitOfWork.isBound()) {
+                UnitOfWork.unbind(false);
+            }
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package lemming.data;
+
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.cycle.AbstractRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+
+/**
+ * Binds a unit of work to each Wicket request cycle.
+ * <p>
+ * Written data is committed as soon as a request handler has executed or schedules the handler which renders the
+ * response. Row locks are therefore not held while a page renders, and a failing commit is handled like any other
+ * exception of the request cycle, so that the error page is shown instead of a page showing data that was not saved.
+ *
+ * @see UnitOfWork
+ */
+public class UnitOfWorkRequestCycleListener extends AbstractRequestCycleListener {
+    /**
+     * Binds a unit of work when a request cycle begins.
+     *
+     * @param cycle the request cycle
+     */
+    @Override
+    public void onBeginRequest(RequestCycle cycle) {
+        UnitOfWork.bind();
+    }
+
+    /**
+     * Commits written data before a scheduled request handler writes the response.
+     *
+     * @param cycle   the request cycle
+     * @param handler the scheduled request handler
+     */
+    @Override
+    public void onRequestHandlerScheduled(RequestCycle cycle, IRequestHandler handler) {
+        if (handler != null) {
+            UnitOfWork.commit();
+        }
+    }
+
+    /**
+     * Commits written data after a request handler has executed.
+     *
+     * @param cycle   the request cycle
+     * @param handler the executed request handler
+     */
+    @Override
+    public void onRequestHandlerExecuted(RequestCycle cycle, IRequestHandler handler) {
+        UnitOfWork.commit();
+    }
+
+    /**
+     * Marks the unit of work as not committable when an exception occurs.
+     *
+     * @param cycle     the request cycle
+     * @param exception the exception that occurred
+     * @return Always null, so that other listeners or the application handle the exception.
+     */
+    @Override
+    public IRequestHandler onException(RequestCycle cycle, Exception exception) {
+        UnitOfWork.markRollbackOnly();
+        return null;
+    }
+
+    /**
+     * Ends the unit of work when a request cycle ends. Data written while rendering is committed.
+     *
+     * @param cycle the request cycle
+     */
+    @Override
+    public void onEndRequest(RequestCycle cycle) {
+        UnitOfWork.unbind(true);
+    }
+
+    /**
+     * Rolls back a unit of work left over by an aborted request cycle.
+     *
+     * @param cycle the request cycle
+     */
+    @Override
+    public void onDetach(RequestCycle cycle) {
+        if (UnitOfWork.isBound()) {
+            UnitOfWork.unbind(false);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import lemming.data.Source;
 import lemming.pos.Pos;
 import lemming.user.User;
 import org.hibernate.annotations.*;
+import org.hibernate.annotations.Cache;
 
 import javax.persistence.*;
 import javax.persistence.Entity;
@@ -18,6 +19,8 @@ import java.util.UUID;
  * Class representing a lemma.
  */
 @BatchSize(size = 30)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Cacheable
 @DynamicUpdate
 @Entity
 @SelectBeforeUpdate
@@ -32,7 +35,8 @@ public class Lemma extends DatedEntity implements Serializable {
      * ID associated with a lemma.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "lemma_id")
+    @GenericGenerator(name = "lemma_id", strategy = "lemming.data.PooledIdGenerator")
     private Integer id;
 
     /**
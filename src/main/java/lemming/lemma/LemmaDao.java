@@ -234,7 +234,7 @@ public class LemmaDao extends GenericDao<Lemma> implements ILemmaDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Lemma> query = entityManager.createQuery("SELECT l FROM Lemma l " +
                     "LEFT JOIN FETCH l.replacement LEFT JOIN FETCH l.pos LEFT JOIN FETCH l.user " +
@@ -295,7 +295,7 @@ public class LemmaDao extends GenericDao<Lemma> implements ILemmaDao {
         }
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Lemma> query = entityManager.createQuery(queryString, Lemma.class);
             List<Lemma> lemmaList = query.setParameter("substring", substring + "%").getResultList();
@@ -324,7 +324,7 @@ public class LemmaDao extends GenericDao<Lemma> implements ILemmaDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Lemma> query = entityManager
                     .createQuery("SELECT l FROM Lemma l LEFT JOIN FETCH l.replacement LEFT JOIN FETCH l.pos " +
@@ -355,7 +355,7 @@ public class LemmaDao extends GenericDao<Lemma> implements ILemmaDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Lemma> query = entityManager
                     .createQuery("SELECT l FROM Lemma l LEFT JOIN FETCH l.replacement LEFT JOIN FETCH l.pos " +
@@ -386,7 +386,7 @@ public class LemmaDao extends GenericDao<Lemma> implements ILemmaDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Lemma> query = entityManager
                     .createQuery("FROM Lemma WHERE user = :user", Lemma.class);
@@ -416,7 +416,7 @@ public class LemmaDao extends GenericDao<Lemma> implements ILemmaDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Lemma> query = entityManager
                     .createQuery("FROM Lemma WHERE source = :source AND replacement_string IS NOT NULL", Lemma.class);
@@ -529,7 +529,7 @@ public class LemmaDao extends GenericDao<Lemma> implements ILemmaDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Lemma> query = entityManager.createQuery("SELECT l FROM Lemma l " +
                     "LEFT JOIN FETCH l.replacement LEFT JOIN FETCH l.pos LEFT JOIN FETCH l.user", Lemma.class);
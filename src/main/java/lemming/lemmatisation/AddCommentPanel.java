@@ -11,12 +11,10 @@ import org.apache.wicket.markup.head.IHeaderResponse;
 import org.apache.wicket.markup.head.OnDomReadyHeaderItem;
 import org.apache.wicket.markup.html.form.Form;
 import org.apache.wicket.markup.html.form.TextArea;
-import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.Model;
 import org.apache.wicket.model.util.CollectionModel;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 /**
@@ -46,25 +44,6 @@ public class AddCommentPanel extends ModalFormPanel {
         addFormComponent(commentTextArea);
     }
 
-    /**
-     * Returns a list of selected contexts.
-     *
-     * @return A list of selected contexts.
-     */
-    private List<Context> getSelectedContexts() {
-        Collection<IModel<Context>> rowModels = dataTable.getRowModels();
-        List<Context> selectedContexts = new ArrayList<>();
-
-        for (IModel<Context> rowModel : rowModels) {
-            if (rowModel.getObject().getSelected()) {
-                Context context = rowModel.getObject();
-                selectedContexts.add(context);
-            }
-        }
-
-        return selectedContexts;
-    }
-
     /**
      * Returns a list of IDs for a list of contexts.
      *
@@ -118,7 +97,7 @@ public class AddCommentPanel extends ModalFormPanel {
     @SuppressWarnings("unchecked")
     public void onConfirm(AjaxRequestTarget target, Form<?> form) {
         ContextDao contextDao = new ContextDao();
-        List<Context> selectedContexts = getSelectedContexts();
+        List<Context> selectedContexts = dataTable.getSelectedContexts();
         List<Context> changedContexts = new ArrayList<>();
         String content = commentTextArea.getModelObject();
         User user = WebSession.get().getUser();
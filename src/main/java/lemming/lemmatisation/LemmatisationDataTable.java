@@ -1,6 +1,8 @@
 package lemming.lemmatisation;
 
 import lemming.context.Context;
+import lemming.context.ContextDao;
+import lemming.context.ContextRow;
 import lemming.data.GenericDataProvider;
 import lemming.table.NavigationToolbar;
 import org.apache.wicket.AttributeModifier;
@@ -19,13 +21,14 @@ import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.util.CollectionModel;
 import org.apache.wicket.request.resource.JavaScriptResourceReference;
 import org.apache.wicket.request.resource.PackageResourceReference;
+import org.hibernate.StaleObjectStateException;
 
 import java.util.*;
 
 /**
  * A custom data table with toolbars and data provider for context lemmatisation.
  */
-class LemmatisationDataTable extends DataTable<Context, String> {
+class LemmatisationDataTable extends DataTable<ContextRow, String> {
     /**
      * Default rows per page.
      */
@@ -34,7 +37,7 @@ class LemmatisationDataTable extends DataTable<Context, String> {
     /**
      * A map of row indexes and row models.
      */
-    private Map<Integer, IModel<Context>> rowModels;
+    private Map<Integer, IModel<ContextRow>> rowModels;
 
     /**
      * IDs of selected contexts. This is needed because the selected property of contexts is transient.
@@ -47,8 +50,8 @@ class LemmatisationDataTable extends DataTable<Context, String> {
      * @param columns      list of columns
      * @param dataProvider
      */
-    public LemmatisationDataTable(List<IColumn<Context, String>> columns,
-                                  GenericDataProvider<Context> dataProvider) {
+    public LemmatisationDataTable(List<IColumn<ContextRow, String>> columns,
+                                  GenericDataProvider<ContextRow> dataProvider) {
         super("lemmatisationDataTable", columns, dataProvider, DEFAULT_ROWS_PER_PAGE);
         createTable(dataProvider, null);
     }
@@ -60,8 +63,8 @@ class LemmatisationDataTable extends DataTable<Context, String> {
      * @param dataProvider provides data for a table
      * @param filterForm
      */
-    public LemmatisationDataTable(List<IColumn<Context, String>> columns,
-                                  GenericDataProvider<Context> dataProvider, FilterForm<Context> filterForm) {
+    public LemmatisationDataTable(List<IColumn<ContextRow, String>> columns,
+                                  GenericDataProvider<ContextRow> dataProvider, FilterForm<ContextRow> filterForm) {
         super("lemmatisationDataTable", columns, dataProvider, DEFAULT_ROWS_PER_PAGE);
         createTable(dataProvider, filterForm);
     }
@@ -72,7 +75,7 @@ class LemmatisationDataTable extends DataTable<Context, String> {
      * @param dataProvider provides data for a table
      * @param filterForm   form that filters data of a table
      */
-    private void createTable(GenericDataProvider<Context> dataProvider, FilterForm<Context> filterForm) {
+    private void createTable(GenericDataProvider<ContextRow> dataProvider, FilterForm<ContextRow> filterForm) {
         setOutputMarkupId(true);
         add(AttributeModifier.append("class", "table table-hover table-striped selectable"));
         addTopToolbar(new NavigationToolbar<>(this));
@@ -112,8 +115,8 @@ class LemmatisationDataTable extends DataTable<Context, String> {
      * @return A row item.
      */
     @Override
-    protected Item<Context> newRowItem(String id, int index, IModel<Context> model) {
-        Item<Context> rowItem = super.newRowItem(id, index, model);
+    protected Item<ContextRow> newRowItem(String id, int index, IModel<ContextRow> model) {
+        Item<ContextRow> rowItem = super.newRowItem(id, index, model);
         rowItem.add(new RowSelectBehavior());
 
         if (selectedContextIds.getObject().contains(model.getObject().getId())) {
@@ -132,12 +135,41 @@ class LemmatisationDataTable extends DataTable<Context, String> {
     /**
      * Returns the row models of the table.
      *
-     * @return A collection of context models.
+     * @return A collection of context row models.
      */
-    public Collection<IModel<Context>> getRowModels() {
+    public Collection<IModel<ContextRow>> getRowModels() {
         return rowModels.values();
     }
 
+    /**
+     * Loads the contexts of selected rows.
+     * <p>
+     * A context changed since its row was displayed raises a locking error, like merging a stale context would.
+     *
+     * @return A list of selected contexts.
+     */
+    public List<Context> getSelectedContexts() {
+        Map<Integer, Long> selectedVersions = new HashMap<>();
+        ContextDao contextDao = new ContextDao();
+
+        for (IModel<ContextRow> rowModel : rowModels.values()) {
+            if (rowModel.getObject().getSelected()) {
+                selectedVersions.put(rowModel.getObject().getId(), rowModel.getObject().getVersion());
+            }
+        }
+
+        List<Context> selectedContexts = contextDao.findByIds(selectedVersions.keySet());
+
+        for (Context context : selectedContexts) {
+            if (!context.getVersion().equals(selectedVersions.get(context.getId()))) {
+                contextDao.panicOnSaveLockingError(context, new StaleObjectStateException(Context.class.getName(),
+                        context.getId()));
+            }
+        }
+
+        return selectedContexts;
+    }
+
     /**
      * Updates the IDs of selected contexts. This is needed because the selected property of contexts is transient.
      *
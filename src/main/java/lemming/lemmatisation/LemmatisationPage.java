@@ -51,6 +51,11 @@ public class LemmatisationPage extends LemmatisationBasePage {
      */
     private static final Boolean FILTER_FORM_ENABLED = false;
 
+    /**
+     * Number of contexts above which an outdated count may be displayed as approximate.
+     */
+    private static final Long APPROXIMATE_SIZE_THRESHOLD = 10000L;
+
     /**
      * A data table for contexts.
      */
@@ -65,12 +70,12 @@ public class LemmatisationPage extends LemmatisationBasePage {
      * Creates a lemmatisation page.
      */
     public LemmatisationPage() {
-        GenericDataProvider<Context> dataProvider = new GenericDataProvider<>(Context.class,
-                new SortParam<>("keyword", true));
-        FilterForm<Context> filterForm = new FilterForm<>("filterForm", dataProvider);
+        GenericDataProvider<ContextRow> dataProvider = new GenericDataProvider<>(Context.class, ContextRow.class,
+                ContextRow.PROPERTIES, new SortParam<>("keyword", true));
+        FilterForm<ContextRow> filterForm = new FilterForm<>("filterForm", dataProvider);
         TextField<String> filterValueTextField = new TextField<>("filterTextField", Model.of(""));
         TextField<String> filterPropertyTextField = new HiddenField<>("filterPropertyTextField", Model.of("keyword"));
-        DropdownButtonPanel dropdownButtonPanel = new DropdownButtonPanel<Context>(getString("Context.keyword"),
+        DropdownButtonPanel dropdownButtonPanel = new DropdownButtonPanel<ContextRow>(getString("Context.keyword"),
                 filterPropertyTextField, getColumns());
         WebMarkupContainer container = new WebMarkupContainer("container");
         Fragment fragment;
@@ -78,6 +83,9 @@ public class LemmatisationPage extends LemmatisationBasePage {
         // check if the session is expired
         WebSession.get().checkSessionExpired();
 
+        dataProvider.setKeysetPagination(true);
+        dataProvider.setApproximateSizeThreshold(APPROXIMATE_SIZE_THRESHOLD);
+
         if (FILTER_FORM_ENABLED) {
             fragment = new Fragment("fragment", "withFilterForm", this);
             dataTable = new LemmatisationDataTable(getColumns(), dataProvider, filterForm);
@@ -104,10 +112,10 @@ public class LemmatisationPage extends LemmatisationBasePage {
         commentSidebar = new CommentSidebar("commentSidebar", SidebarPanel.Orientation.RIGHT) {
             @Override
             public void onRemoveComment(IModel<Context> model, AjaxRequestTarget target) {
-                Collection<IModel<Context>> rowModels = dataTable.getRowModels();
+                Collection<IModel<ContextRow>> rowModels = dataTable.getRowModels();
                 CollectionModel<Integer> selectedContextIds = new CollectionModel<>(new ArrayList<>());
 
-                for (IModel<Context> rowModel : rowModels) {
+                for (IModel<ContextRow> rowModel : rowModels) {
                     if (rowModel.getObject().getSelected()) {
                         selectedContextIds.getObject().add(rowModel.getObject().getId());
                     }
@@ -158,8 +166,8 @@ public class LemmatisationPage extends LemmatisationBasePage {
      *
      * @return A list of columns.
      */
-    private List<IColumn<Context, String>> getColumns() {
-        List<IColumn<Context, String>> columns = new ArrayList<>();
+    private List<IColumn<ContextRow, String>> getColumns() {
+        List<IColumn<ContextRow, String>> columns = new ArrayList<>();
 
         columns.add(new ContextRowSelectColumn(Model.of("")));
         columns.add(new NumberTextFilterColumn(Model.of(getString("Context.number")), "number", "number"));
@@ -179,7 +187,7 @@ public class LemmatisationPage extends LemmatisationBasePage {
     /**
      * A row selection column for contexts.
      */
-    private class ContextRowSelectColumn extends RowSelectColumn<Context, Context, String> {
+    private class ContextRowSelectColumn extends RowSelectColumn<ContextRow, ContextRow, String> {
         /**
          * Creates a row selection column.
          *
@@ -203,7 +211,7 @@ public class LemmatisationPage extends LemmatisationBasePage {
     /**
      * A badge column for contexts.
      */
-    private class ContextBadgeColumn extends BadgeColumn<Context, Context, String> {
+    private class ContextBadgeColumn extends BadgeColumn<ContextRow, ContextRow, String> {
         /**
          * Creates a badge column.
          *
@@ -221,11 +229,11 @@ public class LemmatisationPage extends LemmatisationBasePage {
          * @return A badge panel.
          */
         @Override
-        public Panel createBadgePanel(String panelId, IModel<Context> model) {
-            Context refreshedContext = new ContextDao().refresh(model.getObject());
+        public Panel createBadgePanel(String panelId, IModel<ContextRow> model) {
+            Integer commentCount = model.getObject().getCommentCount();
 
-            if (refreshedContext.getComments() != null && refreshedContext.getComments().size() > 0) {
-                return new BadgePanel(panelId, model, String.valueOf(refreshedContext.getComments().size()), null);
+            if (commentCount != null && commentCount > 0) {
+                return new BadgePanel(panelId, model, String.valueOf(commentCount), null);
             } else {
                 return (Panel) new BadgePanel(panelId, model, null, "0").setVisible(false);
             }
@@ -238,8 +246,8 @@ public class LemmatisationPage extends LemmatisationBasePage {
          * @param model  model of the row item
          */
         @Override
-        public void onClick(AjaxRequestTarget target, IModel<Context> model) {
-            commentSidebar.refresh(model, target);
+        public void onClick(AjaxRequestTarget target, IModel<ContextRow> model) {
+            commentSidebar.refresh(Model.of(new ContextDao().find(model.getObject().getId())), target);
             commentSidebar.toggle(target);
         }
     }
@@ -266,7 +274,7 @@ public class LemmatisationPage extends LemmatisationBasePage {
         /**
          * Data provider which delivers data for the table.
          */
-        final GenericDataProvider<Context> dataProvider;
+        final GenericDataProvider<ContextRow> dataProvider;
 
         /**
          * Creates a behavior.
@@ -277,7 +285,7 @@ public class LemmatisationPage extends LemmatisationBasePage {
          * @param dataProvider      data provider which delivers data for the table.
          */
         public FilterUpdatingBehavior(TextField<String> valueTextField, TextField<String> propertyTextField,
-                                      LemmatisationDataTable dataTable, GenericDataProvider<Context> dataProvider) {
+                                      LemmatisationDataTable dataTable, GenericDataProvider<ContextRow> dataProvider) {
             super("input");
             this.valueTextField = valueTextField;
             this.propertyTextField = propertyTextField;
@@ -293,6 +301,7 @@ public class LemmatisationPage extends LemmatisationBasePage {
         @Override
         protected void onUpdate(AjaxRequestTarget target) {
             dataProvider.updateFilter(valueTextField.getModelObject(), propertyTextField.getModelObject());
+            dataTable.setCurrentPage(0);
             target.add(dataTable);
         }
 
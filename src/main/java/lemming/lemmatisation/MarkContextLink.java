@@ -6,11 +6,9 @@ import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.ajax.markup.html.AjaxLink;
 import org.apache.wicket.markup.head.IHeaderResponse;
 import org.apache.wicket.markup.head.OnDomReadyHeaderItem;
-import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.util.CollectionModel;
 
 import java.util.ArrayList;
-import java.util.Collection;
 
 /**
  * Toggles the interesting flag of selected contexts.
@@ -56,17 +54,13 @@ public class MarkContextLink extends AjaxLink<Void> {
      */
     @Override
     public void onClick(AjaxRequestTarget target) {
-        Collection<IModel<Context>> rowModels = dataTable.getRowModels();
         CollectionModel<Integer> selectedContextIds = new CollectionModel<>(new ArrayList<>());
         ContextDao contextDao = new ContextDao();
 
-        for (IModel<Context> rowModel : rowModels) {
-            if (rowModel.getObject().getSelected()) {
-                Context context = rowModel.getObject();
-                context.setInteresting(!context.getInteresting());
-                contextDao.merge(context);
-                selectedContextIds.getObject().add(context.getId());
-            }
+        for (Context context : dataTable.getSelectedContexts()) {
+            context.setInteresting(!context.getInteresting());
+            contextDao.merge(context);
+            selectedContextIds.getObject().add(context.getId());
         }
 
         dataTable.updateSelectedContexts(selectedContextIds);
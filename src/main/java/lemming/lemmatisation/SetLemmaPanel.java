@@ -10,12 +10,10 @@ import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.markup.head.IHeaderResponse;
 import org.apache.wicket.markup.head.OnDomReadyHeaderItem;
 import org.apache.wicket.markup.html.form.Form;
-import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.Model;
 import org.apache.wicket.model.util.CollectionModel;
 
 import java.util.ArrayList;
-import java.util.Collection;
 
 /**
  * A modal dialog to set a lemma for row models of a data table.
@@ -79,18 +77,14 @@ class SetLemmaPanel extends ModalFormPanel {
      */
     @Override
     public void onClear(AjaxRequestTarget target, Form<?> form) {
-        Collection<IModel<Context>> rowModels = dataTable.getRowModels();
         CollectionModel<Integer> selectedContextIds = new CollectionModel<>(new ArrayList<>());
         ContextDao contextDao = new ContextDao();
 
-        for (IModel<Context> rowModel : rowModels) {
-            if (rowModel.getObject().getSelected()) {
-                Context context = rowModel.getObject();
-                context.setLemma(null);
-                context.setLemmaString(null);
-                contextDao.merge(context);
-                selectedContextIds.getObject().add(context.getId());
-            }
+        for (Context context : dataTable.getSelectedContexts()) {
+            context.setLemma(null);
+            context.setLemmaString(null);
+            contextDao.merge(context);
+            selectedContextIds.getObject().add(context.getId());
         }
 
         dataTable.updateSelectedContexts(selectedContextIds);
@@ -107,18 +101,14 @@ class SetLemmaPanel extends ModalFormPanel {
     public void onConfirm(AjaxRequestTarget target, Form<?> form) {
         String lemmaName = lemmaTextField.getInput();
         Lemma lemma = new LemmaDao().findByName(lemmaName);
-        Collection<IModel<Context>> rowModels = dataTable.getRowModels();
         CollectionModel<Integer> selectedContextIds = new CollectionModel<>(new ArrayList<>());
         ContextDao contextDao = new ContextDao();
 
         if (lemma != null) {
-            for (IModel<Context> rowModel : rowModels) {
-                if (rowModel.getObject().getSelected()) {
-                    Context context = rowModel.getObject();
-                    context.setLemma(lemma);
-                    contextDao.merge(context);
-                    selectedContextIds.getObject().add(context.getId());
-                }
+            for (Context context : dataTable.getSelectedContexts()) {
+                context.setLemma(lemma);
+                contextDao.merge(context);
+                selectedContextIds.getObject().add(context.getId());
             }
 
             dataTable.updateSelectedContexts(selectedContextIds);
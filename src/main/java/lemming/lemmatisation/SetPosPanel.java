@@ -10,12 +10,10 @@ import org.apache.wicket.ajax.AjaxRequestTarget;
 import org.apache.wicket.markup.head.IHeaderResponse;
 import org.apache.wicket.markup.head.OnDomReadyHeaderItem;
 import org.apache.wicket.markup.html.form.Form;
-import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.Model;
 import org.apache.wicket.model.util.CollectionModel;
 
 import java.util.ArrayList;
-import java.util.Collection;
 
 /**
  * A modal dialog to set a part of speech for row models of a data table.
@@ -79,18 +77,14 @@ class SetPosPanel extends ModalFormPanel {
      */
     @Override
     public void onClear(AjaxRequestTarget target, Form<?> form) {
-        Collection<IModel<Context>> rowModels = dataTable.getRowModels();
         CollectionModel<Integer> selectedContextIds = new CollectionModel<>(new ArrayList<>());
         ContextDao contextDao = new ContextDao();
 
-        for (IModel<Context> rowModel : rowModels) {
-            if (rowModel.getObject().getSelected()) {
-                Context context = rowModel.getObject();
-                context.setPos(null);
-                context.setPosString(null);
-                contextDao.merge(context);
-                selectedContextIds.getObject().add(context.getId());
-            }
+        for (Context context : dataTable.getSelectedContexts()) {
+            context.setPos(null);
+            context.setPosString(null);
+            contextDao.merge(context);
+            selectedContextIds.getObject().add(context.getId());
         }
 
         dataTable.updateSelectedContexts(selectedContextIds);
@@ -107,18 +101,14 @@ class SetPosPanel extends ModalFormPanel {
     public void onConfirm(AjaxRequestTarget target, Form<?> form) {
         String posName = posTextField.getInput();
         Pos pos = new PosDao().findByName(posName);
-        Collection<IModel<Context>> rowModels = dataTable.getRowModels();
         CollectionModel<Integer> selectedContextIds = new CollectionModel<>(new ArrayList<>());
         ContextDao contextDao = new ContextDao();
 
         if (pos != null) {
-            for (IModel<Context> rowModel : rowModels) {
-                if (rowModel.getObject().getSelected()) {
-                    Context context = rowModel.getObject();
-                    context.setPos(pos);
-                    contextDao.merge(context);
-                    selectedContextIds.getObject().add(context.getId());
-                }
+            for (Context context : dataTable.getSelectedContexts()) {
+                context.setPos(pos);
+                contextDao.merge(context);
+                selectedContextIds.getObject().add(context.getId());
             }
 
             dataTable.updateSelectedContexts(selectedContextIds);
@@ -7,6 +7,7 @@ import lemming.data.Source;
 import lemming.lemma.Lemma;
 import org.hibernate.StaleObjectStateException;
 import org.hibernate.UnresolvableObjectException;
+import org.hibernate.annotations.QueryHints;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityTransaction;
@@ -136,10 +137,11 @@ public class PosDao extends GenericDao<Pos> implements IPosDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Pos> query = entityManager
                     .createQuery("FROM Pos WHERE name = :name ORDER BY name", Pos.class);
+            query.setHint(QueryHints.CACHEABLE, true);
             List<Pos> posList = query.setParameter("name", name).getResultList();
             transaction.commit();
 
@@ -177,7 +179,7 @@ public class PosDao extends GenericDao<Pos> implements IPosDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Pos> query = entityManager
                     .createQuery("FROM Pos WHERE name LIKE :substring ORDER BY name", Pos.class);
@@ -207,7 +209,7 @@ public class PosDao extends GenericDao<Pos> implements IPosDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<Pos> query = entityManager
                     .createQuery("FROM Pos WHERE source = :source ORDER BY name", Pos.class);
@@ -51,6 +51,7 @@ public class FilterUpdatingBehavior extends AjaxFormComponentUpdatingBehavior {
     @Override
     protected void onUpdate(AjaxRequestTarget target) {
         dataProvider.updateFilter(textField.getInput());
+        dataTable.setCurrentPage(0);
         target.add(dataTable);
     }
 
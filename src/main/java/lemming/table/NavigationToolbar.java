@@ -1,8 +1,13 @@
 package lemming.table;
 
+import lemming.data.GenericDataProvider;
 import org.apache.wicket.Component;
 import org.apache.wicket.extensions.ajax.markup.html.repeater.data.table.AjaxNavigationToolbar;
 import org.apache.wicket.extensions.markup.html.repeater.data.table.DataTable;
+import org.apache.wicket.extensions.markup.html.repeater.data.table.NavigatorLabel;
+import org.apache.wicket.markup.ComponentTag;
+import org.apache.wicket.markup.MarkupStream;
+import org.apache.wicket.markup.html.WebComponent;
 import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.html.panel.Panel;
 
@@ -54,4 +59,35 @@ public class NavigationToolbar<T> extends AjaxNavigationToolbar {
     protected PagingNavigator newPagingNavigator(String navigatorId, DataTable<?, ?> table) {
         return new PagingNavigator(navigatorId, table);
     }
+
+    /**
+     * Creates a navigator label which marks approximate numbers of rows.
+     *
+     * @param navigatorId id of the navigator label
+     * @param table       table a navigator label is attached to
+     * @return A new navigator label.
+     */
+    @Override
+    protected WebComponent newNavigatorLabel(String navigatorId, final DataTable<?, ?> table) {
+        return new NavigatorLabel(navigatorId, table) {
+            /**
+             * Renders the body of the navigator label.
+             *
+             * @param markupStream markup stream
+             * @param openTag      open tag of the body
+             */
+            @Override
+            public void onComponentTagBody(MarkupStream markupStream, ComponentTag openTag) {
+                String body = getDefaultModelObjectAsString();
+
+                if (table.getDataProvider() instanceof GenericDataProvider) {
+                    if (((GenericDataProvider) table.getDataProvider()).isSizeApproximate()) {
+                        body += " " + getString("NavigatorLabel.approximate");
+                    }
+                }
+
+                replaceComponentTagBody(markupStream, openTag, body);
+            }
+        };
+    }
 }
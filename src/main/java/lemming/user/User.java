@@ -3,6 +3,7 @@ package lemming.user;
 import lemming.auth.UserRoles;
 import lemming.data.DatedEntity;
 import org.hibernate.annotations.*;
+import org.hibernate.annotations.Cache;
 
 import javax.persistence.*;
 import javax.persistence.Entity;
@@ -16,6 +17,8 @@ import java.util.UUID;
  * Represents a user with one role.
  */
 @BatchSize(size = 30)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Cacheable
 @DynamicUpdate
 @Entity
 @OptimisticLocking(type = OptimisticLockType.VERSION)
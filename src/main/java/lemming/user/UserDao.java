@@ -8,6 +8,7 @@ import lemming.data.GenericDao;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.hibernate.StaleObjectStateException;
 import org.hibernate.UnresolvableObjectException;
+import org.hibernate.annotations.QueryHints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -105,7 +106,27 @@ public class UserDao extends GenericDao<User> implements IUserDao {
      * @throws RuntimeException
      */
     public Boolean isDefaultUserNeeded() throws RuntimeException {
-        return getAll().isEmpty();
+        EntityManager entityManager = EntityManagerListener.createEntityManager();
+        EntityTransaction transaction = null;
+
+        try {
+            transaction = getReadOnlyTransaction(entityManager);
+            transaction.begin();
+            TypedQuery<Integer> query = entityManager.createQuery("SELECT u.id FROM User u", Integer.class);
+            List<Integer> idList = query.setMaxResults(1).getResultList();
+            transaction.commit();
+            return idList.isEmpty();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            throw e;
+        } finally {
+            entityManager.close();
+        }
     }
 
     /**
@@ -118,10 +139,11 @@ public class UserDao extends GenericDao<User> implements IUserDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<User> query = entityManager.createQuery("FROM User WHERE username = :username ORDER BY realName",
                     User.class);
+            query.setHint(QueryHints.CACHEABLE, true);
             List<User> userList = query.setParameter("username", username).getResultList();
             transaction.commit();
 
@@ -153,7 +175,7 @@ public class UserDao extends GenericDao<User> implements IUserDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<User> query = entityManager.createQuery("FROM User WHERE realName = :realName ORDER BY realName",
                     User.class);
@@ -188,9 +210,10 @@ public class UserDao extends GenericDao<User> implements IUserDao {
         EntityTransaction transaction = null;
 
         try {
-            transaction = entityManager.getTransaction();
+            transaction = getReadOnlyTransaction(entityManager);
             transaction.begin();
             TypedQuery<User> query = entityManager.createQuery("FROM User ORDER BY realName", User.class);
+            query.setHint(QueryHints.CACHEABLE, true);
             List<User> userList = query.getResultList();
             transaction.commit();
             return userList;
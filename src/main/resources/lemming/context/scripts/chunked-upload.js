@@ -0,0 +1,116 @@
+var chunkedUpload = (function () {
+    var CHUNK_SIZE = 4 * 1024 * 1024, RETRY_DELAY = 2000, MAX_RETRIES = 10;
+
+    // an upload is remembered per file, so that it is resumed after a reload of the page
+    function storageKey(file) {
+        return "chunkedUpload:" + file.name + ":" + file.size + ":" + file.lastModified;
+    }
+
+    function setProgress(options, offset, size) {
+        var percent = size > 0 ? Math.floor(offset * 100 / size) : 100;
+        jQuery(options.progress).show().find(".progress-bar").css("width", percent + "%").text(percent + "%");
+    }
+
+    // uploads the files one after another and reports all uploads at once
+    function uploadFiles(options, files, uploadIds) {
+        var file = files[uploadIds.length];
+
+        if (!file) {
+            jQuery(options.progress).hide();
+            jQuery(options.button).prop("disabled", false);
+            Wicket.Ajax.get({
+                u: options.callbackUrl, ep: jQuery.extend({}, options.parameters, { uploadIds: uploadIds.join(",") })
+            });
+            return;
+        }
+
+        uploadFile(options, file, function (uploadId) {
+            window.sessionStorage.removeItem(storageKey(file));
+            uploadIds.push(uploadId || "");
+            uploadFiles(options, files, uploadIds);
+        });
+    }
+
+    function sendChunks(options, file, upload, finish) {
+        var retries = 0;
+
+        function send(offset) {
+            var end = Math.min(offset + CHUNK_SIZE, file.size);
+            setProgress(options, offset, file.size);
+
+            if (offset >= file.size) {
+                finish(upload.id);
+                return;
+            }
+
+            jQuery.ajax({
+                url: options.url + "/" + upload.id + "?offset=" + offset, method: "PUT",
+                contentType: "application/octet-stream", processData: false, data: file.slice(offset, end),
+                dataType: "json"
+            }).done(function (state) {
+                retries = 0;
+                send(state.offset);
+            }).fail(function (xhr) {
+                resume(xhr);
+            });
+        }
+
+        // asks for the received offset after a conflict or a dropped connection
+        function resume(xhr) {
+            if (xhr.status === 404 || ++retries > MAX_RETRIES) {
+                finish(upload.id);
+                return;
+            }
+
+            window.setTimeout(function () {
+                jQuery.ajax({ url: options.url + "/" + upload.id, dataType: "json" }).done(function (state) {
+                    send(state.offset);
+                }).fail(function (xhr) {
+                    resume(xhr);
+                });
+            }, RETRY_DELAY);
+        }
+
+        send(upload.offset);
+    }
+
+    function createUpload(options, file, finish) {
+        jQuery.ajax({
+            url: options.url + "?fileName=" + encodeURIComponent(file.name) + "&size=" + file.size,
+            method: "POST", dataType: "json"
+        }).done(function (upload) {
+            window.sessionStorage.setItem(storageKey(file), upload.id);
+            sendChunks(options, file, upload, finish);
+        }).fail(function () {
+            finish(null);
+        });
+    }
+
+    function uploadFile(options, file, finish) {
+        var uploadId = window.sessionStorage.getItem(storageKey(file));
+        setProgress(options, 0, file.size);
+
+        if (uploadId) {
+            jQuery.ajax({ url: options.url + "/" + uploadId, dataType: "json" }).done(function (upload) {
+                sendChunks(options, file, upload, finish);
+            }).fail(function () {
+                createUpload(options, file, finish);
+            });
+        } else {
+            createUpload(options, file, finish);
+        }
+    }
+
+    function start(options) {
+        if (!options.files || !options.files.length) {
+            return;
+        }
+
+        // parameters are taken when the upload starts, so that later changes of the form don't affect it
+        options = jQuery.extend({}, options, { parameters: options.parameters ? options.parameters() : {} });
+        jQuery(options.button).prop("disabled", true);
+        uploadFiles(options, jQuery.makeArray(options.files), []);
+    }
+
+    return { start: start };
+})();
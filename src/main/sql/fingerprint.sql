@@ -0,0 +1,7 @@
+-- Adds fingerprint columns to contexts and inbound contexts.
+-- Needed for databases validated by hbm2ddl; the application fills in missing fingerprints itself at startup.
+
+ALTER TABLE context ADD COLUMN fingerprint BINARY(16), ADD INDEX idx_context_fingerprint (fingerprint);
+
+ALTER TABLE inbound_context ADD COLUMN fingerprint BINARY(16),
+    ADD INDEX idx_inbound_context_fingerprint (fingerprint);
@@ -0,0 +1,24 @@
+-- Moves contexts, inbound contexts, lemmata and comments from IDENTITY columns to the pooled table ID generator.
+-- Needed for databases validated by hbm2ddl; the application seeds missing generator rows itself at startup.
+
+CREATE TABLE IF NOT EXISTS id_generator (
+    entity VARCHAR(255) NOT NULL,
+    next_id BIGINT,
+    PRIMARY KEY (entity)
+) ENGINE = InnoDB;
+
+INSERT INTO id_generator (entity, next_id)
+SELECT 'context', COALESCE(MAX(id), 0) + 1 FROM context
+WHERE NOT EXISTS (SELECT 1 FROM id_generator WHERE entity = 'context');
+
+INSERT INTO id_generator (entity, next_id)
+SELECT 'inbound_context', COALESCE(MAX(id), 0) + 1 FROM inbound_context
+WHERE NOT EXISTS (SELECT 1 FROM id_generator WHERE entity = 'inbound_context');
+
+INSERT INTO id_generator (entity, next_id)
+SELECT 'lemma', COALESCE(MAX(id), 0) + 1 FROM lemma
+WHERE NOT EXISTS (SELECT 1 FROM id_generator WHERE entity = 'lemma');
+
+INSERT INTO id_generator (entity, next_id)
+SELECT 'comment', COALESCE(MAX(id), 0) + 1 FROM comment
+WHERE NOT EXISTS (SELECT 1 FROM id_generator WHERE entity = 'comment');
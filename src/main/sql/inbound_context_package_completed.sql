@@ -0,0 +1,4 @@
+-- Adds the completed flag to inbound context packages. Existing packages are completed.
+-- Needed for databases validated by hbm2ddl.
+
+ALTER TABLE inbound_context_package ADD COLUMN completed BIT(1) NOT NULL DEFAULT 1;
@@ -0,0 +1,268 @@
+package lemming.context;
+
+import lemming.context.inbound.InboundContext;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a large context XML file with the reader used by imports and with the former reader.
+ * <p>
+ * The former reader validated a file in a first pass and built contexts from an event reader in a second pass,
+ * collecting all contexts in a list. The current reader validates and builds contexts from the same SAX events in one
+ * pass and passes each context on. The benchmark generates a file with one million items in the temporary directory
+ * and is run from the project directory, so that the context schema is found.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class ContextXmlReaderBenchmark {
+    /**
+     * Path of the context schema relative to the project directory.
+     */
+    private static final String SCHEMA_PATH = "src/main/webapp/WEB-INF/schema/context.xsd";
+
+    /**
+     * Number of items in the generated file.
+     */
+    @Param({"1000000"})
+    public Integer itemCount;
+
+    /**
+     * The compiled context schema.
+     */
+    private Schema schema;
+
+    /**
+     * The generated file.
+     */
+    private Path file;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param arguments command line arguments
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] arguments) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ContextXmlReaderBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * Compiles the schema and generates a file of context XML.
+     *
+     * @throws IOException  if the file cannot be written
+     * @throws SAXException if the schema cannot be compiled
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SAXException {
+        schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI)
+                .newSchema(new StreamSource(Paths.get(SCHEMA_PATH).toFile()));
+        file = Files.createTempFile("contexts", ".xml");
+
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<kwiclist>\n");
+
+            for (int i = 0; i < itemCount; i++) {
+                if (i % 1000 == 0) {
+                    writer.write((i > 0 ? "</sublist>\n" : "") + "<sublist key=\"keyword" + (i / 1000) + "\">\n");
+                }
+
+                writer.write("<item location=\"benchmark_" + String.format("%05d", i / 100 % 100000) + "\" n=\"" +
+                        (i + 1) + "\" preceding=\"preceding words of item " + i + "\" following=\"following " +
+                        "words of item " + i + "\" type=\"seg_item\" sp=\"\"><punctuation type=\"init\">„" +
+                        "</punctuation><string>keyword" + (i / 1000) + "</string><punctuation type=\"end\">," +
+                        "</punctuation></item>\n");
+            }
+
+            writer.write((itemCount > 0 ? "</sublist>\n" : "") + "</kwiclist>\n");
+        }
+    }
+
+    /**
+     * Deletes the generated file.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    /**
+     * Reads the file with the reader used by imports.
+     *
+     * @return The number of contexts read.
+     * @throws IOException  if the file cannot be read
+     * @throws SAXException if the file is invalid
+     */
+    @Benchmark
+    public Integer currentReader() throws IOException, SAXException {
+        Integer[] count = {0};
+
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file))) {
+            new ContextXmlReader(schema, Locale.ROOT).readValidXml(inputStream, context -> count[0]++);
+        }
+
+        return count[0];
+    }
+
+    /**
+     * Reads the file with the former reader.
+     *
+     * @return The number of contexts read.
+     * @throws IOException        if the file cannot be read
+     * @throws SAXException       if the file is invalid
+     * @throws XMLStreamException if the file cannot be parsed
+     */
+    @Benchmark
+    public Integer formerReader() throws IOException, SAXException, XMLStreamException {
+        Validator validator = schema.newValidator();
+
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file))) {
+            validator.validate(new StreamSource(inputStream));
+        }
+
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file))) {
+            return readFormerXml(inputStream).size();
+        }
+    }
+
+    /**
+     * Reads context XML like the former reader, with an event reader creating a new input factory per call.
+     *
+     * @param inputStream input stream
+     * @return A list of contexts.
+     * @throws XMLStreamException if the XML data cannot be parsed
+     */
+    private static List<InboundContext> readFormerXml(InputStream inputStream) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        List<InboundContext> contexts = new ArrayList<>();
+        XMLEventReader reader = factory.createXMLEventReader(inputStream);
+        String currentElementName = "";
+        String punctuationType = "";
+        InboundContext context = null;
+
+        while (reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+
+            switch (event.getEventType()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    StartElement startElement = event.asStartElement();
+
+                    if (startElement.getName().getLocalPart().equals("item")) {
+                        currentElementName = "item";
+                        context = createFormerContext(startElement);
+                    } else if (startElement.getName().getLocalPart().equals("punctuation")) {
+                        currentElementName = "punctuation";
+                        String currentPunctuationType = startElement.getAttributeByName(new QName("type")).getValue();
+
+                        if (punctuationType.equals(currentPunctuationType)) {
+                            throw new XMLStreamException("Duplicate punctuation type.", event.getLocation());
+                        }
+
+                        punctuationType = currentPunctuationType;
+                    } else if (startElement.getName().getLocalPart().equals("string")) {
+                        currentElementName = "string";
+                    }
+
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    currentElementName = "";
+
+                    if (event.asEndElement().getName().getLocalPart().equals("item")) {
+                        contexts.add(context);
+                        punctuationType = "";
+                    }
+
+                    break;
+                case XMLStreamConstants.END_DOCUMENT:
+                    reader.close();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                    String data = event.asCharacters().getData();
+
+                    if (currentElementName.equals("punctuation")) {
+                        if (punctuationType.equals("init")) {
+                            context.setInitPunctuation(data);
+                        } else if (punctuationType.equals("end")) {
+                            context.setEndPunctuation(data);
+                        }
+                    } else if (currentElementName.equals("string")) {
+                        context.setKeyword(data);
+                    }
+
+                    break;
+            }
+        }
+
+        return contexts;
+    }
+
+    /**
+     * Creates a context from a start element like the former reader.
+     *
+     * @param element start element of an item
+     * @return A context object.
+     */
+    private static InboundContext createFormerContext(StartElement element) {
+        InboundContext context = new InboundContext();
+
+        for (Iterator<?> attributes = element.getAttributes(); attributes.hasNext(); ) {
+            Attribute attribute = (Attribute) attributes.next();
+            String value = (attribute.getValue() != null) ? attribute.getValue() : "";
+
+            switch (attribute.getName().getLocalPart()) {
+                case "following":
+                    context.setFollowing(value);
+                    break;
+                case "location":
+                    context.setLocation(value);
+                    break;
+                case "n":
+                    context.setNumber(Integer.valueOf(value));
+                    break;
+                case "preceding":
+                    context.setPreceding(value);
+                    break;
+                case "type":
+                    context.setType(ContextType.Type.SEGMENT);
+                    break;
+                case "sp":
+                    context.setSpeech(SpeechType.Type.NONE);
+                    break;
+            }
+        }
+
+        return context;
+    }
+}
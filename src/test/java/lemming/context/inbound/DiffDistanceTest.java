@@ -0,0 +1,116 @@
+package lemming.context.inbound;
+
+import name.fraser.neil.plaintext.diff_match_patch;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares diff distances with distances of diff-match-patch, which were used for matching before.
+ */
+public class DiffDistanceTest {
+    /**
+     * Number of random pairs of texts compared.
+     */
+    private static final Integer PAIR_COUNT = 20000;
+
+    /**
+     * Characters of random texts. A small alphabet makes common substrings likely.
+     */
+    private static final String ALPHABET = "abcde #";
+
+    /**
+     * Compares distances of random pairs of texts, including half matches and repeated substrings.
+     */
+    @Test
+    public void testRandomPairs() {
+        Random random = new Random(42L);
+        diff_match_patch diffMatchPatch = new diff_match_patch();
+
+        for (int pair = 0; pair < PAIR_COUNT; pair++) {
+            String text1 = getRandomText(random, random.nextBoolean() ? 20 : 160);
+            String text2 = random.nextBoolean() ? mutate(random, text1) :
+                    getRandomText(random, random.nextBoolean() ? 20 : 160);
+            int expected = diffMatchPatch.diff_levenshtein(diffMatchPatch.diff_main(text1, text2, false));
+            int distance = DiffDistance.getDistance(text1, text2);
+
+            assertEquals(text1 + " / " + text2, expected, distance);
+            assertTrue(text1 + " / " + text2, EditDistance.getDistance(text1, text2) <= distance);
+        }
+    }
+
+    /**
+     * Compares distances of context texts.
+     */
+    @Test
+    public void testContextTexts() {
+        String[][] pairs = {
+                {"Item preceding#keyword#following", "Item preceding#keyword#following"},
+                {"des heren#gebot#also si", "des herren#gebot#alsô sie"},
+                {"xyz1", "1abc"},
+                {"", "keyword"},
+                {"A#BA#C", "A#C"}
+        };
+        diff_match_patch diffMatchPatch = new diff_match_patch();
+
+        for (String[] pair : pairs) {
+            int expected = diffMatchPatch.diff_levenshtein(diffMatchPatch.diff_main(pair[0], pair[1], false));
+            assertEquals(pair[0] + " / " + pair[1], expected, DiffDistance.getDistance(pair[0], pair[1]).intValue());
+        }
+    }
+
+    /**
+     * Returns a random text.
+     *
+     * @param random a random number generator
+     * @param maxLength maximum length of the text
+     * @return A text.
+     */
+    private static String getRandomText(Random random, int maxLength) {
+        StringBuilder builder = new StringBuilder();
+        int length = random.nextInt(maxLength + 1);
+
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns a text with a few random edits, some of them moving a substring.
+     *
+     * @param random a random number generator
+     * @param text a text
+     * @return A mutated text.
+     */
+    private static String mutate(Random random, String text) {
+        StringBuilder builder = new StringBuilder(text);
+        int editCount = random.nextInt(6);
+
+        for (int edit = 0; edit < editCount; edit++) {
+            int position = random.nextInt(builder.length() + 1);
+            char character = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+
+            if (position == builder.length() || random.nextInt(3) == 0) {
+                builder.insert(position, character);
+            } else if (random.nextBoolean()) {
+                builder.deleteCharAt(position);
+            } else {
+                builder.setCharAt(position, character);
+            }
+        }
+
+        if (builder.length() > 8 && random.nextInt(4) == 0) {
+            // moving a substring to the front creates a common middle for the half match
+            int start = random.nextInt(builder.length() / 2);
+            String moved = builder.substring(start, start + 4);
+            builder.delete(start, start + 4).insert(0, moved);
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,130 @@
+package lemming.context.inbound;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares bit-parallel Levenshtein distances with distances of the textbook dynamic program.
+ */
+public class EditDistanceTest {
+    /**
+     * Number of random pairs of texts compared.
+     */
+    private static final Integer PAIR_COUNT = 200000;
+
+    /**
+     * Characters of random texts. A small alphabet makes common substrings likely.
+     */
+    private static final String ALPHABET = "abcde #";
+
+    /**
+     * Compares distances of random pairs of texts, some of them longer than a block, with and without a maximum.
+     */
+    @Test
+    public void testRandomPairs() {
+        Random random = new Random(42L);
+
+        for (int pair = 0; pair < PAIR_COUNT; pair++) {
+            String text1 = getRandomText(random, random.nextBoolean() ? 20 : 160);
+            String text2 = random.nextBoolean() ? mutate(random, text1) :
+                    getRandomText(random, random.nextBoolean() ? 20 : 160);
+            int expected = getDistance(text1, text2);
+            int maxDistance = random.nextInt(expected + 2);
+
+            assertEquals(text1 + " / " + text2, expected, EditDistance.getDistance(text1, text2).intValue());
+            assertEquals(text1 + " / " + text2, Math.min(expected, maxDistance + 1),
+                    EditDistance.getDistance(text1, text2, maxDistance).intValue());
+        }
+    }
+
+    /**
+     * Compares distances of texts which are empty or equal.
+     */
+    @Test
+    public void testTrivialPairs() {
+        assertEquals(0, EditDistance.getDistance("", "").intValue());
+        assertEquals(3, EditDistance.getDistance("", "abc").intValue());
+        assertEquals(3, EditDistance.getDistance("abc", "").intValue());
+        assertEquals(0, EditDistance.getDistance("abc", "abc").intValue());
+        assertEquals(2, EditDistance.getDistance("", "abc", 1).intValue());
+    }
+
+    /**
+     * Returns a random text.
+     *
+     * @param random a random number generator
+     * @param maxLength maximum length of the text
+     * @return A text.
+     */
+    private static String getRandomText(Random random, int maxLength) {
+        StringBuilder builder = new StringBuilder();
+        int length = random.nextInt(maxLength + 1);
+
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns a text with a few random insertions, deletions and substitutions.
+     *
+     * @param random a random number generator
+     * @param text a text
+     * @return A mutated text.
+     */
+    private static String mutate(Random random, String text) {
+        StringBuilder builder = new StringBuilder(text);
+        int editCount = random.nextInt(6);
+
+        for (int edit = 0; edit < editCount; edit++) {
+            int position = random.nextInt(builder.length() + 1);
+            char character = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+
+            if (position == builder.length() || random.nextInt(3) == 0) {
+                builder.insert(position, character);
+            } else if (random.nextBoolean()) {
+                builder.deleteCharAt(position);
+            } else {
+                builder.setCharAt(position, character);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Returns the Levenshtein distance of two texts computed by the dynamic program over all prefixes.
+     *
+     * @param text1 text 1
+     * @param text2 text 2
+     * @return The Levenshtein distance.
+     */
+    private static int getDistance(String text1, String text2) {
+        int[] previous = new int[text2.length() + 1];
+        int[] current = new int[text2.length() + 1];
+
+        for (int j = 0; j <= text2.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= text1.length(); i++) {
+            current[0] = i;
+
+            for (int j = 1; j <= text2.length(); j++) {
+                int substitution = previous[j - 1] + (text1.charAt(i - 1) == text2.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return previous[text2.length()];
+    }
+}
@@ -0,0 +1,90 @@
+package lemming.context.inbound;
+
+import lemming.context.BaseContext;
+import lemming.context.Context;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares matching triples computed by alignment with matching triples computed greedily.
+ */
+public class MatchHelperTest {
+    /**
+     * Texts of contexts, in order.
+     */
+    private static final String[] CONTEXT_TEXTS = {
+            "des heren gebot", "unde sprach also", "in deme lande", "der kunic rihte", "an dem anderen tage"
+    };
+
+    /**
+     * Texts of inbound contexts, in order. They are slightly changed texts of contexts, without the third one and
+     * with a new one, so that matching pairs don’t cross.
+     */
+    private static final String[] INBOUND_CONTEXT_TEXTS = {
+            "des herren gebot", "unde sprach alsô", "der kunic rihtet", "ze dem brunnen gie", "an dem andern tage"
+    };
+
+    /**
+     * Checks that both modes match each inbound context with the context it was changed from.
+     */
+    @Test
+    public void testUncrossedPairs() {
+        List<Context> contexts = new ArrayList<>();
+        List<InboundContext> inboundContexts = new ArrayList<>();
+
+        for (int i = 0; i < CONTEXT_TEXTS.length; i++) {
+            contexts.add(createContext(new Context(), i, CONTEXT_TEXTS[i]));
+        }
+
+        for (int i = 0; i < INBOUND_CONTEXT_TEXTS.length; i++) {
+            inboundContexts.add(createContext(new InboundContext(), i, INBOUND_CONTEXT_TEXTS[i]));
+        }
+
+        List<String> alignmentPairs = getPairs(MatchHelper.computeMatchingTriples(contexts, inboundContexts,
+                MatchHelper.Mode.ALIGNMENT, CandidateFilter.NONE));
+        List<String> greedyPairs = getPairs(MatchHelper.computeMatchingTriples(contexts, inboundContexts,
+                MatchHelper.Mode.GREEDY, CandidateFilter.NONE));
+
+        assertEquals(Arrays.asList("0-0", "1-1", "3-2", "4-4"), alignmentPairs);
+        assertEquals(alignmentPairs, greedyPairs);
+    }
+
+    /**
+     * Returns the pairs of context index and inbound context index of triples, in order of contexts.
+     *
+     * @param triples list of triples
+     * @return A list of pairs, written as context index and inbound context index joined by a hyphen.
+     */
+    private static List<String> getPairs(List<Triple> triples) {
+        List<String> pairs = new ArrayList<>();
+
+        for (Triple triple : MatchHelper.sortTriples(triples)) {
+            pairs.add(triple.getContextIndex() + "-" + triple.getInboundContextIndex());
+        }
+
+        return pairs;
+    }
+
+    /**
+     * Fills in the text elements of a context.
+     *
+     * @param context a context
+     * @param number number of the context
+     * @param text text of the context, split into preceding text, keyword and following text
+     * @param <T> type of the context
+     * @return The context.
+     */
+    private static <T extends BaseContext> T createContext(T context, Integer number, String text) {
+        String[] words = text.split(" ", 3);
+        context.setNumber(number);
+        context.setPreceding(words[0]);
+        context.setKeyword(words[1]);
+        context.setFollowing(words[2]);
+        return context;
+    }
+}
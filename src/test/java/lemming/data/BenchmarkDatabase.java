@@ -0,0 +1,74 @@
+package lemming.data;
+
+import lemming.user.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Connection settings of the MySQL database used by benchmarks.
+ * <p>
+ * The persistence unit is filtered by Maven only when the web application is packaged, so benchmarks pass the
+ * connection settings themselves. They are read from the system properties lemming.benchmark.url,
+ * lemming.benchmark.username and lemming.benchmark.password. The schema is updated when a benchmark starts, so the
+ * database should be a copy and not the production database.
+ */
+final class BenchmarkDatabase {
+    /**
+     * Private constructor.
+     */
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Returns persistence unit properties connecting to the benchmark database.
+     *
+     * @param urlOptions additional options of the JDBC URL, or an empty string
+     * @return A map of properties.
+     */
+    static Map<String, Object> getProperties(String urlOptions) {
+        Map<String, Object> properties = new HashMap<>();
+        String url = System.getProperty("lemming.benchmark.url", "jdbc:mysql://localhost/lemming_benchmark") +
+                "?useTimezone=true&serverTimezone=UTC";
+
+        if (!urlOptions.isEmpty()) {
+            url += "&" + urlOptions;
+        }
+
+        properties.put("hibernate.connection.driver_class", "com.mysql.cj.jdbc.Driver");
+        properties.put("hibernate.connection.url", url);
+        properties.put("hibernate.connection.username", System.getProperty("lemming.benchmark.username", "lemming"));
+        properties.put("hibernate.connection.password", System.getProperty("lemming.benchmark.password", ""));
+        properties.put("hibernate.dialect", "org.hibernate.dialect.MySQL5Dialect");
+        properties.put("hibernate.dialect.storage_engine", "innodb");
+        properties.put("hibernate.hbm2ddl.auto", "update");
+        return properties;
+    }
+
+    /**
+     * Returns a user of the benchmark database, who owns the context packages of a benchmark.
+     *
+     * @param entityManagerFactory an entity manager factory of the benchmark database
+     * @return A user.
+     * @throws IllegalStateException if the database has no users
+     */
+    static User getUser(EntityManagerFactory entityManagerFactory) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+
+        try {
+            List<User> users = entityManager.createQuery("FROM User ORDER BY id", User.class).setMaxResults(1)
+                    .getResultList();
+
+            if (users.isEmpty()) {
+                throw new IllegalStateException("The benchmark database has no users.");
+            }
+
+            return users.get(0);
+        } finally {
+            entityManager.close();
+        }
+    }
+}
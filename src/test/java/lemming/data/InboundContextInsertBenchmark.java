@@ -0,0 +1,187 @@
+package lemming.data;
+
+import lemming.context.ContextType;
+import lemming.context.SpeechType;
+import lemming.context.inbound.InboundContext;
+import lemming.context.inbound.InboundContextPackage;
+import lemming.user.User;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.Persistence;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long inserting the inbound contexts of an import takes.
+ * <p>
+ * Inbound contexts get pooled IDs, so that Hibernate can batch their inserts. The benchmark compares a JDBC batch size
+ * of 1 with the configured batch size of 50, each with and without rewriteBatchedStatements, which makes the MySQL
+ * driver send a batch as one multi-row insert. Contexts are persisted like InboundContextDao.batchPersist does. The
+ * database is configured as described in BenchmarkDatabase and needs at least one user.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InboundContextInsertBenchmark {
+    /**
+     * Number of contexts inserted per invocation.
+     */
+    private static final Integer CONTEXT_COUNT = 20000;
+
+    /**
+     * Number of contexts persisted between flushes, as in InboundContextDao.batchPersist.
+     */
+    private static final Integer FLUSH_INTERVAL = 50;
+
+    /**
+     * JDBC batch size.
+     */
+    @Param({"1", "50"})
+    public Integer batchSize;
+
+    /**
+     * True if the MySQL driver rewrites batched inserts into multi-row inserts.
+     */
+    @Param({"false", "true"})
+    public Boolean rewriteBatchedStatements;
+
+    /**
+     * Entity manager factory of the benchmark database.
+     */
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Owner of inserted context packages.
+     */
+    private User user;
+
+    /**
+     * IDs of context packages inserted in the current iteration.
+     */
+    private final List<Integer> packageIds = new ArrayList<>();
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param arguments command line arguments
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] arguments) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InboundContextInsertBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * Opens the benchmark database with the batch settings of a trial.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Object> properties = BenchmarkDatabase.getProperties("rewriteBatchedStatements=" +
+                rewriteBatchedStatements);
+        properties.put("hibernate.jdbc.batch_size", batchSize.toString());
+        entityManagerFactory = Persistence.createEntityManagerFactory("persistence-unit", properties);
+        PooledIdGenerator.seed(entityManagerFactory.unwrap(SessionFactory.class));
+        user = BenchmarkDatabase.getUser(entityManagerFactory);
+    }
+
+    /**
+     * Closes the benchmark database.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManagerFactory.close();
+    }
+
+    /**
+     * Removes the context packages inserted in an iteration.
+     */
+    @TearDown(Level.Iteration)
+    public void removePackages() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        EntityTransaction transaction = entityManager.getTransaction();
+
+        try {
+            transaction.begin();
+            entityManager.createQuery("DELETE FROM InboundContext i WHERE i._package.id IN :packageIds")
+                    .setParameter("packageIds", packageIds).executeUpdate();
+            entityManager.createQuery("DELETE FROM InboundContextPackage i WHERE i.id IN :packageIds")
+                    .setParameter("packageIds", packageIds).executeUpdate();
+            transaction.commit();
+            packageIds.clear();
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Inserts a context package and its contexts in one transaction.
+     *
+     * @return The ID of the context package.
+     */
+    @Benchmark
+    public Integer insert() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        EntityTransaction transaction = entityManager.getTransaction();
+
+        try {
+            transaction.begin();
+            InboundContextPackage contextPackage = new InboundContextPackage(user);
+            entityManager.persist(contextPackage);
+
+            for (int i = 0; i < CONTEXT_COUNT; i++) {
+                entityManager.persist(createContext(contextPackage, i));
+
+                if ((i + 1) % FLUSH_INTERVAL == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                    contextPackage = entityManager.getReference(InboundContextPackage.class, contextPackage.getId());
+                }
+            }
+
+            transaction.commit();
+            packageIds.add(contextPackage.getId());
+            return contextPackage.getId();
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Creates an inbound context resembling a parsed context.
+     *
+     * @param contextPackage package of the context
+     * @param number         number of the context
+     * @return An inbound context.
+     */
+    private InboundContext createContext(InboundContextPackage contextPackage, Integer number) {
+        InboundContext context = new InboundContext();
+        context.setPackage(contextPackage);
+        context.setLocation("benchmark_" + (number / 100));
+        context.setNumber(number);
+        context.setType(ContextType.Type.SEGMENT);
+        context.setKeyword("keyword" + (number % 1000));
+        context.setPreceding("Item " + number + " preceding text of a typical length for a context");
+        context.setFollowing("following text of a typical length for a context, item " + number);
+        context.setSpeech(SpeechType.Type.NONE);
+        return context;
+    }
+}
@@ -0,0 +1,316 @@
+package lemming.data;
+
+import lemming.context.BaseContext;
+import lemming.context.Context;
+import lemming.context.ContextType;
+import lemming.context.SpeechType;
+import lemming.context.inbound.InboundContext;
+import lemming.context.inbound.InboundContextPackage;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.Persistence;
+import javax.persistence.TypedQuery;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long matching the inbound contexts of a package to existing contexts takes.
+ * <p>
+ * The former matching loaded every matching context and updated its inbound contexts one statement at a time, then
+ * cleared ambiguous matches key by key. The current matching sets all matches of a package with one join update, as
+ * InboundContextPackageDao.matchContextsByHash does. Both are measured with hashes and fingerprints as match keys. Half
+ * of the inbound contexts match a context, and some keys are ambiguous. The database is configured as described in
+ * BenchmarkDatabase and needs at least one user.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InboundContextMatchBenchmark {
+    /**
+     * Number of inbound contexts in the package.
+     */
+    private static final Integer CONTEXT_COUNT = 20000;
+
+    /**
+     * Number of contexts persisted between flushes.
+     */
+    private static final Integer FLUSH_INTERVAL = 50;
+
+    /**
+     * Every context with a number divisible by this interval has a duplicate, so that its key is ambiguous.
+     */
+    private static final Integer DUPLICATE_INTERVAL = 100;
+
+    /**
+     * Property used as key to match contexts.
+     */
+    @Param({"hash", "fingerprint"})
+    public String matchKey;
+
+    /**
+     * Entity manager factory of the benchmark database.
+     */
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * The matched package.
+     */
+    private InboundContextPackage contextPackage;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param arguments command line arguments
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] arguments) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InboundContextMatchBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * Opens the benchmark database and inserts contexts and a package of inbound contexts.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        entityManagerFactory = Persistence.createEntityManagerFactory("persistence-unit",
+                BenchmarkDatabase.getProperties("rewriteBatchedStatements=true"));
+        PooledIdGenerator.seed(entityManagerFactory.unwrap(SessionFactory.class));
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        EntityTransaction transaction = entityManager.getTransaction();
+
+        try {
+            transaction.begin();
+            contextPackage = new InboundContextPackage(BenchmarkDatabase.getUser(entityManagerFactory));
+            entityManager.persist(contextPackage);
+
+            for (int i = 0; i < CONTEXT_COUNT; i++) {
+                // every other inbound context has a context with the same text
+                if (i % 2 == 0) {
+                    entityManager.persist(createContext(i));
+                }
+
+                if (i % DUPLICATE_INTERVAL == 0) {
+                    entityManager.persist(createContext(i));
+                }
+
+                InboundContext inboundContext = new InboundContext();
+                inboundContext.setPackage(contextPackage);
+                setTextElements(inboundContext, i);
+                entityManager.persist(inboundContext);
+
+                if ((i + 1) % FLUSH_INTERVAL == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                    contextPackage = entityManager.getReference(InboundContextPackage.class, contextPackage.getId());
+                }
+            }
+
+            transaction.commit();
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Removes the inserted contexts and package and closes the benchmark database.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        EntityTransaction transaction = entityManager.getTransaction();
+
+        try {
+            transaction.begin();
+            entityManager.createQuery("DELETE FROM InboundContext i WHERE i._package.id = :packageId")
+                    .setParameter("packageId", contextPackage.getId()).executeUpdate();
+            entityManager.createQuery("DELETE FROM InboundContextPackage i WHERE i.id = :packageId")
+                    .setParameter("packageId", contextPackage.getId()).executeUpdate();
+            entityManager.createQuery("DELETE FROM Context c WHERE c.location LIKE 'benchmark%'").executeUpdate();
+            transaction.commit();
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            entityManager.close();
+            entityManagerFactory.close();
+        }
+    }
+
+    /**
+     * Clears the matches of the package before an invocation.
+     */
+    @Setup(Level.Invocation)
+    public void clearMatches() {
+        execute(entityManager -> entityManager.createQuery("UPDATE InboundContext i SET i.match = NULL " +
+                "WHERE i._package.id = :packageId").setParameter("packageId", contextPackage.getId())
+                .executeUpdate());
+    }
+
+    /**
+     * Matches the package with one join update.
+     *
+     * @return The number of updated rows.
+     */
+    @Benchmark
+    public Object joinUpdate() {
+        return execute(entityManager -> entityManager.createNativeQuery("UPDATE inbound_context i " +
+                "LEFT JOIN context c ON c." + matchKey + " = i." + matchKey + " " +
+                "LEFT JOIN context dc ON dc." + matchKey + " = c." + matchKey + " AND dc.id <> c.id " +
+                "LEFT JOIN inbound_context di ON di." + matchKey + " = i." + matchKey + " AND di.id <> i.id " +
+                "SET i.match_id = IF(dc.id IS NULL AND di.id IS NULL, c.id, NULL) " +
+                "WHERE i.package_id = :package")
+                .unwrap(NativeQuery.class).addSynchronizedEntityClass(InboundContext.class)
+                .setParameter("package", contextPackage.getId()).executeUpdate());
+    }
+
+    /**
+     * Matches the package with one update per matching context, as the former matching did.
+     *
+     * @return The number of updated rows.
+     */
+    @Benchmark
+    public Object perContextUpdates() {
+        return execute(entityManager -> {
+            InboundContextPackage contextPackage = entityManager.getReference(InboundContextPackage.class,
+                    this.contextPackage.getId());
+            TypedQuery<Context> selectQuery = entityManager.createQuery("SELECT c FROM InboundContext i " +
+                    "INNER JOIN Context c ON i." + matchKey + " = c." + matchKey + " WHERE i._package = :package",
+                    Context.class);
+            List<Context> contexts = selectQuery.setParameter("package", contextPackage).getResultList();
+            Integer count = 0;
+
+            for (int i = 0; i < contexts.size(); i++) {
+                Context context = contexts.get(i);
+                count += entityManager.createQuery("UPDATE InboundContext SET match_id = :id " +
+                        "WHERE " + matchKey + " = :key AND package_id = :package")
+                        .setParameter("id", context.getId()).setParameter("key", getMatchKeyValue(context))
+                        .setParameter("package", contextPackage).executeUpdate();
+
+                if ((i + 1) % FLUSH_INTERVAL == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+
+            clearAmbiguousMatches(entityManager, contextPackage, "Context");
+            clearAmbiguousMatches(entityManager, contextPackage, "InboundContext");
+            return count;
+        });
+    }
+
+    /**
+     * Clears matches of inbound contexts whose key belongs to several entities of a type, key by key, as the former
+     * matching did.
+     *
+     * @param entityManager  an entity manager
+     * @param contextPackage the matched package
+     * @param entityName     name of the entity type with duplicate keys
+     */
+    private void clearAmbiguousMatches(EntityManager entityManager, InboundContextPackage contextPackage,
+                                       String entityName) {
+        List<Object> duplicateKeys = entityManager.createQuery("SELECT e." + matchKey + " FROM " + entityName +
+                " e GROUP BY e." + matchKey + " HAVING COUNT(e." + matchKey + ") > 1", Object.class)
+                .getResultList();
+
+        for (Object key : duplicateKeys) {
+            entityManager.createQuery("UPDATE InboundContext SET match_id = NULL " +
+                    "WHERE " + matchKey + " = :key AND package_id = :package")
+                    .setParameter("key", key).setParameter("package", contextPackage).executeUpdate();
+        }
+    }
+
+    /**
+     * Returns the match key value of a context.
+     *
+     * @param context a context
+     * @return A hash or fingerprint.
+     */
+    private Object getMatchKeyValue(BaseContext context) {
+        return matchKey.equals("fingerprint") ? context.getFingerprint() : context.getHash();
+    }
+
+    /**
+     * Creates a context with the text of an inbound context.
+     *
+     * @param number number of the inbound context
+     * @return A context.
+     */
+    private Context createContext(Integer number) {
+        Context context = new Context();
+        context.setUuid(UUID.randomUUID().toString());
+        context.setInteresting(false);
+        setTextElements(context, number);
+        return context;
+    }
+
+    /**
+     * Sets text elements resembling a parsed context.
+     *
+     * @param context a context
+     * @param number  number of the context
+     */
+    private void setTextElements(BaseContext context, Integer number) {
+        context.setLocation("benchmark_" + (number / 100));
+        context.setNumber(number);
+        context.setType(ContextType.Type.SEGMENT);
+        context.setKeyword("keyword" + (number % 1000));
+        context.setPreceding("Item " + number + " preceding text of a typical length for a context");
+        context.setFollowing("following text of a typical length for a context, item " + number);
+        context.setSpeech(SpeechType.Type.NONE);
+    }
+
+    /**
+     * Executes work in a transaction.
+     *
+     * @param work work done in the transaction
+     * @return The result of the work.
+     */
+    private Object execute(Work work) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        EntityTransaction transaction = entityManager.getTransaction();
+
+        try {
+            transaction.begin();
+            Object result = work.execute(entityManager);
+            transaction.commit();
+            return result;
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Work done in a transaction.
+     */
+    @FunctionalInterface
+    private interface Work {
+        /**
+         * Executes the work.
+         *
+         * @param entityManager an entity manager
+         * @return A result.
+         */
+        Object execute(EntityManager entityManager);
+    }
+}